@@ -34,6 +34,12 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    testOptions {
+        unitTests.all {
+            // ./gradlew test -PframeCostReport prints FrameCostHarnessTest's cost table
+            it.systemProperty("buddyrobot.frameCostReport", project.hasProperty("frameCostReport"))
+        }
+    }
 }
 
 dependencies {
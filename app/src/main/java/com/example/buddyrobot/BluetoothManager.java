@@ -2,25 +2,75 @@ package com.example.buddyrobot;
 
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothSocket;
 import android.util.Log;
 
 import java.io.IOException;
-import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 public class BluetoothManager {
     private static final String TAG = "BluetoothManager";
-    private static final UUID MY_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
+
+    // RFCOMM connect() to a device that is off or out of range only fails after the stack's
+    // own timeout; connects here are closed after this instead
+    private static final long DEFAULT_CONNECT_TIMEOUT_MS = 4000;
+
+    /** Where connectAsync() and probeAndConnect() end up; called on a connector thread. */
+    public interface ConnectCallback {
+        void onConnected(RobotTransport transport);
+
+        void onConnectFailed(IOException cause);
+    }
 
     private BluetoothAdapter bluetoothAdapter;
-    private BluetoothSocket bluetoothSocket;
-    private OutputStream outputStream;
-    private boolean isConnected = false;
+    // Queueing, framing and batching; independent of how the robot is reached
+    private final RobotLink link = new RobotLink(new RobotLink.Listener() {
+        @Override
+        public void onLinkFailing(RobotTransport transport) {
+            if (autoReconnect) supervisor.onLinkFailing(transport);
+        }
+
+        @Override
+        public void onLinkLost(RobotTransport transport, IOException cause) {
+            Log.e(TAG, "Link lost, disconnected from " + transport.getName(), cause);
+            if (autoReconnect) supervisor.onLinkLost(transport, cause);
+        }
+    });
+    private final RobotConnector connector = new RobotConnector();
+    private volatile long connectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
+
+    // Brings a lost link back and replays the expression and head position to the robot
+    private final ReconnectSupervisor supervisor = new ReconnectSupervisor(link, connector,
+            new ReconnectSupervisor.Listener() {
+                @Override
+                public void onReconnecting(int attempt, long delayMs, IOException cause) {
+                    Log.w(TAG, "Reconnecting in " + delayMs + " ms (attempt " + attempt + ")");
+                }
+
+                @Override
+                public void onReconnected(RobotTransport transport, int attempts) {
+                    Log.i(TAG, "Reconnected to " + transport.getName() + " after " + attempts
+                            + (attempts == 1 ? " attempt" : " attempts"));
+                }
+
+                @Override
+                public void onGaveUp(RuntimeException cause) {
+                    Log.e(TAG, "Gave up reconnecting", cause);
+                }
+            });
+    private volatile boolean autoReconnect = true;
+
+    // Absolute pan/tilt targets from the drag pad, sent at a fixed rate while streaming
+    private final HeadStream headStream = new HeadStream(link, supervisor.getState());
 
     public BluetoothManager() {
         bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
+        supervisor.setHeadStream(headStream);
     }
 
     public boolean isBluetoothAvailable() {
@@ -38,51 +88,297 @@ public class BluetoothManager {
         return null;
     }
 
+    /** Connects to a paired robot over RFCOMM; blocks for at most the connect timeout. */
     public boolean connect(String deviceAddress) {
+        BluetoothDevice device = bluetoothAdapter.getRemoteDevice(deviceAddress);
+        return connect(new RfcommTransport(device));
+    }
+
+    /**
+     * Connects over any transport, e.g. TCP to a robot stand-in while developing without
+     * the ESP32. Blocks for at most the connect timeout.
+     */
+    public boolean connect(RobotTransport transport) {
         try {
-            BluetoothDevice device = bluetoothAdapter.getRemoteDevice(deviceAddress);
-            bluetoothSocket = device.createRfcommSocketToServiceRecord(MY_UUID);
-            bluetoothSocket.connect();
-            outputStream = bluetoothSocket.getOutputStream();
-            isConnected = true;
-            Log.d(TAG, "Connected to: " + device.getName());
-            return true;
-        } catch (IOException e) {
-            Log.e(TAG, "Connection failed", e);
-            disconnect();
+            connectAsync(transport, null).get();
+            return link.isConnected() && link.getTransport() == transport;
+        } catch (ExecutionException e) {
+            return false; // logged by the connector callback
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return false;
         }
     }
 
-    public void sendData(String data) {
-        if (isConnected && outputStream != null) {
-            try {
-                outputStream.write(data.getBytes());
-                outputStream.write('\n'); // Tambahkan newline
-                Log.d(TAG, "Sent: " + data);
-            } catch (IOException e) {
-                Log.e(TAG, "Send failed", e);
-                disconnect();
-            }
+    /** Connects to a paired robot over RFCOMM without blocking. */
+    public Future<?> connectAsync(String deviceAddress, ConnectCallback callback) {
+        return connectAsync(new RfcommTransport(bluetoothAdapter.getRemoteDevice(deviceAddress)),
+                callback);
+    }
+
+    /**
+     * Opens transport on a connector thread and gives up after the connect timeout.
+     *
+     * @param callback may be null; cancel the returned future to abandon the attempt
+     */
+    public Future<?> connectAsync(RobotTransport transport, ConnectCallback callback) {
+        supervisor.stop();
+        cancelDiscovery();
+        return connector.connect(transport, connectTimeoutMs, link.isBinaryProtocolEnabled(),
+                attachTo(callback));
+    }
+
+    /**
+     * Tries every device at once and connects to the first that answers the robot handshake,
+     * so the operator doesn't have to pick the ESP32 out of the paired devices. Firmware too
+     * old to answer is still found: failing an answer, the first device that connected wins.
+     *
+     * @param devices candidates, e.g. getPairedDevices()
+     */
+    public Future<?> probeAndConnect(Collection<BluetoothDevice> devices,
+                                     ConnectCallback callback) {
+        supervisor.stop();
+        cancelDiscovery();
+        List<RobotTransport> candidates = new ArrayList<>(devices.size());
+        for (BluetoothDevice device : devices) {
+            candidates.add(new RfcommTransport(device));
         }
+        return connector.probe(candidates, connectTimeoutMs, link.isBinaryProtocolEnabled(),
+                attachTo(callback));
     }
 
-    public void disconnect() {
-        try {
-            if (outputStream != null) {
-                outputStream.close();
+    /** Deadline for each connect; 4 s by default. */
+    public void setConnectTimeoutMillis(long millis) {
+        connectTimeoutMs = millis;
+        supervisor.setConnectTimeoutMillis(millis);
+    }
+
+    // Hands a connected transport to the link, then tells the caller
+    private RobotConnector.Callback attachTo(final ConnectCallback callback) {
+        return new RobotConnector.Callback() {
+            @Override
+            public void onConnected(RobotConnector.Connection connection) {
+                RobotTransport transport = connection.transport;
+                try {
+                    link.attach(transport, connection.binary);
+                } catch (IOException e) {
+                    transport.close();
+                    onFailed(e);
+                    return;
+                }
+                Log.d(TAG, "Connected to: " + transport.getName()
+                        + (connection.binary ? " (binary frames)" : " (text)")
+                        + " in " + connection.elapsedNanos / 1_000_000L + " ms");
+                if (callback != null) callback.onConnected(transport);
             }
-            if (bluetoothSocket != null) {
-                bluetoothSocket.close();
+
+            @Override
+            public void onFailed(IOException cause) {
+                Log.e(TAG, "Connection failed", cause);
+                if (callback != null) callback.onConnectFailed(cause);
+            }
+        };
+    }
+
+    // An inquiry scan in progress slows every RFCOMM connect down
+    private void cancelDiscovery() {
+        if (bluetoothAdapter != null) {
+            try {
+                bluetoothAdapter.cancelDiscovery();
+            } catch (SecurityException e) {
+                Log.w(TAG, "Can't cancel discovery", e);
             }
-            isConnected = false;
-            Log.d(TAG, "Disconnected");
-        } catch (IOException e) {
-            Log.e(TAG, "Disconnect error", e);
         }
     }
 
+    public boolean sendData(String data) {
+        return sendData(data, System.nanoTime());
+    }
+
+    /**
+     * Queues a command the operator triggered at tapNanos (System.nanoTime()), so its latency
+     * is measured from the tap rather than from this call. Returns without waiting for the
+     * link; the writer thread sends it.
+     *
+     * While the link is reconnecting the command is handled by the outage policy.
+     *
+     * @return false if not connected or the command could not be queued
+     */
+    public boolean sendData(String data, long tapNanos) {
+        if (!link.isConnected() && !supervisor.isReconnecting()) return false;
+        if (!supervisor.send(data, tapNanos)) {
+            Log.w(TAG, "Not sent, dropped: " + data);
+            return false;
+        }
+        // Called for every tap; build the message only when someone is listening
+        if (Log.isLoggable(TAG, Log.VERBOSE)) Log.v(TAG, "Queued: " + data);
+        return true;
+    }
+
+    public void disconnect() {
+        supervisor.stop();
+        link.disconnect();
+        Log.d(TAG, "Disconnected");
+    }
+
+    /**
+     * Disconnects and ends the head stream, reconnect and connector threads, e.g. from
+     * onDestroy(). The manager can't connect again afterwards.
+     */
+    public void shutdown() {
+        headStream.stop();
+        supervisor.shutdown();
+        link.disconnect();
+        connector.shutdown();
+        Log.d(TAG, "Shut down");
+    }
+
     public boolean isConnected() {
-        return isConnected;
+        return link.isConnected();
+    }
+
+    // ========== RECONNECT ==========
+
+    /** Whether a lost link is reconnected automatically; on by default. */
+    public void setAutoReconnect(boolean enabled) {
+        autoReconnect = enabled;
+        if (!enabled) supervisor.stop();
+    }
+
+    /** True between losing the link and getting it back; sendData() follows the outage policy. */
+    public boolean isReconnecting() {
+        return supervisor.isReconnecting();
+    }
+
+    /** What sendData() does while reconnecting; KEEP_LATEST by default. */
+    public void setOutagePolicy(OutagePolicy policy) {
+        supervisor.setOutagePolicy(policy);
+    }
+
+    /** Where the expression replayed after a reconnect comes from, e.g. faceView::getExpression. */
+    public void setExpressionSource(Supplier<Expression> source) {
+        supervisor.setExpressionSource(source);
+    }
+
+    /** Backoff between reconnect attempts: doubling from initialMs up to maxMs, with jitter. */
+    public void setReconnectBackoff(long initialMs, long maxMs) {
+        supervisor.setBackoff(initialMs, maxMs);
+    }
+
+    /** Whether the next connect() offers binary frames; on by default. */
+    public void setBinaryProtocolEnabled(boolean enabled) {
+        link.setBinaryProtocolEnabled(enabled);
+    }
+
+    /**
+     * Longest a batch of queued commands waits for more before it is written, from the next
+     * connect(); 0 sends at once whatever is queued. A command on an idle link never waits.
+     */
+    public void setFlushDeadlineMillis(long millis) {
+        link.setFlushDeadlineMillis(millis);
+    }
+
+    /** Whether the current connection negotiated binary frames rather than text. */
+    public boolean isBinaryProtocol() {
+        return link.isBinaryProtocol();
+    }
+
+    /**
+     * Binary frames that may await the robot's ack at once, from the next connect(); 8 by
+     * default. Keep it within the firmware's serial buffer; 0 turns flow control off.
+     */
+    public void setAckWindow(int frames) {
+        link.setAckWindow(frames);
+    }
+
+    /** How long a frame may wait for its ack before it is resent; 250 ms by default. */
+    public void setAckTimeoutMillis(long millis) {
+        link.setAckTimeoutMillis(millis);
+    }
+
+    /**
+     * Whether the robot is behind and commands are held back until it acks; a UI repeating
+     * a command while a button is held can skip repeats meanwhile.
+     */
+    public boolean isBackpressured() {
+        return link.isBackpressured();
+    }
+
+    // ========== HEAD STREAM ==========
+
+    /**
+     * Starts sending the head target set by setHeadTarget() 50 times a second, smoothed, for
+     * continuous steering from a drag pad. Targets the robot can't keep up with are skipped,
+     * never queued, and the head holds still while nothing changes. The stream outlives
+     * connections: while there is none it waits, and it sends the head position afresh to each
+     * new one. It needs firmware that speaks binary frames; on a text link nothing is sent.
+     */
+    public void startHeadStream() {
+        headStream.start();
+    }
+
+    public void stopHeadStream() {
+        headStream.stop();
+    }
+
+    /**
+     * Where the head should point, -1 to 1 on each axis, + is right / up; cheap enough to call
+     * on every touch event. Sent by the head stream, not by this call.
+     */
+    public void setHeadTarget(float x, float y) {
+        headStream.setTarget(x, y);
+    }
+
+    // ========== LATENCY ==========
+
+    /**
+     * The robot echoed a command; echoes arrive in the order the commands were sent. Echoes on
+     * the link itself are already counted by its reader thread.
+     */
+    public void onCommandEchoed() {
+        link.onCommandEchoed();
+    }
+
+    /** Per-stage command latency histograms (UI, queue, socket write, firmware ack). */
+    public CommandLatency getLatency() {
+        return link.getLatency();
+    }
+
+    /** Logs p50/p95/p99 of every latency stage, and how deep the send queue got. */
+    public void dumpLatency() {
+        Log.i(TAG, "Command latency over " + link.getLatency().getCommandCount() + " commands\n"
+                + link.summary());
+    }
+
+    // ========== TELEMETRY ==========
+
+    /**
+     * Head position, battery and ack count as last reported by the robot. Poll it from the UI
+     * with a reused snapshot: getTelemetry().read(snapshot) neither blocks nor allocates.
+     */
+    public RobotTelemetry getTelemetry() {
+        return link.getTelemetry();
+    }
+
+    // ========== SEND QUEUE ==========
+
+    /** Commands waiting for the writer thread. */
+    public int getQueueDepth() {
+        return link.getQueue().getDepth();
+    }
+
+    /** Deepest the send queue has been; near capacity means the link can't keep up. */
+    public int getQueueHighWaterMark() {
+        return link.getQueue().getHighWaterMark();
+    }
+
+    /** Commands dropped because the send queue was full. */
+    public long getDroppedCommandCount() {
+        return link.getQueue().getDroppedCount();
+    }
+
+    /** Expression and head commands merged into one already queued. */
+    public long getCoalescedCommandCount() {
+        return link.getQueue().getCoalescedCount();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+// CanvasFaceSurface - FaceSurface backed by an Android Canvas
+// One Paint carries the current fill or stroke; shapes come from the shared ShapeCache
+package com.example.buddyrobot;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+final class CanvasFaceSurface implements FaceSurface {
+
+    private final ShapeCache shapes;
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF rect = new RectF();
+    private final Path quad = new Path();
+    private Canvas canvas;
+
+    CanvasFaceSurface(ShapeCache shapes) {
+        this.shapes = shapes;
+        paint.setStrokeCap(Paint.Cap.ROUND);
+    }
+
+    /** Canvas the following calls draw to; set before every frame. */
+    void setCanvas(Canvas canvas) {
+        this.canvas = canvas;
+    }
+
+    @Override
+    public void save() {
+        canvas.save();
+    }
+
+    @Override
+    public void restore() {
+        canvas.restore();
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        canvas.translate(dx, dy);
+    }
+
+    @Override
+    public void rotate(float degrees, float px, float py) {
+        canvas.rotate(degrees, px, py);
+    }
+
+    @Override
+    public void scale(float sx, float sy, float px, float py) {
+        canvas.scale(sx, sy, px, py);
+    }
+
+    @Override
+    public void setFill(int color) {
+        paint.setStyle(Paint.Style.FILL);
+        paint.setColor(color);
+    }
+
+    @Override
+    public void setStroke(int color, float width) {
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setColor(color);
+        paint.setStrokeWidth(width);
+    }
+
+    @Override
+    public void drawOval(float left, float top, float right, float bottom) {
+        canvas.drawOval(left, top, right, bottom, paint);
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius) {
+        canvas.drawCircle(cx, cy, radius, paint);
+    }
+
+    @Override
+    public void drawArc(float left, float top, float right, float bottom,
+                        float startAngle, float sweepAngle) {
+        rect.set(left, top, right, bottom);
+        canvas.drawArc(rect, startAngle, sweepAngle, false, paint);
+    }
+
+    @Override
+    public void drawLine(float x0, float y0, float x1, float y1) {
+        canvas.drawLine(x0, y0, x1, y1, paint);
+    }
+
+    @Override
+    public void drawRoundRect(float left, float top, float right, float bottom, float radius) {
+        canvas.drawRoundRect(left, top, right, bottom, radius, radius, paint);
+    }
+
+    @Override
+    public void drawQuad(float x0, float y0, float cx, float cy, float x1, float y1) {
+        quad.rewind();
+        quad.moveTo(x0, y0);
+        quad.quadTo(cx, cy, x1, y1);
+        canvas.drawPath(quad, paint);
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, float textSize) {
+        paint.setTextSize(textSize);
+        canvas.drawText(text, x, y, paint);
+    }
+
+    @Override
+    public void drawShape(int shape, float x, float y, float size, float degrees) {
+        shapes.draw(canvas, shape, x, y, size, degrees, paint);
+    }
+}
@@ -0,0 +1,152 @@
+// CommandBatcher - moves queued commands onto the link, each batch in a single write()
+// A command and its newline (or its binary frame) are assembled in one buffer, so the radio
+// never sends a packet holding a lone '\n'. When commands queue up faster than they are sent,
+// the ones waiting are packed into the same write, and the batch may wait up to the flush
+// deadline for more; a command arriving on an idle link is written at once. On a binary link
+// with a SendWindow, commands are only taken while the window has room.
+package com.example.buddyrobot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+final class CommandBatcher {
+
+    /** Bytes per write; several commands, and well under the RFCOMM frame size. */
+    static final int BATCH_BYTES = 512;
+
+    private final CommandQueue queue;
+    private final CommandLatency latency;
+    private final boolean binary;
+    private final long flushDeadlineNanos;
+    private final int maxEncodedBytes;      // worst case for one command in the batch
+    private final SendWindow window;        // null: no flow control
+
+    private final CommandQueue.Entry entry;
+    private final byte[] batch = new byte[BATCH_BYTES];
+    private final int[] seqs;
+    private int length;
+    private int count;
+
+    // Metrics, written by the sending thread only
+    private volatile long writes = 0;
+    private volatile long commands = 0;
+
+    /**
+     * @param binary             send FrameCodec frames instead of newline-terminated text
+     * @param flushDeadlineNanos longest a batch waits for further commands once it has two;
+     *                           0 only packs commands that are already queued
+     */
+    CommandBatcher(CommandQueue queue, CommandLatency latency, int maxCommandBytes,
+                   boolean binary, long flushDeadlineNanos) {
+        this(queue, latency, maxCommandBytes, binary, flushDeadlineNanos, null);
+    }
+
+    /** @param window frames awaiting acks, or null to send without flow control; binary only */
+    CommandBatcher(CommandQueue queue, CommandLatency latency, int maxCommandBytes,
+                   boolean binary, long flushDeadlineNanos, SendWindow window) {
+        if (window != null && !binary) {
+            throw new IllegalArgumentException("Text commands carry no seq to acknowledge");
+        }
+        this.maxEncodedBytes = binary ? FrameCodec.MAX_FRAME : maxCommandBytes + 1;
+        if (maxEncodedBytes > BATCH_BYTES) {
+            throw new IllegalArgumentException("maxCommandBytes too large for a batch: "
+                    + maxCommandBytes);
+        }
+        this.queue = queue;
+        this.latency = latency;
+        this.binary = binary;
+        this.flushDeadlineNanos = Math.max(0, flushDeadlineNanos);
+        this.window = window;
+        this.entry = new CommandQueue.Entry(maxCommandBytes);
+        this.seqs = new int[BATCH_BYTES];       // every command takes at least its newline
+    }
+
+    /**
+     * Waits for the next command and writes it, together with any that can join it, to out.
+     * With a window, this may instead only resend frames whose ack is overdue.
+     *
+     * @return false once the queue is closed
+     * @throws IOException also when the robot stops acknowledging frames
+     */
+    boolean writeBatch(OutputStream out) throws IOException, InterruptedException {
+        if (window == null) {
+            if (!queue.take(entry)) return false;
+        } else {
+            if (!awaitWindow(out)) return false;
+            long wait = window.nanosUntilOverdue(System.nanoTime());
+            boolean taken = wait == Long.MAX_VALUE ? queue.take(entry) : queue.poll(entry, wait);
+            if (!taken) return queue.isOpen(); // an ack is overdue; resent on the next call
+        }
+        length = 0;
+        count = 0;
+        append();
+
+        // Pack what is already waiting; only a link under load lingers for more
+        long deadline = System.nanoTime() + flushDeadlineNanos;
+        while (BATCH_BYTES - length >= maxEncodedBytes && (window == null || window.room() > 0)) {
+            long wait = count > 1 ? deadline - System.nanoTime() : 0;
+            if (!queue.poll(entry, Math.max(0, wait))) break;
+            append();
+        }
+        if (!queue.isOpen()) return false; // disconnected meanwhile; the batch is discarded
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            latency.onWriteStarted(seqs[i], start);
+        }
+        out.write(batch, 0, length);
+        long end = System.nanoTime();
+        if (window != null) window.onWritten(end);
+        for (int i = 0; i < count; i++) {
+            latency.onWriteCompleted(seqs[i], end);
+        }
+        writes++;
+        commands += count;
+        return true;
+    }
+
+    // Resends frames whose ack is overdue, and waits while the window is full
+    private boolean awaitWindow(OutputStream out) throws IOException, InterruptedException {
+        while (queue.isOpen() && window.isOpen()) {
+            int resend = window.takeOverdue(System.nanoTime());
+            if (resend > 0) {
+                out.write(window.getResendBuffer(), 0, resend);
+                writes++;
+            }
+            if (window.awaitRoom()) return queue.isOpen();
+        }
+        return false;
+    }
+
+    private void append() {
+        if (window != null) {
+            // Wire seqs are the window's own, contiguous so the robot can spot a lost frame
+            length += window.add(entry, batch, length);
+        } else if (binary) {
+            // Frame seq is the latency seq mod 256, the same as its CommandLatency slot
+            length += FrameCodec.encode(entry.bytes, entry.length, entry.seq, batch, length);
+        } else {
+            System.arraycopy(entry.bytes, 0, batch, length, entry.length);
+            length += entry.length;
+            batch[length++] = '\n';
+        }
+        seqs[count++] = entry.seq;
+    }
+
+    // ========== METRICS ==========
+
+    /** write() calls made so far; each is at least one packet on the radio. */
+    long getWriteCount() {
+        return writes;
+    }
+
+    long getCommandCount() {
+        return commands;
+    }
+
+    /** Mean commands per write(); 1 on an idle link, higher when commands queue up. */
+    float getCommandsPerWrite() {
+        long w = writes;
+        return w == 0 ? 0f : commands / (float) w;
+    }
+}
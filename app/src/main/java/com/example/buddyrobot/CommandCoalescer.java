@@ -0,0 +1,343 @@
+// CommandCoalescer - latest-wins slots for the expression and head commands waiting to be sent
+// The robot only cares about the newest expression and the net head movement, so a queued
+// EXPR is replaced by a newer one, HEAD moves add up into one delta per axis and HEAD:CENTER
+// drops the moves queued before it. A delta goes out as one counted move ("HEAD:LEFT:3") only
+// when the link's firmware understands it (binary frames); text firmware gets single steps,
+// at most maxSteps per axis, so a burst of taps doesn't keep the head moving long after.
+// An absolute target ("HEAD:POS:pan:tilt") drops queued moves too and is itself replaced by
+// a newer one, so a stream of targets never queues more than the freshest. Commands may be
+// framed as "<...>".
+// Not thread-safe; CommandQueue calls it under its own lock.
+package com.example.buddyrobot;
+
+final class CommandCoalescer {
+
+    static final long EMPTY = Long.MAX_VALUE;
+
+    private static final String EXPR = "EXPR:";
+    private static final String HEAD = "HEAD:";
+    private static final String POS = "POS:";
+    private static final String[] DIRECTIONS = {"LEFT", "RIGHT", "UP", "DOWN", "CENTER"};
+    private static final int LEFT = 0, RIGHT = 1, UP = 2, DOWN = 3, CENTER = 4;
+
+    // Pending expression, stored encoded; order is when it was first queued
+    private final byte[] expression;
+    private int expressionLength;
+    private int expressionSeq;
+    private long expressionOrder = EMPTY;
+
+    // Pending head movement: an optional centre or absolute target, then the net move on each
+    // axis
+    private boolean center;
+    private boolean target;
+    private int targetPan, targetTilt;  // degrees, + is right / up
+    private int dx, dy;                 // + is RIGHT / UP
+    private int centerSeq, targetSeq, xSeq, ySeq;   // newest tap behind each part
+    private boolean headFramed;
+    private boolean countedMoves = false;
+    private long headOrder = EMPTY;
+    private final int maxSteps;         // single steps pending per axis at most
+
+    private long coalesced = 0;
+
+    CommandCoalescer(int maxCommandBytes, int maxSteps) {
+        if (maxSteps <= 0) throw new IllegalArgumentException("maxSteps must be positive");
+        expression = new byte[maxCommandBytes];
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Takes command into a slot if it is an expression or head command.
+     *
+     * @param order position in the queue, for sending slots in arrival order
+     * @return false if command is some other command and belongs in the FIFO
+     */
+    boolean offer(CharSequence command, int seq, long order) {
+        boolean framed = isFramed(command);
+        int start = framed ? 1 : 0;
+        int end = command.length() - (framed ? 1 : 0);
+
+        if (startsWith(command, start, end, EXPR)) {
+            if (expressionOrder != EMPTY) {
+                coalesced++;
+            } else {
+                expressionOrder = order;
+            }
+            expressionLength = CommandCodec.encode(command, expression, 0);
+            expressionSeq = seq;
+            return true;
+        }
+        if (!startsWith(command, start, end, HEAD)) return false;
+
+        int nameStart = start + HEAD.length();
+        if (startsWith(command, nameStart, end, POS)) {
+            long pair = parseTarget(command, nameStart + POS.length(), end);
+            if (pair < 0) return false;
+            offerTarget((short) (pair >>> 16), (short) pair, framed, seq, order);
+            return true;
+        }
+        int direction = -1;
+        int nameEnd = end;
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            String name = DIRECTIONS[i];
+            if (startsWith(command, nameStart, end, name)) {
+                direction = i;
+                nameEnd = nameStart + name.length();
+                break;
+            }
+        }
+        int steps = parseSteps(command, nameEnd, end);
+        if (direction < 0 || steps <= 0 || (direction == CENTER && nameEnd != end)) return false;
+
+        boolean pending = headOrder != EMPTY;
+        if (direction == CENTER) {
+            if (pending) coalesced++;
+            center = true;
+            centerSeq = seq;
+            target = false;
+            dx = 0;
+            dy = 0;
+        } else {
+            if (pending) coalesced++;
+            switch (direction) {
+                case LEFT:
+                    dx -= steps;
+                    xSeq = seq;
+                    break;
+                case RIGHT:
+                    dx += steps;
+                    xSeq = seq;
+                    break;
+                case UP:
+                    dy += steps;
+                    ySeq = seq;
+                    break;
+                default:
+                    dy -= steps;
+                    ySeq = seq;
+                    break;
+            }
+            if (!countedMoves) limitSteps();
+        }
+        headFramed = framed;
+        if (!pending) headOrder = order;
+        if (!center && !target && dx == 0 && dy == 0) headOrder = EMPTY; // moves cancelled out
+        return true;
+    }
+
+    /**
+     * Takes an absolute head target, already parsed, in place of any pending head command;
+     * the same as offering "HEAD:POS:pan:tilt" but without the text.
+     */
+    void offerTarget(int pan, int tilt, boolean framed, int seq, long order) {
+        boolean pending = headOrder != EMPTY;
+        if (pending) coalesced++;
+        center = false;
+        target = true;
+        targetPan = pan;
+        targetTilt = tilt;
+        targetSeq = seq;
+        dx = 0;
+        dy = 0;
+        headFramed = framed;
+        if (!pending) headOrder = order;
+    }
+
+    /**
+     * Whether a net move goes out as one "HEAD:LEFT:3" or, for firmware that only knows single
+     * steps, as three "HEAD:LEFT"s; single steps by default.
+     */
+    void setCountedMoves(boolean counted) {
+        countedMoves = counted;
+        if (!counted) limitSteps();
+    }
+
+    // Steps beyond maxSteps are dropped; the head then goes as far as the queue would have
+    // let single taps take it
+    private void limitSteps() {
+        dx = Math.max(-maxSteps, Math.min(maxSteps, dx));
+        dy = Math.max(-maxSteps, Math.min(maxSteps, dy));
+    }
+
+    /** Queue order of the earliest pending slot, or EMPTY. */
+    long nextOrder() {
+        return Math.min(expressionOrder, headOrder);
+    }
+
+    /** Number of commands the pending slots will still send. */
+    int depth() {
+        int moves = countedMoves ? (dx != 0 ? 1 : 0) + (dy != 0 ? 1 : 0)
+                : Math.abs(dx) + Math.abs(dy);
+        return (expressionOrder != EMPTY ? 1 : 0) + (center || target ? 1 : 0) + moves;
+    }
+
+    /**
+     * Writes the earliest pending command into out; call only when nextOrder() is not EMPTY.
+     * Of a move split into single steps only the last carries the tap's seq, the others
+     * CommandLatency.NO_SEQ, so the move is timed once.
+     */
+    void take(CommandQueue.Entry out) {
+        if (expressionOrder <= headOrder) {
+            System.arraycopy(expression, 0, out.bytes, 0, expressionLength);
+            out.length = expressionLength;
+            out.seq = expressionSeq;
+            expressionOrder = EMPTY;
+            return;
+        }
+        if (center) {
+            out.length = encodeHead(out.bytes, CENTER, 1);
+            out.seq = centerSeq;
+            center = false;
+        } else if (target) {
+            out.length = CommandCodec.encodeHeadTarget(targetPan, targetTilt, headFramed,
+                    out.bytes, 0);
+            out.seq = targetSeq;
+            target = false;
+        } else if (dx != 0) {
+            int steps = countedMoves ? Math.abs(dx) : 1;
+            out.length = encodeHead(out.bytes, dx < 0 ? LEFT : RIGHT, steps);
+            dx -= dx < 0 ? -steps : steps;
+            out.seq = dx == 0 ? xSeq : CommandLatency.NO_SEQ;
+        } else {
+            int steps = countedMoves ? Math.abs(dy) : 1;
+            out.length = encodeHead(out.bytes, dy > 0 ? UP : DOWN, steps);
+            dy -= dy < 0 ? -steps : steps;
+            out.seq = dy == 0 ? ySeq : CommandLatency.NO_SEQ;
+        }
+        if (!center && !target && dx == 0 && dy == 0) headOrder = EMPTY;
+    }
+
+    /** Commands folded into an already queued one instead of being sent separately. */
+    long getCoalescedCount() {
+        return coalesced;
+    }
+
+    void resetMetrics() {
+        coalesced = 0;
+    }
+
+    void clear() {
+        expressionOrder = EMPTY;
+        headOrder = EMPTY;
+        center = false;
+        target = false;
+        dx = 0;
+        dy = 0;
+    }
+
+    // ========== TEXT ==========
+
+    // "HEAD:LEFT" for one step, "HEAD:LEFT:3" for several (countedMoves only), framed like the
+    // last head command
+    private int encodeHead(byte[] out, int direction, int steps) {
+        int n = 0;
+        if (headFramed) out[n++] = '<';
+        n = CommandCodec.putAscii(HEAD, out, n);
+        n = CommandCodec.putAscii(DIRECTIONS[direction], out, n);
+        if (steps > 1) {
+            out[n++] = ':';
+            n = CommandCodec.putDecimal(steps, out, n);
+        }
+        if (headFramed) out[n++] = '>';
+        return n;
+    }
+
+    // Parsers for commands as text (here and RobotState) and as ASCII bytes (FrameCodec)
+
+    static boolean isFramed(CharSequence command) {
+        int length = command.length();
+        return length >= 2 && command.charAt(0) == '<' && command.charAt(length - 1) == '>';
+    }
+
+    static boolean startsWith(CharSequence s, int start, int end, String prefix) {
+        if (end - start < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s.charAt(start + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    static boolean startsWith(byte[] s, int start, int end, String prefix) {
+        if (end - start < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s[start + i] != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // "pan:tilt" in signed 16-bit degrees as pan << 16 | tilt (unsigned halves), or -1
+    static long parseTarget(CharSequence s, int start, int end) {
+        long pair = 0;
+        int at = start;
+        for (int field = 0; field < 2; field++) {
+            boolean negative = at < end && s.charAt(at) == '-';
+            if (negative) at++;
+            int digits = 0;
+            int value = 0;
+            for (; at < end && s.charAt(at) != ':'; at++) {
+                char c = s.charAt(at);
+                if (c < '0' || c > '9' || ++digits > 5) return -1;
+                value = value * 10 + (c - '0');
+            }
+            if (digits == 0) return -1;
+            if (negative) value = -value;
+            if (value != (short) value) return -1;
+            pair = pair << 16 | (value & 0xFFFF);
+            if (field == 0) {
+                if (at == end) return -1;
+                at++;   // the ':' between pan and tilt
+            }
+        }
+        return at == end ? pair : -1;
+    }
+
+    static long parseTarget(byte[] s, int start, int end) {
+        long pair = 0;
+        int at = start;
+        for (int field = 0; field < 2; field++) {
+            boolean negative = at < end && s[at] == '-';
+            if (negative) at++;
+            int digits = 0;
+            int value = 0;
+            for (; at < end && s[at] != ':'; at++) {
+                byte c = s[at];
+                if (c < '0' || c > '9' || ++digits > 5) return -1;
+                value = value * 10 + (c - '0');
+            }
+            if (digits == 0) return -1;
+            if (negative) value = -value;
+            if (value != (short) value) return -1;
+            pair = pair << 16 | (value & 0xFFFF);
+            if (field == 0) {
+                if (at == end) return -1;
+                at++;   // the ':' between pan and tilt
+            }
+        }
+        return at == end ? pair : -1;
+    }
+
+    // Nothing after the direction is one step; ":n" is n steps; anything else is not ours
+    static int parseSteps(CharSequence s, int start, int end) {
+        if (start == end) return 1;
+        if (s.charAt(start) != ':' || end - start > 4) return -1;
+        int steps = 0;
+        for (int i = start + 1; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            steps = steps * 10 + (c - '0');
+        }
+        return end - start > 1 ? steps : -1;
+    }
+
+    static int parseSteps(byte[] s, int start, int end) {
+        if (start == end) return 1;
+        if (s[start] != ':' || end - start > 4) return -1;
+        int steps = 0;
+        for (int i = start + 1; i < end; i++) {
+            byte c = s[i];
+            if (c < '0' || c > '9') return -1;
+            steps = steps * 10 + (c - '0');
+        }
+        return end - start > 1 ? steps : -1;
+    }
+}
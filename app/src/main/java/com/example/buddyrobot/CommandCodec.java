@@ -0,0 +1,92 @@
+// CommandCodec - turns text commands ("EXPR:HAPPY", "HEAD:LEFT") into the bytes sent to the robot
+// Commands are ASCII; encoding into a caller-owned buffer avoids a String.getBytes() per send,
+// and head targets streamed many times a second are written from numbers without a String
+package com.example.buddyrobot;
+
+final class CommandCodec {
+
+    private CommandCodec() {
+    }
+
+    /**
+     * Writes command as ASCII into out starting at offset. Characters outside ASCII, which
+     * the robot firmware cannot parse anyway, are sent as '?'.
+     *
+     * @return number of bytes written
+     * @throws IndexOutOfBoundsException if out has no room for the whole command
+     */
+    static int encode(CharSequence command, byte[] out, int offset) {
+        int length = command.length();
+        if (offset < 0 || length > out.length - offset) {
+            throw new IndexOutOfBoundsException(
+                    "Command of " + length + " bytes does not fit at " + offset);
+        }
+        for (int i = 0; i < length; i++) {
+            char c = command.charAt(i);
+            out[offset + i] = c < 0x80 ? (byte) c : (byte) '?';
+        }
+        return length;
+    }
+
+    /** Longest head target command, "<HEAD:POS:-32768:-32768>". */
+    static final int MAX_HEAD_TARGET_BYTES = 24;
+
+    private static final String HEAD_POS = "HEAD:POS:";
+
+    /**
+     * Writes the absolute head target "HEAD:POS:pan:tilt", framed as "<...>" if asked, into
+     * out starting at offset. Degrees from centre, + is right / up; see FrameCodec.
+     *
+     * @return number of bytes written
+     * @throws IllegalArgumentException if pan or tilt is outside the signed 16-bit range
+     * @throws IndexOutOfBoundsException if out has no room for the whole command
+     */
+    static int encodeHeadTarget(int pan, int tilt, boolean framed, byte[] out, int offset) {
+        if (pan != (short) pan || tilt != (short) tilt) {
+            throw new IllegalArgumentException("Head target out of range: " + pan + ", " + tilt);
+        }
+        if (offset < 0 || out.length - offset < MAX_HEAD_TARGET_BYTES) {
+            throw new IndexOutOfBoundsException(
+                    "Head target of up to " + MAX_HEAD_TARGET_BYTES + " bytes does not fit at "
+                            + offset);
+        }
+        int n = offset;
+        if (framed) out[n++] = '<';
+        n = putAscii(HEAD_POS, out, n);
+        n = putDecimal(pan, out, n);
+        out[n++] = ':';
+        n = putDecimal(tilt, out, n);
+        if (framed) out[n++] = '>';
+        return n - offset;
+    }
+
+    // ========== WRITERS ==========
+    // For commands built from numbers here and in CommandCoalescer; the caller checked the room
+
+    /** Writes s, which must be ASCII, at out[n]; returns the offset after it. */
+    static int putAscii(String s, byte[] out, int n) {
+        for (int i = 0; i < s.length(); i++) {
+            out[n++] = (byte) s.charAt(i);
+        }
+        return n;
+    }
+
+    /**
+     * Writes value in decimal, with a leading '-' if negative, at out[n]; returns the offset
+     * after it. Not for Integer.MIN_VALUE.
+     */
+    static int putDecimal(int value, byte[] out, int n) {
+        if (value < 0) {
+            out[n++] = '-';
+            value = -value;
+        }
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out[n++] = (byte) ('0' + value / divisor % 10);
+        }
+        return n;
+    }
+}
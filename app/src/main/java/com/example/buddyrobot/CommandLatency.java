@@ -0,0 +1,194 @@
+// CommandLatency - timestamps each robot command from tap to acknowledgement
+// Every command gets a sequence number and a preallocated timestamp slot; each stage it
+// reaches feeds the histogram for the time since the previous stage, so slow UI, a slow
+// socket and slow firmware show up separately. Stages may be recorded from any thread.
+package com.example.buddyrobot;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class CommandLatency {
+
+    /** Measured intervals; each is recorded when its end timestamp arrives. */
+    public enum Stage {
+        UI("tap->enqueue"),
+        QUEUE("enqueue->write"),
+        WRITE("write"),
+        ACK("write->ack"),
+        SEND("tap->written"),
+        ROUND_TRIP("tap->ack");
+
+        final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    // Timestamp columns of a slot
+    private static final int TAP = 0;
+    private static final int ENQUEUE = 1;
+    private static final int WRITE_START = 2;
+    private static final int WRITE_END = 3;
+    private static final int STAMPS = 4;
+
+    // Commands in flight beyond this many are overwritten and their later stages dropped.
+    // A binary frame's 8-bit seq names the slot, see onAckFrame
+    static final int SLOTS = 256;
+
+    /** Seq of a command with nothing to time; every stage ignores it. */
+    static final int NO_SEQ = -1;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final AtomicLongArray stamps = new AtomicLongArray(SLOTS * STAMPS);
+    private final AtomicIntegerArray slotSeq = new AtomicIntegerArray(SLOTS);
+    private final AtomicInteger nextSeq = new AtomicInteger();
+
+    // Seqs in the order they went out, for onAckInOrder: commands coalesced or dropped in the
+    // queue are never written and never echoed. Pushed by the link's single writer thread;
+    // past SLOTS unacknowledged the oldest are forgotten
+    private final AtomicIntegerArray written = new AtomicIntegerArray(SLOTS);
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong ackedCount = new AtomicLong();
+
+    public CommandLatency() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < SLOTS; i++) {
+            slotSeq.set(i, NO_SEQ);
+        }
+    }
+
+    // ========== RECORDING ==========
+
+    /**
+     * Starts tracking a command tapped at tapNanos (System.nanoTime() time base).
+     *
+     * @return the command's sequence number, for the later stages
+     */
+    int begin(long tapNanos) {
+        int seq = nextSeq.getAndIncrement() & Integer.MAX_VALUE;
+        int slot = seq % SLOTS;
+        slotSeq.set(slot, NO_SEQ); // invalidate while the slot is rewritten
+        stamps.set(slot * STAMPS + TAP, tapNanos);
+        stamps.set(slot * STAMPS + ENQUEUE, 0);
+        stamps.set(slot * STAMPS + WRITE_START, 0);
+        stamps.set(slot * STAMPS + WRITE_END, 0);
+        slotSeq.set(slot, seq);
+        return seq;
+    }
+
+    void onEnqueued(int seq, long nanos) {
+        stamp(seq, ENQUEUE, TAP, Stage.UI, nanos);
+    }
+
+    void onWriteStarted(int seq, long nanos) {
+        stamp(seq, WRITE_START, ENQUEUE, Stage.QUEUE, nanos);
+    }
+
+    /** Command seq is on the wire. Called by one writer thread at a time, in write order. */
+    void onWriteCompleted(int seq, long nanos) {
+        if (stamp(seq, WRITE_END, WRITE_START, Stage.WRITE, nanos)) {
+            record(seq, TAP, Stage.SEND, nanos);
+        }
+        long n = writtenCount.get();
+        written.set((int) (n % SLOTS), seq);
+        writtenCount.set(n + 1);
+    }
+
+    /** The robot acknowledged command seq. Late acks for overwritten slots are ignored. */
+    void onAck(int seq, long nanos) {
+        if (record(seq, WRITE_END, Stage.ACK, nanos)) {
+            record(seq, TAP, Stage.ROUND_TRIP, nanos);
+        }
+    }
+
+    /**
+     * Acknowledges the oldest written command not yet acknowledged, for links whose echo
+     * carries no sequence number; the firmware handles commands in order.
+     *
+     * @return the acknowledged sequence number, or -1 if none was outstanding or the echo was
+     *         for a command written with NO_SEQ
+     */
+    int onAckInOrder(long nanos) {
+        while (true) {
+            long acked = ackedCount.get();
+            long total = writtenCount.get();
+            if (acked >= total) return -1;
+            long oldest = Math.max(acked, total - SLOTS);
+            int seq = written.get((int) (oldest % SLOTS));
+            // Re-check: the writer may have lapped the entry while it was read
+            if (writtenCount.get() - oldest > SLOTS) continue;
+            if (ackedCount.compareAndSet(acked, oldest + 1)) {
+                onAck(seq, nanos);
+                return seq;
+            }
+        }
+    }
+
+    /**
+     * The robot acknowledged the command sent in a binary frame with frameSeq. Frame seqs are
+     * the sequence number modulo 256, which is also the command's slot.
+     *
+     * @return the acknowledged sequence number, or -1 if its slot was reused meanwhile
+     */
+    int onAckFrame(int frameSeq, long nanos) {
+        int seq = slotSeq.get((frameSeq & 0xFF) % SLOTS);
+        if (seq == NO_SEQ || !record(seq, WRITE_END, Stage.ACK, nanos)) return -1;
+        record(seq, TAP, Stage.ROUND_TRIP, nanos);
+        return seq;
+    }
+
+    // Sets column at for seq and records the time since column from
+    private boolean stamp(int seq, int at, int from, Stage stage, long nanos) {
+        if (seq == NO_SEQ) return false;
+        int slot = seq % SLOTS;
+        if (slotSeq.get(slot) != seq) return false;
+        stamps.set(slot * STAMPS + at, nanos);
+        return record(seq, from, stage, nanos);
+    }
+
+    private boolean record(int seq, int from, Stage stage, long nanos) {
+        if (seq == NO_SEQ) return false;
+        int slot = seq % SLOTS;
+        long start = stamps.get(slot * STAMPS + from);
+        // Re-check: the slot may have been reused while it was read
+        if (start == 0 || slotSeq.get(slot) != seq) return false;
+        histograms[stage.ordinal()].record(nanos - start);
+        return true;
+    }
+
+    // ========== QUERIES ==========
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /** Commands begun so far. */
+    public int getCommandCount() {
+        return nextSeq.get() & Integer.MAX_VALUE;
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /** One line per stage: count, mean, p50/p95/p99 and max in milliseconds. */
+    public String summary() {
+        StringBuilder out = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = histograms[stage.ordinal()];
+            out.append(String.format(Locale.ROOT,
+                    "%-15s n=%-6d mean=%7.2f p50=%7.2f p95=%7.2f p99=%7.2f max=%7.2f ms%n",
+                    stage.label, h.getCount(), h.getMeanMs(), h.getPercentileMs(0.5f),
+                    h.getPercentileMs(0.95f), h.getPercentileMs(0.99f), h.getMaxMs()));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,262 @@
+// CommandQueue - bounded ring of encoded commands between the UI and the Bluetooth writer thread
+// Slots are allocated once; offer() encodes straight into a slot and never waits on the radio,
+// so a stalled link fills the queue (see OverflowPolicy) instead of freezing the caller.
+// A coalescing queue folds expression and head commands into latest-wins slots (CommandCoalescer).
+package com.example.buddyrobot;
+
+final class CommandQueue {
+
+    /** What offer() does when every slot is taken. */
+    enum OverflowPolicy {
+        /** Overwrite the oldest queued command; the newest intent always gets through. */
+        DROP_OLDEST,
+        /** Refuse the new command; offer() returns false. */
+        DROP_NEWEST
+    }
+
+    /** A dequeued command, owned by the consumer and reused for every take(). */
+    static final class Entry {
+        final byte[] bytes;
+        int length;
+        int seq;
+
+        Entry(int maxCommandBytes) {
+            bytes = new byte[maxCommandBytes];
+        }
+    }
+
+    private final byte[][] slots;
+    private final int[] lengths;
+    private final int[] seqs;
+    private final long[] orders;
+    private final CommandCoalescer coalescer;   // null when every command is queued as-is
+    private final int maxCommandBytes;
+    private final OverflowPolicy policy;
+
+    // Guarded by this
+    private int head = 0;       // next slot to take
+    private int size = 0;
+    private boolean open = true;
+    private long nextOrder = 0;
+
+    // Metrics, guarded by this
+    private long enqueued = 0;
+    private long dropped = 0;
+    private int highWaterMark = 0;
+    private long depthSum = 0;  // depth seen by each offer, for the mean
+
+    CommandQueue(int capacity, int maxCommandBytes, OverflowPolicy policy) {
+        this(capacity, maxCommandBytes, policy, false);
+    }
+
+    CommandQueue(int capacity, int maxCommandBytes, OverflowPolicy policy, boolean coalesce) {
+        if (capacity <= 0 || maxCommandBytes <= 0) {
+            throw new IllegalArgumentException("capacity and maxCommandBytes must be positive");
+        }
+        this.slots = new byte[capacity][maxCommandBytes];
+        this.lengths = new int[capacity];
+        this.seqs = new int[capacity];
+        this.orders = new long[capacity];
+        this.coalescer = coalesce ? new CommandCoalescer(maxCommandBytes, capacity) : null;
+        this.maxCommandBytes = maxCommandBytes;
+        this.policy = policy;
+    }
+
+    /**
+     * Queues command, tagged with seq (see CommandLatency). Never blocks beyond a slot copy.
+     *
+     * @return false if the queue is closed, or full under DROP_NEWEST
+     * @throws IllegalArgumentException if command is longer than maxCommandBytes
+     */
+    synchronized boolean offer(CharSequence command, int seq) {
+        if (command.length() > maxCommandBytes) {
+            throw new IllegalArgumentException("Command longer than " + maxCommandBytes
+                    + " bytes: " + command);
+        }
+        if (!open) return false;
+        depthSum += getDepth();
+        long order = nextOrder++;
+        if (coalescer != null && coalescer.offer(command, seq, order)) {
+            enqueued++;
+            highWaterMark = Math.max(highWaterMark, getDepth());
+            notifyAll();
+            return true;
+        }
+        if (!makeRoom()) return false;
+        int slot = (head + size) % slots.length;
+        lengths[slot] = CommandCodec.encode(command, slots[slot], 0);
+        seqs[slot] = seq;
+        orders[slot] = order;
+        size++;
+        enqueued++;
+        highWaterMark = Math.max(highWaterMark, getDepth());
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Queues the absolute head target "<HEAD:POS:pan:tilt>" without building its text first;
+     * on a coalescing queue it replaces any head command still waiting.
+     *
+     * @return false if the queue is closed, or full under DROP_NEWEST
+     * @throws IllegalArgumentException if pan or tilt is outside the signed 16-bit range, or
+     *                                  the slots are shorter than MAX_HEAD_TARGET_BYTES
+     */
+    synchronized boolean offerHeadTarget(int pan, int tilt, int seq) {
+        if (pan != (short) pan || tilt != (short) tilt) {
+            throw new IllegalArgumentException("Head target out of range: " + pan + ", " + tilt);
+        }
+        if (maxCommandBytes < CommandCodec.MAX_HEAD_TARGET_BYTES) {
+            throw new IllegalArgumentException("Head targets need slots of "
+                    + CommandCodec.MAX_HEAD_TARGET_BYTES + " bytes: " + maxCommandBytes);
+        }
+        if (!open) return false;
+        depthSum += getDepth();
+        long order = nextOrder++;
+        if (coalescer != null) {
+            coalescer.offerTarget(pan, tilt, true, seq, order);
+            enqueued++;
+            highWaterMark = Math.max(highWaterMark, getDepth());
+            notifyAll();
+            return true;
+        }
+        if (!makeRoom()) return false;
+        int slot = (head + size) % slots.length;
+        lengths[slot] = CommandCodec.encodeHeadTarget(pan, tilt, true, slots[slot], 0);
+        seqs[slot] = seq;
+        orders[slot] = order;
+        size++;
+        enqueued++;
+        highWaterMark = Math.max(highWaterMark, getDepth());
+        notifyAll();
+        return true;
+    }
+
+    // Frees a slot for a new command by the overflow policy; false if the command is refused
+    private boolean makeRoom() {
+        if (size < slots.length) return true;
+        dropped++;
+        if (policy == OverflowPolicy.DROP_NEWEST) return false;
+        head = (head + 1) % slots.length;
+        size--;
+        return true;
+    }
+
+    /**
+     * Waits for the next command and copies it into out.
+     *
+     * @return false once the queue is closed; pending commands are discarded by close()
+     */
+    synchronized boolean take(Entry out) throws InterruptedException {
+        while (open && getDepth() == 0) {
+            wait();
+        }
+        if (!open) return false;
+        next(out);
+        return true;
+    }
+
+    /**
+     * Like take(), but waits at most timeoutNanos; 0 only takes a command already queued.
+     *
+     * @return false if nothing arrived in time or the queue is closed
+     */
+    synchronized boolean poll(Entry out, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        long remaining = timeoutNanos;
+        while (open && getDepth() == 0 && remaining > 0) {
+            wait(remaining / 1_000_000L, (int) (remaining % 1_000_000L));
+            remaining = deadline - System.nanoTime();
+        }
+        if (!open || getDepth() == 0) return false;
+        next(out);
+        return true;
+    }
+
+    // Moves the next command into out; the caller holds the lock and checked getDepth() > 0
+    private void next(Entry out) {
+        // Coalesced slots keep the place of the first command folded into them
+        if (coalescer != null && (size == 0 || coalescer.nextOrder() < orders[head])) {
+            coalescer.take(out);
+            return;
+        }
+        int length = lengths[head];
+        System.arraycopy(slots[head], 0, out.bytes, 0, length);
+        out.length = length;
+        out.seq = seqs[head];
+        head = (head + 1) % slots.length;
+        size--;
+    }
+
+    /** Accepts commands again, e.g. for a new connection; the queue starts empty. */
+    synchronized void open() {
+        head = 0;
+        size = 0;
+        open = true;
+        if (coalescer != null) coalescer.clear();
+    }
+
+    /** Discards pending commands and wakes the consumer; offer() fails until reopened. */
+    synchronized void close() {
+        open = false;
+        size = 0;
+        if (coalescer != null) coalescer.clear();
+        notifyAll();
+    }
+
+    synchronized boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Whether merged head moves go out counted ("HEAD:LEFT:3"), which only binary-frame
+     * firmware understands, or as single steps; single steps by default. Set per connection.
+     */
+    synchronized void setCountedHeadMoves(boolean counted) {
+        if (coalescer != null) coalescer.setCountedMoves(counted);
+    }
+
+    // ========== METRICS ==========
+
+    /** Commands still to be sent, counting each pending coalesced command once (or each step). */
+    synchronized int getDepth() {
+        return size + (coalescer != null ? coalescer.depth() : 0);
+    }
+
+    int getCapacity() {
+        return slots.length;
+    }
+
+    /** Deepest the queue has been since the metrics were reset. */
+    synchronized int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /** Mean number of commands already waiting when a command was offered. */
+    synchronized float getAverageDepth() {
+        long offers = enqueued + (policy == OverflowPolicy.DROP_NEWEST ? dropped : 0);
+        return offers == 0 ? 0f : depthSum / (float) offers;
+    }
+
+    synchronized long getEnqueuedCount() {
+        return enqueued;
+    }
+
+    /** Commands lost to the overflow policy (refused, or overwritten before being sent). */
+    synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /** Commands folded into a queued expression or head command instead of sent on their own. */
+    synchronized long getCoalescedCount() {
+        return coalescer != null ? coalescer.getCoalescedCount() : 0;
+    }
+
+    synchronized void resetMetrics() {
+        enqueued = 0;
+        dropped = 0;
+        highWaterMark = getDepth();
+        depthSum = 0;
+        if (coalescer != null) coalescer.resetMetrics();
+    }
+}
@@ -0,0 +1,128 @@
+// Easing - shared easing curves for face poses and blinks (t in 0..1)
+// Curves that need pow/sin or a root solve are sampled once into tables
+package com.example.buddyrobot;
+
+final class Easing {
+
+    /** Largest absolute error of {@link #easeOutElastic} against the closed form. */
+    static final float ELASTIC_MAX_ERROR = 1e-4f;
+
+    /** Largest absolute error of a {@link CubicBezier} against an exact solve. */
+    static final float BEZIER_MAX_ERROR = 1e-4f;
+
+    private static final int TABLE_SIZE = 2048;
+
+    // Elastic oscillates hard near t = 0, so it gets a table rather than pow + sin per call
+    private static final float[] ELASTIC_TABLE = sample(new Curve() {
+        @Override
+        public double at(double t) {
+            return elastic(t);
+        }
+    });
+
+    /** Material "standard" curve, for motion that starts and ends at rest. */
+    static final CubicBezier STANDARD = new CubicBezier(0.4f, 0f, 0.2f, 1f);
+
+    /** Material "decelerate" curve, for motion that enters at full speed. */
+    static final CubicBezier DECELERATE = new CubicBezier(0f, 0f, 0.2f, 1f);
+
+    private Easing() {
+    }
+
+    // Quadratic and bounce are a handful of float multiplies, cheaper than any lookup
+
+    static float easeInOutQuad(float t) {
+        return t < 0.5f ? 2f * t * t : -1f + (4f - 2f * t) * t;
+    }
+
+    static float easeOutElastic(float t) {
+        if (t <= 0f) return ELASTIC_TABLE[0];
+        return lookup(ELASTIC_TABLE, t);
+    }
+
+    static float easeOutBounce(float t) {
+        if (t < 1f / 2.75f) {
+            return 7.5625f * t * t;
+        } else if (t < 2f / 2.75f) {
+            t -= 1.5f / 2.75f;
+            return 7.5625f * t * t + 0.75f;
+        } else if (t < 2.5f / 2.75f) {
+            t -= 2.25f / 2.75f;
+            return 7.5625f * t * t + 0.9375f;
+        } else {
+            t -= 2.625f / 2.75f;
+            return 7.5625f * t * t + 0.984375f;
+        }
+    }
+
+    /** Closed form of easeOutElastic, used to build its table. */
+    static double elastic(double t) {
+        double p = 0.3;
+        return Math.pow(2, -10 * t) * Math.sin((t - p / 4) * (2 * Math.PI) / p) + 1;
+    }
+
+    // ========== TABLES ==========
+
+    private interface Curve {
+        double at(double t);
+    }
+
+    private static float[] sample(Curve curve) {
+        float[] table = new float[TABLE_SIZE + 1];
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            table[i] = (float) curve.at(i / (double) TABLE_SIZE);
+        }
+        return table;
+    }
+
+    // Linear interpolation in a table spanning t = 0..1; t must not be negative
+    private static float lookup(float[] table, float t) {
+        float index = t * TABLE_SIZE;
+        int i = (int) index;
+        if (i >= TABLE_SIZE) return table[TABLE_SIZE];
+        float a = table[i];
+        return a + (table[i + 1] - a) * (index - i);
+    }
+
+    /**
+     * CSS-style cubic-bezier(x1, y1, x2, y2) easing. The curve is solved for y at evenly
+     * spaced x once, at construction, so {@link #at} is a single table lookup.
+     */
+    static final class CubicBezier {
+
+        private final float[] table;
+
+        CubicBezier(final float x1, final float y1, final float x2, final float y2) {
+            if (x1 < 0f || x1 > 1f || x2 < 0f || x2 > 1f) {
+                throw new IllegalArgumentException("x control points must be in 0..1");
+            }
+            table = sample(new Curve() {
+                @Override
+                public double at(double x) {
+                    return solve(x1, y1, x2, y2, x);
+                }
+            });
+        }
+
+        float at(float x) {
+            if (x <= 0f) return 0f;
+            if (x >= 1f) return 1f;
+            return lookup(table, x);
+        }
+
+        /** y of the curve at x, found by bisection on the monotonic x(t). */
+        static double solve(double x1, double y1, double x2, double y2, double x) {
+            double lo = 0, hi = 1, t = x;
+            for (int i = 0; i < 50; i++) {
+                t = (lo + hi) / 2;
+                if (bezier(x1, x2, t) < x) lo = t; else hi = t;
+            }
+            return bezier(y1, y2, t);
+        }
+
+        private static double bezier(double p1, double p2, double t) {
+            double u = 1 - t;
+            return 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t;
+        }
+    }
+}
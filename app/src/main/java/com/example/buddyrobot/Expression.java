@@ -0,0 +1,61 @@
+// Expression - every face BUDDY can show, plus the names it accepts for each
+package com.example.buddyrobot;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public enum Expression {
+    NEUTRAL,
+    HAPPY,
+    SAD,
+    SURPRISE("SURPRISED"),
+    ANGRY,
+    LOVE,
+    SLEEPY,
+    EXCITED,
+    CONFUSED,
+    COOL,
+    SHY,
+    THINKING("THINK"),
+    LAUGHING("LAUGH");
+
+    private static final Map<String, Expression> BY_NAME = new HashMap<>();
+
+    static {
+        for (Expression expression : values()) {
+            BY_NAME.put(expression.name(), expression);
+            for (String alias : expression.aliases) {
+                BY_NAME.put(alias, expression);
+            }
+        }
+    }
+
+    private final String[] aliases;
+    private final String command;
+
+    Expression(String... aliases) {
+        this.aliases = aliases;
+        this.command = "EXPR:" + name();
+    }
+
+    /** Command sent to the robot for this expression, e.g. "EXPR:HAPPY". */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * Resolves a name or alias (case-insensitive), e.g. "laugh" -> LAUGHING.
+     *
+     * @throws IllegalArgumentException if the name is not a known expression
+     */
+    public static Expression parse(String name) {
+        Expression expression = name != null
+                ? BY_NAME.get(name.trim().toUpperCase(Locale.ROOT))
+                : null;
+        if (expression == null) {
+            throw new IllegalArgumentException("Unknown expression: " + name);
+        }
+        return expression;
+    }
+}
@@ -0,0 +1,188 @@
+// FaceAnimator - advances a FaceState from frame timestamps
+// Animation cycle, transitions, blinks, gaze, eye darts and idle motion; randomness comes
+// from the Random it is given, so a seeded animator replays the same timeline
+package com.example.buddyrobot;
+
+import java.util.Random;
+
+final class FaceAnimator {
+
+    // Timings (ms) - previously implied by the 16 ms / 50 ms Handler cadences
+    static final long ANIM_CYCLE_MS = 3000;
+    static final long TRANSITION_MS = 800;   // was 50 frames of +0.02
+    private static final long BLINK_HALF_MS = 120;   // close, then open again
+    private static final long IDLE_TILT_MS = 5000;
+    private static final float MICRO_TICK_MS = 50f;  // decay constants below are per 50 ms
+    private static final float GAZE_DECAY = 0.95f;
+    private static final float DART_DECAY = 0.9f;
+    private static final long NANOS_PER_MS = 1000000L;
+
+    private final FaceState state;
+    private final Random random;
+
+    // Expression Management
+    private long transitionStartNanos = 0;
+
+    // Blink Animation
+    private boolean isBlinking = false;
+    private long blinkStartNanos = 0;
+    private long nextBlinkCheckNanos = 0;
+
+    // Animation variables
+    private long animStartTime = 0;
+    private long lastFrameNanos = 0;
+
+    // Micro-expression variables
+    private long nextGazeChange = 0;
+    private long nextDartTime = 0;
+    private float gazeDecay = 1f;
+    private float dartDecay = 1f;
+    private int decayFrameStep = 0;     // frame duration the decay factors were computed for
+
+    // Idle behavior variables
+    private long idleStartTime = 0;
+    private long nextIdleTiltTime = 0;
+
+    /** Animates state on the clock that startNanos comes from (System.nanoTime() on device). */
+    FaceAnimator(FaceState state, Random random, long startNanos) {
+        this.state = state;
+        this.random = random;
+        animStartTime = startNanos;
+        idleStartTime = startNanos;
+        nextBlinkCheckNanos = startNanos + 2000 * NANOS_PER_MS;
+        nextDartTime = startNanos + randomDelayNanos(2000, 3000);
+        nextGazeChange = startNanos + randomDelayNanos(4000, 4000);
+        nextIdleTiltTime = startNanos + IDLE_TILT_MS * NANOS_PER_MS;
+    }
+
+    /** Forgets the previous frame time, e.g. after the frame clock was paused. */
+    void resetFrameDelta() {
+        lastFrameNanos = 0;
+    }
+
+    /** How long the face has gone without an expression change. */
+    long idleNanos(long nowNanos) {
+        return nowNanos - idleStartTime;
+    }
+
+    // Advances every animation from a single frame timestamp
+    void advance(long frameTimeNanos) {
+        float frameMs = lastFrameNanos == 0 ? 0f
+                : (frameTimeNanos - lastFrameNanos) / (float) NANOS_PER_MS;
+        lastFrameNanos = frameTimeNanos;
+
+        long elapsed = (frameTimeNanos - animStartTime) / NANOS_PER_MS;
+        state.animProgress = (elapsed % ANIM_CYCLE_MS) / (float) ANIM_CYCLE_MS;
+
+        applyIdleBehavior(frameTimeNanos);
+        updateMicroExpressions(frameTimeNanos, frameMs);
+        updateBlink(frameTimeNanos);
+
+        // Handle smooth transitions
+        if (state.transitioning && state.transitionProgress < 1f) {
+            state.transitionProgress = Math.max(0f, (frameTimeNanos - transitionStartNanos)
+                    / (float) (TRANSITION_MS * NANOS_PER_MS));
+            if (state.transitionProgress >= 1f) {
+                state.transitionProgress = 1f;
+                state.transitioning = false;
+                state.expression = state.targetExpression;
+            }
+        }
+    }
+
+    /** Starts a transition to expression at nowNanos; no-op when it is already showing. */
+    void setExpression(Expression expression, long nowNanos) {
+        if (expression != state.expression) {
+            state.targetExpression = expression;
+            state.transitionProgress = 0f;
+            state.transitioning = true;
+            transitionStartNanos = nowNanos;
+            idleStartTime = nowNanos; // Reset idle timer
+        }
+    }
+
+    void setExpressionImmediate(Expression expression) {
+        state.expression = expression;
+        state.targetExpression = expression;
+        state.transitionProgress = 1f;
+        state.transitioning = false;
+    }
+
+    // ========== IDLE BEHAVIOR ==========
+    private void applyIdleBehavior(long frameTimeNanos) {
+        long idleTime = (frameTimeNanos - idleStartTime) / NANOS_PER_MS;
+
+        // Gentle head bobbing every 3 seconds
+        state.idleBobbing = FastMath.sin(FastMath.cycle(idleTime, 6000) * FastMath.TWO_PI) * 2f;
+
+        // Occasional small head tilt
+        if (frameTimeNanos >= nextIdleTiltTime) {
+            state.idleHeadTilt = (random.nextFloat() - 0.5f) * 4f;
+            nextIdleTiltTime = frameTimeNanos + IDLE_TILT_MS * NANOS_PER_MS;
+        }
+    }
+
+    // ========== MICRO-EXPRESSIONS ==========
+    private void updateMicroExpressions(long frameTimeNanos, float frameMs) {
+        float eyeSize = FaceRenderer.EYE_SIZE;
+
+        // Random eye darts (saccades) - every 2-5 seconds
+        if (frameTimeNanos >= nextDartTime) {
+            state.eyeDartX = (random.nextFloat() - 0.5f) * 8f;
+            state.eyeDartY = (random.nextFloat() - 0.5f) * 6f;
+            nextDartTime = frameTimeNanos + randomDelayNanos(2000, 3000);
+        }
+
+        // Smooth gaze changes - every 4-8 seconds
+        if (frameTimeNanos >= nextGazeChange) {
+            state.gazeX = (random.nextFloat() - 0.5f) * eyeSize * 0.3f;
+            state.gazeY = (random.nextFloat() - 0.5f) * eyeSize * 0.3f;
+            nextGazeChange = frameTimeNanos + randomDelayNanos(4000, 4000);
+        }
+
+        // Decay to center, scaled by elapsed time so the rate is independent of the frame rate.
+        // Frame durations barely change, so the factors are only recomputed per 0.1 ms step.
+        int frameStep = Math.round(frameMs * 10f);
+        if (frameStep != decayFrameStep) {
+            float ticks = frameStep / (10f * MICRO_TICK_MS);
+            gazeDecay = (float) Math.pow(GAZE_DECAY, ticks);
+            dartDecay = (float) Math.pow(DART_DECAY, ticks); // Quick decay
+            decayFrameStep = frameStep;
+        }
+        state.gazeX *= gazeDecay;
+        state.gazeY *= gazeDecay;
+        state.eyeDartX *= dartDecay;
+        state.eyeDartY *= dartDecay;
+
+        // Angry shake jitter
+        state.jitter = (random.nextFloat() - 0.5f) * 2f;
+    }
+
+    private void updateBlink(long frameTimeNanos) {
+        if (!isBlinking && frameTimeNanos >= nextBlinkCheckNanos) {
+            if (random.nextFloat() < 0.3f) {
+                isBlinking = true;
+                blinkStartNanos = frameTimeNanos;
+            }
+            nextBlinkCheckNanos = frameTimeNanos + randomDelayNanos(2500, 2000);
+        }
+
+        if (isBlinking) {
+            float progress = (frameTimeNanos - blinkStartNanos)
+                    / (float) (BLINK_HALF_MS * NANOS_PER_MS); // Faster blink
+
+            if (progress < 1f) {
+                state.blinkProgress = Easing.easeInOutQuad(progress);
+            } else if (progress < 2f) {
+                state.blinkProgress = Easing.easeInOutQuad(2f - progress);
+            } else {
+                state.blinkProgress = 0f;
+                isBlinking = false;
+            }
+        }
+    }
+
+    private long randomDelayNanos(long minMs, long spreadMs) {
+        return (minMs + (long) (random.nextFloat() * spreadMs)) * NANOS_PER_MS;
+    }
+}
@@ -0,0 +1,103 @@
+// FaceParams - one frame of a face as a flat parameter vector (pixels, degrees, 0..1 weights)
+// Poses fill it per expression; a transition interpolates two of them and the face is drawn once
+package com.example.buddyrobot;
+
+final class FaceParams {
+
+    // Body motion, applied around the view centre as translate -> rotate -> scale
+    float offsetX, offsetY;
+    float rotation;
+    float scaleX, scaleY;
+    float idleWeight;          // share of the idle bob / head tilt that is added on top
+
+    // Open eyes: filled ovals centred on each eye position
+    float eyeWidth, eyeHeight;
+    float eyeShiftY;           // left eye moves down, right eye up (confused)
+    float rightEyeScale;
+    float eyeAlpha;
+    float blinkWeight;
+
+    // Pupils / highlights, offsets from the eye centre
+    float pupilRadius;
+    float pupilOffsetX, pupilOffsetY;
+    float pupilAlpha;
+    float gazeWeight;          // share of gaze and eye darts applied to the pupils
+
+    // Closed or smiling eyes: stroked arcs around the eye centre
+    float lidRadiusX, lidTop, lidBottom;
+    float lidStartAngle, lidSweepAngle;
+    float lidStroke;
+    float lidAlpha;
+
+    float browAlpha;
+
+    // Mouth: stroked elliptical arc (a full sweep gives the round "O")
+    float mouthCenterX, mouthCenterY;
+    float mouthRadiusX, mouthRadiusY;
+    float mouthStartAngle, mouthSweepAngle;
+    float mouthStroke;
+    float mouthAlpha;
+
+    // Blush circles, mirrored around the vertical centre line; alpha is 0..255
+    float blushX, blushY, blushRadius;
+    float blush2X, blush2Y, blush2Radius;
+    float blushAlpha;
+
+    void set(FaceParams p) {
+        lerp(p, p, 0f);
+    }
+
+    /** Sets every parameter to from + (to - from) * t. */
+    void lerp(FaceParams from, FaceParams to, float t) {
+        offsetX = mix(from.offsetX, to.offsetX, t);
+        offsetY = mix(from.offsetY, to.offsetY, t);
+        rotation = mix(from.rotation, to.rotation, t);
+        scaleX = mix(from.scaleX, to.scaleX, t);
+        scaleY = mix(from.scaleY, to.scaleY, t);
+        idleWeight = mix(from.idleWeight, to.idleWeight, t);
+
+        eyeWidth = mix(from.eyeWidth, to.eyeWidth, t);
+        eyeHeight = mix(from.eyeHeight, to.eyeHeight, t);
+        eyeShiftY = mix(from.eyeShiftY, to.eyeShiftY, t);
+        rightEyeScale = mix(from.rightEyeScale, to.rightEyeScale, t);
+        eyeAlpha = mix(from.eyeAlpha, to.eyeAlpha, t);
+        blinkWeight = mix(from.blinkWeight, to.blinkWeight, t);
+
+        pupilRadius = mix(from.pupilRadius, to.pupilRadius, t);
+        pupilOffsetX = mix(from.pupilOffsetX, to.pupilOffsetX, t);
+        pupilOffsetY = mix(from.pupilOffsetY, to.pupilOffsetY, t);
+        pupilAlpha = mix(from.pupilAlpha, to.pupilAlpha, t);
+        gazeWeight = mix(from.gazeWeight, to.gazeWeight, t);
+
+        lidRadiusX = mix(from.lidRadiusX, to.lidRadiusX, t);
+        lidTop = mix(from.lidTop, to.lidTop, t);
+        lidBottom = mix(from.lidBottom, to.lidBottom, t);
+        lidStartAngle = mix(from.lidStartAngle, to.lidStartAngle, t);
+        lidSweepAngle = mix(from.lidSweepAngle, to.lidSweepAngle, t);
+        lidStroke = mix(from.lidStroke, to.lidStroke, t);
+        lidAlpha = mix(from.lidAlpha, to.lidAlpha, t);
+
+        browAlpha = mix(from.browAlpha, to.browAlpha, t);
+
+        mouthCenterX = mix(from.mouthCenterX, to.mouthCenterX, t);
+        mouthCenterY = mix(from.mouthCenterY, to.mouthCenterY, t);
+        mouthRadiusX = mix(from.mouthRadiusX, to.mouthRadiusX, t);
+        mouthRadiusY = mix(from.mouthRadiusY, to.mouthRadiusY, t);
+        mouthStartAngle = mix(from.mouthStartAngle, to.mouthStartAngle, t);
+        mouthSweepAngle = mix(from.mouthSweepAngle, to.mouthSweepAngle, t);
+        mouthStroke = mix(from.mouthStroke, to.mouthStroke, t);
+        mouthAlpha = mix(from.mouthAlpha, to.mouthAlpha, t);
+
+        blushX = mix(from.blushX, to.blushX, t);
+        blushY = mix(from.blushY, to.blushY, t);
+        blushRadius = mix(from.blushRadius, to.blushRadius, t);
+        blush2X = mix(from.blush2X, to.blush2X, t);
+        blush2Y = mix(from.blush2Y, to.blush2Y, t);
+        blush2Radius = mix(from.blush2Radius, to.blush2Radius, t);
+        blushAlpha = mix(from.blushAlpha, to.blushAlpha, t);
+    }
+
+    private static float mix(float from, float to, float t) {
+        return from + (to - from) * t;
+    }
+}
@@ -0,0 +1,346 @@
+// FacePoses - per-expression parameter vectors, evaluated at a point in the 3 s animation cycle
+// Eye geometry is relative to each eye centre; mouth, blush and motion are in view pixels
+package com.example.buddyrobot;
+
+final class FacePoses {
+
+    private static final float PI = (float) Math.PI;
+
+    // Feature bits, used to split a face into cached static geometry and per-frame drawing
+    static final int EYES = 1;
+    static final int PUPILS = 1 << 1;
+    static final int LIDS = 1 << 2;
+    static final int BROWS = 1 << 3;
+    static final int MOUTH = 1 << 4;
+    static final int BLUSH = 1 << 5;
+    static final int ALL_FEATURES = EYES | PUPILS | LIDS | BROWS | MOUTH | BLUSH;
+
+    private FacePoses() {
+    }
+
+    /**
+     * Features whose shape changes from frame to frame in a steady (non-transitioning) pose.
+     * Everything else only moves with the body transform.
+     */
+    static int animatedFeatures(Expression expression) {
+        switch (expression) {
+            case NEUTRAL: return EYES | PUPILS;    // blink, gaze and eye darts
+            case HAPPY: return BLUSH;
+            case SURPRISE: return MOUTH;
+            case CONFUSED: return EYES | PUPILS;
+            case SHY: return PUPILS | BLUSH;
+            case THINKING: return PUPILS;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Fills out with the pose of expression at animProgress (0..1) for a view of the given size.
+     * jitter (-1..1) is the per-frame random shake; pass 0 for a deterministic pose.
+     */
+    static void evaluate(Expression expression, float animProgress, float jitter,
+                         float width, float height, float eyeSize, FaceParams out) {
+        setDefaults(out, width, height, eyeSize);
+        switch (expression) {
+            case HAPPY: happy(out, animProgress, width, height, eyeSize); break;
+            case SAD: sad(out, animProgress, width, height, eyeSize); break;
+            case SURPRISE: surprise(out, animProgress, width, height, eyeSize); break;
+            case ANGRY: angry(out, animProgress, jitter, width, height, eyeSize); break;
+            case LOVE: love(out, animProgress, width, height); break;
+            case SLEEPY: sleepy(out, animProgress, width, eyeSize); break;
+            case EXCITED: excited(out, animProgress, width, height); break;
+            case CONFUSED: confused(out, animProgress); break;
+            case COOL: cool(out, animProgress); break;
+            case SHY: shy(out, animProgress, width, height, eyeSize); break;
+            case THINKING: thinking(out, animProgress, width, eyeSize); break;
+            case LAUGHING: laughing(out, animProgress, width, height, eyeSize); break;
+            default: neutral(out, animProgress); break;
+        }
+    }
+
+    // Open eyes, flat mouth, no blush. Hidden features keep a neutral shape so they fade in cleanly.
+    private static void setDefaults(FaceParams p, float width, float height, float eyeSize) {
+        p.offsetX = 0f;
+        p.offsetY = 0f;
+        p.rotation = 0f;
+        p.scaleX = 1f;
+        p.scaleY = 1f;
+        p.idleWeight = 0f;
+
+        p.eyeWidth = eyeSize;
+        p.eyeHeight = eyeSize;
+        p.eyeShiftY = 0f;
+        p.rightEyeScale = 1f;
+        p.eyeAlpha = 1f;
+        p.blinkWeight = 0f;
+
+        p.pupilRadius = eyeSize * 0.3f;
+        p.pupilOffsetX = 0f;
+        p.pupilOffsetY = 0f;
+        p.pupilAlpha = 1f;
+        p.gazeWeight = 0f;
+
+        p.lidRadiusX = eyeSize / 2;
+        p.lidTop = -0.5f;
+        p.lidBottom = 0.5f;
+        p.lidStartAngle = 180f;
+        p.lidSweepAngle = -180f;
+        p.lidStroke = 14f;
+        p.lidAlpha = 0f;
+
+        p.browAlpha = 0f;
+
+        setMouthLine(p, width, height, 0.15f, 12f);
+
+        p.blushX = width * 0.2f;
+        p.blushY = height * 0.58f;
+        p.blushRadius = 32f;
+        p.blush2X = width * 0.25f;
+        p.blush2Y = height * 0.6f;
+        p.blush2Radius = 0f;
+        p.blushAlpha = 0f;
+    }
+
+    private static void neutral(FaceParams p, float anim) {
+        // Enhanced breathing with easing
+        float breathPhase = anim * PI * 2;
+        float breathEase = (1f - FastMath.cos(breathPhase)) * 0.5f;
+        float breathScale = 1f + breathEase * 0.012f; // Subtle
+        p.offsetY = FastMath.sin(breathPhase) * 1.5f;
+        p.scaleX = breathScale;
+        p.scaleY = breathScale;
+        p.idleWeight = 1f;
+
+        p.blinkWeight = 1f;
+        p.gazeWeight = 1f;
+    }
+
+    private static void happy(FaceParams p, float anim, float width, float height, float eyeSize) {
+        // Elastic bounce with anticipation
+        float bouncePhase = anim * PI * 2;
+        float bounceOffset = Easing.easeOutBounce(Math.abs(FastMath.sin(bouncePhase))) * 10f;
+        float anticipation = FastMath.sin(bouncePhase - PI / 4) * 2f;
+        float gentleScale = 1f + FastMath.sin(bouncePhase) * 0.035f;
+        p.offsetY = -bounceOffset + anticipation;
+        p.scaleX = gentleScale;
+        p.scaleY = gentleScale;
+
+        // Smiling eye arcs
+        p.eyeAlpha = 0f;
+        setLid(p, eyeSize / 2.2f, -eyeSize / 4, eyeSize / 3, 190f, 160f, 16f);
+
+        setMouthArc(p, width, height, 0.32f, 0.55f, 0.68f, 0.78f, 20f, 140f, 14f);
+
+        // Pulsing blush with smooth animation
+        float pulseScale = 1f + Easing.easeInOutQuad(Math.abs(FastMath.sin(anim * PI * 3))) * 0.15f;
+        p.blushRadius = 32f * pulseScale;
+        p.blushAlpha = 140f;
+    }
+
+    private static void sad(FaceParams p, float anim, float width, float height, float eyeSize) {
+        float droopOffset = FastMath.sin(anim * PI) * 4f;
+        float slowBreathe = FastMath.sin(anim * PI * 0.5f) * 3f;
+        p.offsetY = droopOffset + slowBreathe;
+
+        float sadEyeSize = eyeSize * 0.75f;
+        p.eyeWidth = sadEyeSize;
+        p.eyeHeight = sadEyeSize * 2 / 3;
+        p.pupilRadius = sadEyeSize * 0.2f;
+        p.pupilOffsetY = sadEyeSize / 4;
+
+        setMouthArc(p, width, height, 0.36f, 0.65f, 0.64f, 0.82f, 15f, 150f, 12f);
+    }
+
+    private static void surprise(FaceParams p, float anim, float width, float height, float eyeSize) {
+        // Pop effect with elastic easing
+        float popPhase = anim * PI * 3;
+        float gentlePop = 1.03f + Easing.easeOutElastic(Math.abs(FastMath.sin(popPhase))) * 0.05f;
+        p.scaleX = gentlePop;
+        p.scaleY = gentlePop;
+
+        float wideEyeSize = eyeSize * 1.35f;
+        p.eyeWidth = wideEyeSize;
+        p.eyeHeight = wideEyeSize;
+        p.pupilRadius = wideEyeSize * 0.35f;
+        p.pupilOffsetX = -wideEyeSize / 6;
+        p.pupilOffsetY = -wideEyeSize / 6;
+
+        // Animated mouth "O"
+        float mouthPulse = 1f + FastMath.sin(anim * PI * 4) * 0.1f;
+        p.mouthCenterX = width * 0.5f;
+        p.mouthCenterY = height * 0.72f;
+        p.mouthRadiusX = 35f * mouthPulse;
+        p.mouthRadiusY = 35f * mouthPulse;
+        p.mouthStartAngle = 20f;
+        p.mouthSweepAngle = 360f;
+        p.mouthStroke = 13f;
+    }
+
+    private static void angry(FaceParams p, float anim, float jitter,
+                              float width, float height, float eyeSize) {
+        // Intense shake with random jitter
+        float shakePhase = anim * PI * 6;
+        float gentleShake = FastMath.sin(shakePhase) * 5f;
+        p.offsetX = gentleShake + jitter;
+
+        p.browAlpha = 1f;
+        p.eyeWidth = eyeSize / 2.5f * 2;
+        p.eyeHeight = eyeSize / 2;
+        p.pupilAlpha = 0f;
+
+        setMouthArc(p, width, height, 0.35f, 0.62f, 0.65f, 0.78f, 15f, 150f, 12f);
+    }
+
+    private static void love(FaceParams p, float anim, float width, float height) {
+        // Floating with sway
+        p.offsetX = FastMath.sin(anim * PI) * 6f;
+        p.offsetY = FastMath.sin(anim * PI * 1.5f) * 10f;
+
+        // Heart eyes are drawn as accents
+        p.eyeAlpha = 0f;
+
+        setMouthArc(p, width, height, 0.32f, 0.55f, 0.68f, 0.75f, 20f, 140f, 14f);
+    }
+
+    private static void sleepy(FaceParams p, float anim, float width, float eyeSize) {
+        // Drowsy head movements
+        p.offsetY = FastMath.sin(anim * PI * 0.6f) * 10f;
+        p.rotation = FastMath.sin(anim * PI * 0.8f) * 6f;
+
+        // Drowsy eyes
+        p.eyeAlpha = 0f;
+        setLid(p, eyeSize / 2, -5f, 5f, 180f, -180f, 14f);
+
+        p.mouthRadiusX = width * 0.12f;
+    }
+
+    private static void excited(FaceParams p, float anim, float width, float height) {
+        // Energetic bouncing with squash/stretch
+        float bouncePhase = anim * PI * 4;
+        float bounce = Math.abs(FastMath.sin(bouncePhase));
+        float squashStretch = 1f - bounce * 0.1f;
+        p.offsetY = -bounce * 18f;
+        p.scaleX = 1f / squashStretch;
+        p.scaleY = squashStretch;
+
+        // Star eyes are drawn as accents
+        p.eyeAlpha = 0f;
+
+        setMouthArc(p, width, height, 0.28f, 0.5f, 0.72f, 0.82f, 18f, 144f, 16f);
+    }
+
+    private static void confused(FaceParams p, float anim) {
+        // Head tilting with confusion
+        p.rotation = FastMath.sin(anim * PI * 2) * 15f;
+
+        // Asymmetric eyes
+        float eyeShift = FastMath.sin(anim * PI * 2.5f) * 10f;
+        p.eyeShiftY = eyeShift * 0.2f;
+        p.rightEyeScale = 1f / 1.4f;
+        p.pupilRadius = p.eyeWidth * 0.25f;
+
+        // Wavy mouth is drawn as an accent
+        p.mouthAlpha = 0f;
+    }
+
+    private static void cool(FaceParams p, float anim) {
+        // Smooth swaying
+        p.offsetX = FastMath.sin(anim * PI) * 7f;
+        p.offsetY = FastMath.sin(anim * PI * 1.5f) * 5f;
+        p.rotation = FastMath.sin(anim * PI * 0.8f) * 3f;
+
+        // Sunglasses and smirk are drawn as accents
+        p.eyeAlpha = 0f;
+        p.mouthAlpha = 0f;
+    }
+
+    private static void shy(FaceParams p, float anim, float width, float height, float eyeSize) {
+        // Nervous swaying
+        p.offsetX = FastMath.sin(anim * PI * 1.5f) * 10f;
+        p.offsetY = Math.abs(FastMath.sin(anim * PI * 0.8f)) * 6f;
+        p.rotation = FastMath.sin(anim * PI) * 4f;
+
+        // Shy eyes looking away
+        float pupilOffset = eyeSize * 0.2f;
+        float pupilWiggle = FastMath.sin(anim * PI * 2) * 4f;
+        p.pupilRadius = eyeSize * 0.22f;
+        p.pupilOffsetX = pupilOffset + pupilWiggle;
+        p.pupilOffsetY = pupilOffset;
+
+        setMouthArc(p, width, height, 0.38f, 0.6f, 0.62f, 0.75f, 20f, 140f, 12f);
+
+        // Big pulsing blush
+        float pulseScale = 1f + FastMath.sin(anim * PI * 4) * 0.25f;
+        p.blushX = width * 0.18f;
+        p.blushY = height * 0.55f;
+        p.blushRadius = 48f * pulseScale;
+        p.blush2Radius = 24f * pulseScale * 0.8f;
+        p.blushAlpha = 200f;
+    }
+
+    private static void thinking(FaceParams p, float anim, float width, float eyeSize) {
+        // Thoughtful tilting
+        p.offsetY = FastMath.sin(anim * PI * 0.8f) * 4f;
+        p.rotation = FastMath.sin(anim * PI * 1.2f) * 8f;
+
+        p.eyeHeight = eyeSize / 2.5f * 2;
+        p.pupilRadius = eyeSize * 0.2f;
+        p.pupilOffsetX = FastMath.sin(anim * PI * 1.5f) * 6f;
+        p.pupilOffsetY = -eyeSize / 6;
+
+        p.mouthRadiusX = width * 0.12f;
+    }
+
+    private static void laughing(FaceParams p, float anim, float width, float height, float eyeSize) {
+        // Intense laughing shake
+        p.offsetX = FastMath.sin(anim * PI * 8) * 4f;
+        p.offsetY = -Math.abs(FastMath.sin(anim * PI * 5)) * 15f;
+
+        // Eyes closed with joy
+        p.eyeAlpha = 0f;
+        setLid(p, eyeSize / 2, -7f, 7f, 180f, -180f, 18f);
+
+        // Big open mouth
+        setMouthArc(p, width, height, 0.25f, 0.5f, 0.75f, 0.85f, 15f, 150f, 16f);
+    }
+
+    // ========== HELPERS ==========
+
+    private static void setLid(FaceParams p, float radiusX, float top, float bottom,
+                               float startAngle, float sweepAngle, float stroke) {
+        p.lidRadiusX = radiusX;
+        p.lidTop = top;
+        p.lidBottom = bottom;
+        p.lidStartAngle = startAngle;
+        p.lidSweepAngle = sweepAngle;
+        p.lidStroke = stroke;
+        p.lidAlpha = 1f;
+    }
+
+    // Mouth arc inside the rectangle given as fractions of the view
+    private static void setMouthArc(FaceParams p, float width, float height,
+                                    float left, float top, float right, float bottom,
+                                    float startAngle, float sweepAngle, float stroke) {
+        p.mouthCenterX = width * (left + right) / 2;
+        p.mouthCenterY = height * (top + bottom) / 2;
+        p.mouthRadiusX = width * (right - left) / 2;
+        p.mouthRadiusY = height * (bottom - top) / 2;
+        p.mouthStartAngle = startAngle;
+        p.mouthSweepAngle = sweepAngle;
+        p.mouthStroke = stroke;
+        p.mouthAlpha = 1f;
+    }
+
+    // Straight mouth at 70% height: the lower half of a one pixel tall ellipse
+    private static void setMouthLine(FaceParams p, float width, float height,
+                                     float halfWidth, float stroke) {
+        p.mouthCenterX = width * 0.5f;
+        p.mouthCenterY = height * 0.7f;
+        p.mouthRadiusX = width * halfWidth;
+        p.mouthRadiusY = 0.5f;
+        p.mouthStartAngle = 0f;
+        p.mouthSweepAngle = 180f;
+        p.mouthStroke = stroke;
+        p.mouthAlpha = 1f;
+    }
+}
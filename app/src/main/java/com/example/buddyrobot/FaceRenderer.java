@@ -0,0 +1,562 @@
+// FaceRenderer - draws BUDDY's face for a FaceState onto any FaceSurface
+// Holds no clock and no Android types, so frames can be rendered headlessly and in JVM tests
+package com.example.buddyrobot;
+
+final class FaceRenderer {
+
+    // Pink color theme
+    private static final int PRIMARY_COLOR = 0xFFFF6B9D;
+    private static final int ACCENT_COLOR = 0xFFFFB3D9;
+    private static final int DARK_COLOR = 0xFFE85D8A;
+    private static final int WHITE = 0xFFFFFFFF;
+
+    private static final float PI = (float) Math.PI;
+
+    static final float EYE_SIZE = 80f;
+
+    // Below this weight a feature or accent is not drawn at all
+    private static final float MIN_WEIGHT = 0.004f;
+
+    // Eye positions and properties
+    private int width, height;
+    private float leftEyeX, leftEyeY;
+    private float rightEyeX, rightEyeY;
+    private final float eyeSize = EYE_SIZE;
+    private float faceRadius;                      // view centre to corner
+
+    // Face parameters - the pose being drawn, and the two poses a transition blends
+    private final FaceParams face = new FaceParams();
+    private final FaceParams fromPose = new FaceParams();
+    private final FaceParams toPose = new FaceParams();
+    private float blend = 0f; // weight of toPose in face while transitioning
+
+    // Body transform used for drawing; the host may hold it while the face barely moves
+    private float bodyX, bodyY, bodyRotation;
+    private float bodyScaleX = 1f, bodyScaleY = 1f;
+    private final Bounds regionScratch = new Bounds();
+
+    // Expression-specific decorations drawn on top of the parametric face, at 0..1 weight
+    private interface AccentDrawer {
+        void draw(FaceSurface surface, FaceState state, float weight);
+    }
+
+    // Bounds (in face space, before the body transform) an animated accent can reach
+    private interface AccentRegion {
+        void union(Bounds bounds);
+    }
+
+    // Indexed by Expression.ordinal(); null for expressions that are fully parametric.
+    // Static accents never change shape and are recorded into the static layer.
+    // Animated accents without a region always force a full redraw.
+    private final AccentDrawer[] accents = new AccentDrawer[Expression.values().length];
+    private final AccentDrawer[] staticAccents = new AccentDrawer[Expression.values().length];
+    private final AccentRegion[] accentRegions = new AccentRegion[Expression.values().length];
+
+    /** Axis-aligned rectangle in pixels; empty until something is added. */
+    static final class Bounds {
+        float left, top, right, bottom;
+
+        void setEmpty() {
+            left = top = right = bottom = 0f;
+        }
+
+        boolean isEmpty() {
+            return left >= right || top >= bottom;
+        }
+
+        void union(float l, float t, float r, float b) {
+            if (l >= r || t >= b) return;
+            if (isEmpty()) {
+                left = l;
+                top = t;
+                right = r;
+                bottom = b;
+            } else {
+                left = Math.min(left, l);
+                top = Math.min(top, t);
+                right = Math.max(right, r);
+                bottom = Math.max(bottom, b);
+            }
+        }
+    }
+
+    FaceRenderer() {
+        accents[Expression.SAD.ordinal()] = this::drawSadAccents;
+        accents[Expression.LOVE.ordinal()] = this::drawLoveAccents;
+        accents[Expression.SLEEPY.ordinal()] = this::drawSleepyAccents;
+        accents[Expression.EXCITED.ordinal()] = this::drawExcitedAccents;
+        accents[Expression.CONFUSED.ordinal()] = this::drawConfusedAccents;
+        staticAccents[Expression.CONFUSED.ordinal()] = this::drawConfusedMouth;
+        staticAccents[Expression.COOL.ordinal()] = this::drawCoolAccents;
+        accents[Expression.THINKING.ordinal()] = this::drawThinkingAccents;
+        accents[Expression.LAUGHING.ordinal()] = this::drawLaughingAccents;
+        accentRegions[Expression.SAD.ordinal()] = this::unionTearRegion;
+        accentRegions[Expression.EXCITED.ordinal()] = this::unionSparkleRegion;
+        accentRegions[Expression.LAUGHING.ordinal()] = this::unionJoyTearRegion;
+    }
+
+    void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        leftEyeX = width * 0.35f;
+        leftEyeY = height * 0.4f;
+        rightEyeX = width * 0.65f;
+        rightEyeY = height * 0.4f;
+        faceRadius = (float) Math.hypot(width / 2f, height / 2f);
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /** Renders one complete frame of state: evaluate, take the body transform, draw. */
+    void render(FaceSurface surface, FaceState state) {
+        update(state);
+        holdBody(state);
+        draw(surface, state, false);
+    }
+
+    // ========== POSE ==========
+
+    /**
+     * Evaluates the pose for state, blending both poses during a transition so only one
+     * face is drawn. Does not touch the body transform; see {@link #holdBody}.
+     */
+    void update(FaceState state) {
+        if (state.transitioning && state.transitionProgress < 1f) {
+            blend = Easing.easeInOutQuad(state.transitionProgress);
+            FacePoses.evaluate(state.expression, state.animProgress, state.jitter,
+                    width, height, eyeSize, fromPose);
+            FacePoses.evaluate(state.targetExpression, state.animProgress, state.jitter,
+                    width, height, eyeSize, toPose);
+            face.lerp(fromPose, toPose, blend);
+        } else {
+            blend = 0f;
+            FacePoses.evaluate(state.expression, state.animProgress, state.jitter,
+                    width, height, eyeSize, face);
+        }
+    }
+
+    /** The pose evaluated by the last {@link #update}. */
+    FaceParams pose() {
+        return face;
+    }
+
+    float blend() {
+        return blend;
+    }
+
+    /** Takes the body transform of the current pose for drawing. */
+    void holdBody(FaceState state) {
+        bodyX = face.offsetX;
+        bodyY = face.offsetY + state.idleBobbing * face.idleWeight;
+        bodyRotation = face.rotation + state.idleHeadTilt * face.idleWeight;
+        bodyScaleX = face.scaleX;
+        bodyScaleY = face.scaleY;
+    }
+
+    /** Upper bound on how far any pixel of the face moves if the held transform is replaced. */
+    float bodyDisplacement(FaceState state) {
+        float y = face.offsetY + state.idleBobbing * face.idleWeight;
+        float rotation = face.rotation + state.idleHeadTilt * face.idleWeight;
+        return Math.abs(face.offsetX - bodyX) + Math.abs(y - bodyY)
+                + Math.abs(rotation - bodyRotation) * PI / 180f * faceRadius
+                + (Math.abs(face.scaleX - bodyScaleX) + Math.abs(face.scaleY - bodyScaleY)) * faceRadius;
+    }
+
+    float bodyX() {
+        return bodyX;
+    }
+
+    float bodyY() {
+        return bodyY;
+    }
+
+    float bodyRotation() {
+        return bodyRotation;
+    }
+
+    float bodyScaleX() {
+        return bodyScaleX;
+    }
+
+    float bodyScaleY() {
+        return bodyScaleY;
+    }
+
+    // ========== DRAWING ==========
+
+    /**
+     * Draws the face with the held body transform. With animatedOnly set, only what changes
+     * in a steady pose is drawn, for hosts that replay the static part from a cache.
+     */
+    void draw(FaceSurface surface, FaceState state, boolean animatedOnly) {
+        float pivotX = width / 2f;
+        float pivotY = height / 2f;
+        surface.save();
+        surface.translate(bodyX, bodyY);
+        surface.rotate(bodyRotation, pivotX, pivotY);
+        surface.scale(bodyScaleX, bodyScaleY, pivotX, pivotY);
+
+        if (animatedOnly) {
+            drawFace(surface, state, face, FacePoses.animatedFeatures(state.expression));
+        } else {
+            drawFace(surface, state, face, FacePoses.ALL_FEATURES);
+            drawAccents(surface, state, staticAccents, state.expression, 1f - blend);
+            if (blend > 0f) {
+                drawAccents(surface, state, staticAccents, state.targetExpression, blend);
+            }
+        }
+        drawAccents(surface, state, accents, state.expression, 1f - blend);
+        if (blend > 0f) {
+            drawAccents(surface, state, accents, state.targetExpression, blend);
+        }
+
+        surface.restore();
+    }
+
+    /**
+     * Draws the part of expression that never changes shape, untransformed. The current pose
+     * must be the steady pose of expression.
+     */
+    void drawStaticLayer(FaceSurface surface, FaceState state, Expression expression) {
+        drawFace(surface, state, face, ~FacePoses.animatedFeatures(expression));
+        drawAccents(surface, state, staticAccents, expression, 1f);
+    }
+
+    private void drawAccents(FaceSurface surface, FaceState state, AccentDrawer[] table,
+                             Expression expression, float weight) {
+        AccentDrawer accent = table[expression.ordinal()];
+        if (accent != null && weight > MIN_WEIGHT) {
+            accent.draw(surface, state, weight);
+        }
+    }
+
+    // ========== PARAMETRIC FACE ==========
+
+    // Draws the features selected by the FacePoses feature mask
+    private void drawFace(FaceSurface surface, FaceState state, FaceParams p, int features) {
+        float blink = state.blinkProgress * p.blinkWeight;
+        float rightScale = p.rightEyeScale;
+        float leftY = leftEyeY + p.eyeShiftY;
+        float rightY = rightEyeY - p.eyeShiftY;
+
+        // Open eyes
+        if ((features & FacePoses.EYES) != 0 && p.eyeAlpha > MIN_WEIGHT) {
+            float halfW = p.eyeWidth / 2;
+            float halfH = p.eyeHeight * (1 - blink) / 2;
+
+            surface.setFill(withAlpha(PRIMARY_COLOR, alpha(255, p.eyeAlpha)));
+            surface.drawOval(leftEyeX - halfW, leftY - halfH,
+                    leftEyeX + halfW, leftY + halfH);
+            surface.drawOval(rightEyeX - halfW * rightScale, rightY - halfH * rightScale,
+                    rightEyeX + halfW * rightScale, rightY + halfH * rightScale);
+        }
+
+        // Pupils, with micro-movements
+        float pupilAlpha = p.pupilAlpha * p.eyeAlpha;
+        if ((features & FacePoses.PUPILS) != 0 && blink < 0.5f && pupilAlpha > MIN_WEIGHT) {
+            float dx = p.pupilOffsetX + (state.gazeX + state.eyeDartX) * p.gazeWeight;
+            float dy = p.pupilOffsetY + (state.gazeY + state.eyeDartY) * p.gazeWeight;
+            surface.setFill(withAlpha(WHITE, alpha(255, pupilAlpha)));
+            surface.drawCircle(leftEyeX + dx, leftY + dy, p.pupilRadius);
+            surface.drawCircle(rightEyeX + dx * rightScale, rightY + dy * rightScale,
+                    p.pupilRadius * rightScale);
+        }
+
+        // Closed and smiling eyes
+        if ((features & FacePoses.LIDS) != 0 && p.lidAlpha > MIN_WEIGHT) {
+            surface.setStroke(withAlpha(PRIMARY_COLOR, alpha(255, p.lidAlpha)), p.lidStroke);
+            surface.drawArc(leftEyeX - p.lidRadiusX, leftEyeY + p.lidTop,
+                    leftEyeX + p.lidRadiusX, leftEyeY + p.lidBottom,
+                    p.lidStartAngle, p.lidSweepAngle);
+            surface.drawArc(rightEyeX - p.lidRadiusX, rightEyeY + p.lidTop,
+                    rightEyeX + p.lidRadiusX, rightEyeY + p.lidBottom,
+                    p.lidStartAngle, p.lidSweepAngle);
+        }
+
+        // Angry eyebrows with emphasis
+        if ((features & FacePoses.BROWS) != 0 && p.browAlpha > MIN_WEIGHT) {
+            surface.setStroke(withAlpha(DARK_COLOR, alpha(255, p.browAlpha)), 14f);
+            surface.drawLine(leftEyeX - eyeSize/2.5f, leftEyeY - eyeSize/2.5f,
+                    leftEyeX + eyeSize/2.5f, leftEyeY - eyeSize/3.5f);
+            surface.drawLine(rightEyeX - eyeSize/2.5f, rightEyeY - eyeSize/3.5f,
+                    rightEyeX + eyeSize/2.5f, rightEyeY - eyeSize/2.5f);
+        }
+
+        // Mouth
+        if ((features & FacePoses.MOUTH) != 0 && p.mouthAlpha > MIN_WEIGHT) {
+            surface.setStroke(withAlpha(PRIMARY_COLOR, alpha(255, p.mouthAlpha)), p.mouthStroke);
+            surface.drawArc(p.mouthCenterX - p.mouthRadiusX, p.mouthCenterY - p.mouthRadiusY,
+                    p.mouthCenterX + p.mouthRadiusX, p.mouthCenterY + p.mouthRadiusY,
+                    p.mouthStartAngle, p.mouthSweepAngle);
+        }
+
+        // Blush
+        if ((features & FacePoses.BLUSH) != 0 && p.blushAlpha > 1f) {
+            surface.setFill(withAlpha(ACCENT_COLOR, (int) p.blushAlpha));
+            surface.drawCircle(p.blushX, p.blushY, p.blushRadius);
+            surface.drawCircle(width - p.blushX, p.blushY, p.blushRadius);
+            if (p.blush2Radius > 0.5f) {
+                surface.drawCircle(p.blush2X, p.blush2Y, p.blush2Radius);
+                surface.drawCircle(width - p.blush2X, p.blush2Y, p.blush2Radius);
+            }
+        }
+    }
+
+    private static int alpha(int alpha, float weight) {
+        return (int) (alpha * weight);
+    }
+
+    private static int withAlpha(int color, int alpha) {
+        return (color & 0x00FFFFFF) | (alpha << 24);
+    }
+
+    // ========== EXPRESSION ACCENTS ==========
+
+    private void drawSadAccents(FaceSurface surface, FaceState state, float weight) {
+        // Smooth falling tears with physics
+        float tearPhase = state.animProgress * PI * 1.5f;
+        float tearY = Easing.easeInOutQuad(FastMath.sin(tearPhase) * 0.5f + 0.5f) * 30f;
+        surface.setFill(withAlpha(ACCENT_COLOR, alpha(180, weight)));
+
+        surface.drawCircle(leftEyeX - eyeSize/4, leftEyeY + eyeSize/2 + tearY, 10f);
+        surface.drawOval(leftEyeX - eyeSize/4 - 8, leftEyeY + eyeSize/2 + tearY - 3,
+                leftEyeX - eyeSize/4 + 8, leftEyeY + eyeSize/2 + 20 + tearY);
+    }
+
+    private void drawLoveAccents(FaceSurface surface, FaceState state, float weight) {
+        float anim = state.animProgress;
+        float pulseScale = 1f + Easing.easeInOutQuad(Math.abs(FastMath.sin(anim * PI * 2.5f))) * 0.1f;
+
+        // Pulsing hearts for eyes (the pulse is folded into the placement scale)
+        surface.setFill(withAlpha(PRIMARY_COLOR, alpha(255, weight)));
+        surface.drawShape(FaceSurface.SHAPE_HEART, leftEyeX, leftEyeY, eyeSize * 0.7f * pulseScale, 0f);
+        surface.drawShape(FaceSurface.SHAPE_HEART, rightEyeX, rightEyeY, eyeSize * 0.7f * pulseScale, 0f);
+
+        // Orbiting hearts
+        surface.setFill(withAlpha(ACCENT_COLOR, alpha(160, weight)));
+
+        for(int i = 0; i < 3; i++) {
+            float angle = anim * PI * 2 + i * PI * 0.7f;
+            float radius = 50f + i * 12f;
+            float heartX = width * 0.5f + FastMath.cos(angle) * radius;
+            float heartY = height * 0.35f + FastMath.sin(angle) * radius * 0.6f;
+            float size = 12f + FastMath.sin(angle) * 3f;
+
+            surface.drawShape(FaceSurface.SHAPE_HEART, heartX, heartY, size, 0f);
+        }
+    }
+
+    private void drawSleepyAccents(FaceSurface surface, FaceState state, float weight) {
+        // Floating Z's with fade
+        float zzzPhase = state.animProgress * PI * 2;
+        float zzzBase = FastMath.sin(zzzPhase) * 15f;
+
+        int alpha1 = (int)(160 + FastMath.sin(zzzPhase) * 70);
+        surface.setFill(withAlpha(ACCENT_COLOR, alpha(Math.max(0, Math.min(255, alpha1)), weight)));
+        surface.drawText("Z", width * 0.75f, height * 0.25f - zzzBase, 48f);
+
+        int alpha2 = (int)(140 + FastMath.sin(zzzPhase + 1) * 70);
+        surface.setFill(withAlpha(ACCENT_COLOR, alpha(Math.max(0, Math.min(255, alpha2)), weight)));
+        surface.drawText("z", width * 0.8f, height * 0.35f - zzzBase * 0.7f, 38f);
+
+        int alpha3 = (int)(120 + FastMath.sin(zzzPhase + 2) * 70);
+        surface.setFill(withAlpha(ACCENT_COLOR, alpha(Math.max(0, Math.min(255, alpha3)), weight)));
+        surface.drawText("z", width * 0.85f, height * 0.45f - zzzBase * 0.4f, 28f);
+    }
+
+    private void drawExcitedAccents(FaceSurface surface, FaceState state, float weight) {
+        float anim = state.animProgress;
+
+        // Spinning stars
+        float starRotation = anim * 360f;
+        float starScale = 1f + FastMath.sin(anim * PI * 4) * 0.2f;
+
+        surface.setFill(withAlpha(PRIMARY_COLOR, alpha(255, weight)));
+        surface.drawShape(FaceSurface.SHAPE_STAR, leftEyeX, leftEyeY, eyeSize * 0.6f * starScale, starRotation);
+        surface.drawShape(FaceSurface.SHAPE_STAR, rightEyeX, rightEyeY, eyeSize * 0.6f * starScale, -starRotation);
+
+        // Dynamic sparkles
+        surface.setStroke(withAlpha(ACCENT_COLOR, alpha(255, weight)), 4f);
+        float sparklePhase = anim * PI * 6;
+        for(int i = 0; i < 5; i++) {
+            float angle = sparklePhase + i * PI * 0.4f;
+            float x = width * (0.35f + FastMath.cos(angle) * 0.28f);
+            float y = height * (0.4f + FastMath.sin(angle) * 0.28f);
+            float size = 10f + FastMath.sin(angle * 2) * 5f;
+
+            surface.drawShape(FaceSurface.SHAPE_SPARKLE, x, y, size, angle * 180 / PI);
+        }
+    }
+
+    private void drawConfusedMouth(FaceSurface surface, FaceState state, float weight) {
+        // Wavy mouth
+        surface.setStroke(withAlpha(PRIMARY_COLOR, alpha(255, weight)), 12f);
+        surface.drawQuad(width * 0.35f, height * 0.7f,
+                width * 0.42f, height * 0.67f, width * 0.5f, height * 0.7f);
+        surface.drawQuad(width * 0.5f, height * 0.7f,
+                width * 0.58f, height * 0.73f, width * 0.65f, height * 0.7f);
+    }
+
+    private void drawConfusedAccents(FaceSurface surface, FaceState state, float weight) {
+        // Animated question mark
+        surface.setFill(withAlpha(ACCENT_COLOR, alpha(255, weight)));
+        surface.save();
+        float qRotation = FastMath.sin(state.animProgress * PI * 2) * 18f;
+        surface.rotate(qRotation, width * 0.8f, height * 0.3f);
+        surface.drawText("?", width * 0.77f, height * 0.32f, 55f);
+        surface.restore();
+    }
+
+    private void drawCoolAccents(FaceSurface surface, FaceState state, float weight) {
+        int dark = withAlpha(DARK_COLOR, alpha(255, weight));
+
+        // Sunglasses with shine
+        surface.setFill(dark);
+        surface.drawRoundRect(leftEyeX - eyeSize/2 - 3, leftEyeY - eyeSize/3,
+                leftEyeX + eyeSize/2 + 3, leftEyeY + eyeSize/3, 15f);
+        surface.drawRoundRect(rightEyeX - eyeSize/2 - 3, rightEyeY - eyeSize/3,
+                rightEyeX + eyeSize/2 + 3, rightEyeY + eyeSize/3, 15f);
+
+        // Bridge
+        surface.setStroke(dark, 10f);
+        surface.drawLine(leftEyeX + eyeSize/2 + 3, leftEyeY,
+                rightEyeX - eyeSize/2 - 3, rightEyeY);
+
+        // Shine effect
+        surface.setFill(withAlpha(WHITE, alpha(120, weight)));
+        surface.drawCircle(leftEyeX - eyeSize/4, leftEyeY - eyeSize/6, 8f);
+        surface.drawCircle(rightEyeX - eyeSize/4, rightEyeY - eyeSize/6, 8f);
+
+        // Cool smirk
+        surface.setStroke(dark, 12f);
+        surface.drawQuad(width * 0.35f, height * 0.7f,
+                width * 0.5f, height * 0.68f, width * 0.6f, height * 0.67f);
+    }
+
+    private void drawThinkingAccents(FaceSurface surface, FaceState state, float weight) {
+        // Floating thought cloud
+        float cloudFloat = FastMath.sin(state.animProgress * PI * 2) * 10f;
+        surface.setFill(withAlpha(ACCENT_COLOR, alpha(255, weight)));
+        surface.drawShape(FaceSurface.SHAPE_THOUGHT_CLOUD,
+                width * 0.75f, height * 0.25f + cloudFloat, 42f, 0f);
+    }
+
+    private void drawLaughingAccents(FaceSurface surface, FaceState state, float weight) {
+        // Joy tears
+        surface.setFill(withAlpha(ACCENT_COLOR, alpha(160, weight)));
+
+        for(int i = 0; i < 3; i++) {
+            float tearX = leftEyeX - eyeSize/3 + i * 10;
+            float tearPhase = state.animProgress * PI * 3 + i;
+            float tearY = leftEyeY + eyeSize/2 + FastMath.sin(tearPhase) * 8f;
+            surface.drawCircle(tearX, tearY, 7f);
+        }
+
+        for(int i = 0; i < 3; i++) {
+            float tearX = rightEyeX + eyeSize/3 - i * 10;
+            float tearPhase = state.animProgress * PI * 3 + i + 1;
+            float tearY = rightEyeY + eyeSize/2 + FastMath.sin(tearPhase) * 8f;
+            surface.drawCircle(tearX, tearY, 7f);
+        }
+    }
+
+    // ========== DIRTY REGIONS ==========
+
+    /**
+     * Whether everything that animates in a steady pose of expression has a known region,
+     * so a host can repaint just that region while the body transform is held.
+     */
+    boolean hasRegions(Expression expression) {
+        return (FacePoses.animatedFeatures(expression) & ~(FacePoses.EYES | FacePoses.PUPILS)) == 0
+                && (accents[expression.ordinal()] == null || accentRegions[expression.ordinal()] != null);
+    }
+
+    /**
+     * Adds the view-space area that can change while the body transform is held: the eyes
+     * when eyesChanged, plus the travel region of the expression's accents.
+     */
+    void unionChangedRegion(Expression expression, boolean eyesChanged, Bounds out) {
+        regionScratch.setEmpty();
+        if (eyesChanged && FacePoses.animatedFeatures(expression) != 0) {
+            unionEyeRegion(regionScratch);
+        }
+        AccentRegion accentRegion = accentRegions[expression.ordinal()];
+        if (accentRegion != null) {
+            accentRegion.union(regionScratch);
+        }
+        if (!regionScratch.isEmpty()) {
+            unionTransformed(regionScratch, out);
+        }
+    }
+
+    // Maps the corners of face-space bounds through the held body transform
+    private void unionTransformed(Bounds b, Bounds out) {
+        float pivotX = width / 2f;
+        float pivotY = height / 2f;
+        float radians = bodyRotation * PI / 180f;
+        float cos = FastMath.cos(radians);
+        float sin = FastMath.sin(radians);
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int corner = 0; corner < 4; corner++) {
+            float x = ((corner & 1) == 0 ? b.left : b.right) - pivotX;
+            float y = ((corner & 2) == 0 ? b.top : b.bottom) - pivotY;
+            x *= bodyScaleX;
+            y *= bodyScaleY;
+            float rx = x * cos - y * sin + pivotX + bodyX;
+            float ry = x * sin + y * cos + pivotY + bodyY;
+            minX = Math.min(minX, rx);
+            minY = Math.min(minY, ry);
+            maxX = Math.max(maxX, rx);
+            maxY = Math.max(maxY, ry);
+        }
+        out.union(minX, minY, maxX, maxY);
+    }
+
+    // Both eye ovals and everywhere the pupils can wander to
+    private void unionEyeRegion(Bounds bounds) {
+        float maxGaze = eyeSize * 0.15f + 4f;
+        float pupilReach = Math.max(Math.abs(face.pupilOffsetX), Math.abs(face.pupilOffsetY))
+                + maxGaze * face.gazeWeight + face.pupilRadius;
+        float reach = Math.max(Math.max(face.eyeWidth, face.eyeHeight) / 2f, pupilReach);
+        float shift = Math.abs(face.eyeShiftY);
+        float rightReach = reach * Math.max(1f, face.rightEyeScale);
+        bounds.union(leftEyeX - reach, leftEyeY - reach - shift,
+                leftEyeX + reach, leftEyeY + reach + shift);
+        bounds.union(rightEyeX - rightReach, rightEyeY - rightReach - shift,
+                rightEyeX + rightReach, rightEyeY + rightReach + shift);
+    }
+
+    // Sad tear path, from the lower eyelid to the bottom of its fall
+    private void unionTearRegion(Bounds bounds) {
+        float tearX = leftEyeX - eyeSize/4;
+        float tearTop = leftEyeY + eyeSize/2;
+        bounds.union(tearX - 10f, tearTop - 10f, tearX + 10f, tearTop + 20f + 30f);
+    }
+
+    // Star eyes and the ring the sparkles travel around
+    private void unionSparkleRegion(Bounds bounds) {
+        float starReach = eyeSize * 0.6f * 1.2f;
+        bounds.union(leftEyeX - starReach, leftEyeY - starReach,
+                rightEyeX + starReach, rightEyeY + starReach);
+        float ringX = width * 0.28f + 15f;
+        float ringY = height * 0.28f + 15f;
+        bounds.union(width * 0.35f - ringX, height * 0.4f - ringY,
+                width * 0.35f + ringX, height * 0.4f + ringY);
+    }
+
+    // Joy tears bobbing under each eye
+    private void unionJoyTearRegion(Bounds bounds) {
+        float tearY = leftEyeY + eyeSize/2;
+        bounds.union(leftEyeX - eyeSize/3 - 7f, tearY - 15f,
+                leftEyeX - eyeSize/3 + 27f, tearY + 15f);
+        bounds.union(rightEyeX + eyeSize/3 - 27f, tearY - 15f,
+                rightEyeX + eyeSize/3 + 7f, tearY + 15f);
+    }
+}
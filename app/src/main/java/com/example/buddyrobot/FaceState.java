@@ -0,0 +1,40 @@
+// FaceState - everything time-dependent a face frame is drawn from
+// The host advances it from its clock; FaceRenderer only reads it, so a frame is reproducible
+package com.example.buddyrobot;
+
+final class FaceState {
+
+    Expression expression = Expression.NEUTRAL;
+    Expression targetExpression = Expression.NEUTRAL;
+    boolean transitioning = false;
+    float transitionProgress = 1f;  // 0..1, linear in time
+
+    float animProgress = 0f;        // position in the 3 s animation cycle, 0..1
+    float blinkProgress = 0f;       // 0 open .. 1 closed
+
+    // Micro-expressions, pupil offsets in pixels
+    float gazeX, gazeY;
+    float eyeDartX, eyeDartY;
+
+    // Idle behaviour
+    float idleBobbing;              // pixels
+    float idleHeadTilt;             // degrees
+
+    float jitter = 0f;              // -1..1, fresh every frame, for the angry shake
+
+    void set(FaceState s) {
+        expression = s.expression;
+        targetExpression = s.targetExpression;
+        transitioning = s.transitioning;
+        transitionProgress = s.transitionProgress;
+        animProgress = s.animProgress;
+        blinkProgress = s.blinkProgress;
+        gazeX = s.gazeX;
+        gazeY = s.gazeY;
+        eyeDartX = s.eyeDartX;
+        eyeDartY = s.eyeDartY;
+        idleBobbing = s.idleBobbing;
+        idleHeadTilt = s.idleHeadTilt;
+        jitter = s.jitter;
+    }
+}
@@ -0,0 +1,47 @@
+// FaceSurface - the drawing operations FaceRenderer needs, free of android.graphics types
+// CanvasFaceSurface draws to an Android Canvas; tests and tools can record or rasterise instead
+package com.example.buddyrobot;
+
+interface FaceSurface {
+
+    // Decorative shapes, drawn centred on a point at a size (see ShapeCache)
+    int SHAPE_HEART = 0;
+    int SHAPE_STAR = 1;
+    int SHAPE_SPARKLE = 2;
+    int SHAPE_THOUGHT_CLOUD = 3;
+
+    void save();
+
+    void restore();
+
+    void translate(float dx, float dy);
+
+    void rotate(float degrees, float px, float py);
+
+    void scale(float sx, float sy, float px, float py);
+
+    /** Following draws are filled with color (ARGB, alpha included). */
+    void setFill(int color);
+
+    /** Following draws are stroked with color at width pixels, with round caps. */
+    void setStroke(int color, float width);
+
+    void drawOval(float left, float top, float right, float bottom);
+
+    void drawCircle(float cx, float cy, float radius);
+
+    /** Elliptical arc inside the bounds, angles in degrees clockwise from 3 o'clock. */
+    void drawArc(float left, float top, float right, float bottom,
+                 float startAngle, float sweepAngle);
+
+    void drawLine(float x0, float y0, float x1, float y1);
+
+    void drawRoundRect(float left, float top, float right, float bottom, float radius);
+
+    /** Quadratic curve from (x0, y0) to (x1, y1) with control point (cx, cy). */
+    void drawQuad(float x0, float y0, float cx, float cy, float x1, float y1);
+
+    void drawText(String text, float x, float y, float textSize);
+
+    void drawShape(int shape, float x, float y, float size, float degrees);
+}
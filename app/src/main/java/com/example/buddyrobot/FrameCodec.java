@@ -0,0 +1,252 @@
+// FrameCodec - compact binary frames for robots that negotiate them, text "<CMD>" otherwise
+// Frame: SYNC, opcode, seq, payload length, payload, CRC-8 over opcode..payload.
+// Known commands become a few bytes ("<HEAD:LEFT>\n" is 12 bytes as text, 7 as a frame);
+// anything else is carried verbatim in a TEXT frame. Encoding and decoding never allocate.
+// "HEAD:POS:pan:tilt" is an absolute head target in degrees from centre, + is right / up.
+// The robot answers in the same frames: acks and telemetry (see TelemetryReader).
+package com.example.buddyrobot;
+
+final class FrameCodec {
+
+    static final int SYNC = 0xA5;
+    static final int HEADER_BYTES = 4;      // sync, opcode, seq, length
+    static final int MAX_PAYLOAD = 60;
+    static final int MAX_FRAME = HEADER_BYTES + MAX_PAYLOAD + 1;
+
+    // Opcodes; the firmware keeps the same table
+    static final int OP_EXPRESSION = 0x01;  // payload: expression id (Expression ordinal)
+    static final int OP_HEAD_MOVE = 0x02;   // payload: direction, steps (1..255)
+    static final int OP_HEAD_CENTER = 0x03; // no payload
+    static final int OP_HEAD_TARGET = 0x04; // payload: pan, tilt; signed 16-bit degrees
+    static final int OP_TEXT = 0x7F;        // payload: text command without "<>"
+
+    // Opcodes the robot sends back
+    static final int OP_ACK = 0x80;         // seq: the acknowledged command's; no payload
+    static final int OP_HEAD_POSITION = 0x81; // payload: pan, tilt; signed 16-bit degrees
+    static final int OP_BATTERY = 0x82;     // payload: millivolts (16-bit), percent
+
+    // OP_HEAD_MOVE directions, in HEAD:<name> order
+    static final int DIR_LEFT = 0, DIR_RIGHT = 1, DIR_UP = 2, DIR_DOWN = 3;
+    private static final String[] DIRECTIONS = {"LEFT", "RIGHT", "UP", "DOWN"};
+
+    /**
+     * Text sent (with a newline) to ask for binary frames; firmware that speaks them answers
+     * with HELLO_REPLY, older firmware ignores it and the link stays text.
+     */
+    static final String HELLO = "<PROTO:BIN1>";
+    static final String HELLO_REPLY = "PROTO:BIN1";
+
+    private static final String EXPR = "EXPR:";
+    private static final String HEAD = "HEAD:";
+    private static final String CENTER = "CENTER";
+    private static final String POS = "POS:";
+    private static final Expression[] EXPRESSIONS = Expression.values();
+    private static final int[] CRC_TABLE = crcTable();
+
+    private FrameCodec() {
+    }
+
+    /**
+     * Payload bytes of command, without its "<>" framing, were it sent as a TEXT frame; encode()
+     * refuses anything over MAX_PAYLOAD.
+     */
+    static int textPayloadLength(CharSequence command) {
+        int length = command.length();
+        boolean framed = length >= 2 && command.charAt(0) == '<'
+                && command.charAt(length - 1) == '>';
+        return framed ? length - 2 : length;
+    }
+
+    /**
+     * Encodes a text command ("HEAD:LEFT", "<EXPR:HAPPY>", "HEAD:UP:3", ...) held as ASCII in
+     * text[0..length) into a frame at out[offset].
+     *
+     * @param seq sequence number, sent modulo 256
+     * @return number of bytes written
+     * @throws IllegalArgumentException if a TEXT frame would exceed MAX_PAYLOAD
+     * @throws IndexOutOfBoundsException if out has no room for the frame
+     */
+    static int encode(byte[] text, int length, int seq, byte[] out, int offset) {
+        int start = 0;
+        int end = length;
+        if (length >= 2 && text[0] == '<' && text[length - 1] == '>') {
+            start = 1;
+            end = length - 1;
+        }
+
+        int payload = offset + HEADER_BYTES;
+        int opcode;
+        int payloadLength;
+        int expression = startsWith(text, start, end, EXPR)
+                ? expressionId(text, start + EXPR.length(), end) : -1;
+        boolean head = startsWith(text, start, end, HEAD);
+        int move = head ? headMove(text, start + HEAD.length(), end) : -1;
+        long target = head && startsWith(text, start + HEAD.length(), end, POS)
+                ? CommandCoalescer.parseTarget(text, start + HEAD.length() + POS.length(), end)
+                : -1;
+        if (expression >= 0) {
+            opcode = OP_EXPRESSION;
+            payloadLength = 1;
+            checkRoom(out, offset, payloadLength);
+            out[payload] = (byte) expression;
+        } else if (head && equals(text, start + HEAD.length(), end, CENTER)) {
+            opcode = OP_HEAD_CENTER;
+            payloadLength = 0;
+            checkRoom(out, offset, payloadLength);
+        } else if (target >= 0) {
+            opcode = OP_HEAD_TARGET;
+            payloadLength = 4;
+            checkRoom(out, offset, payloadLength);
+            out[payload] = (byte) (target >>> 24);
+            out[payload + 1] = (byte) (target >>> 16);
+            out[payload + 2] = (byte) (target >>> 8);
+            out[payload + 3] = (byte) target;
+        } else if (move >= 0) {
+            opcode = OP_HEAD_MOVE;
+            payloadLength = 2;
+            checkRoom(out, offset, payloadLength);
+            out[payload] = (byte) (move >>> 8);
+            out[payload + 1] = (byte) move;
+        } else {
+            opcode = OP_TEXT;
+            payloadLength = end - start;
+            if (payloadLength > MAX_PAYLOAD) {
+                throw new IllegalArgumentException("Command too long for a frame: " + payloadLength);
+            }
+            checkRoom(out, offset, payloadLength);
+            System.arraycopy(text, start, out, payload, payloadLength);
+        }
+
+        out[offset] = (byte) SYNC;
+        out[offset + 1] = (byte) opcode;
+        out[offset + 2] = (byte) seq;
+        out[offset + 3] = (byte) payloadLength;
+        int crcEnd = payload + payloadLength;
+        out[crcEnd] = (byte) crc8(out, offset + 1, crcEnd);
+        return crcEnd + 1 - offset;
+    }
+
+    /** CRC-8 (polynomial 0x07, initial 0) of data[from..to). */
+    static int crc8(byte[] data, int from, int to) {
+        int crc = 0;
+        for (int i = from; i < to; i++) {
+            crc = crc8(crc, data[i]);
+        }
+        return crc;
+    }
+
+    /** Adds one byte to a running CRC-8, for data that isn't contiguous, e.g. in a ring. */
+    static int crc8(int crc, byte b) {
+        return CRC_TABLE[(crc ^ b) & 0xFF];
+    }
+
+    // ========== DECODING ==========
+
+    /**
+     * Incremental frame parser for bytes arriving from the link. Bytes before a SYNC, and
+     * frames with a bad length or CRC, are skipped, so the parser resynchronises by itself.
+     */
+    static final class Decoder {
+        private final byte[] frame = new byte[MAX_FRAME];
+        private int filled = 0;
+
+        // The last complete frame
+        int opcode;
+        int seq;
+        int payloadLength;
+        final byte[] payload = new byte[MAX_PAYLOAD];
+
+        private long corrupted = 0;
+
+        /** @return true when b completes a valid frame, now in opcode/seq/payload */
+        boolean feed(byte b) {
+            if (filled == 0 && (b & 0xFF) != SYNC) return false;
+            frame[filled++] = b;
+            while (filled > 0) {
+                if ((frame[0] & 0xFF) != SYNC) {
+                    drop(1);
+                    continue;
+                }
+                if (filled < HEADER_BYTES) return false;
+                int length = frame[3] & 0xFF;
+                if (length > MAX_PAYLOAD) {
+                    corrupted++;
+                    drop(1);
+                    continue;
+                }
+                int crcAt = HEADER_BYTES + length;
+                if (filled <= crcAt) return false;
+                if ((frame[crcAt] & 0xFF) != crc8(frame, 1, crcAt)) {
+                    corrupted++;
+                    drop(1);
+                    continue;
+                }
+                opcode = frame[1] & 0xFF;
+                seq = frame[2] & 0xFF;
+                payloadLength = length;
+                System.arraycopy(frame, HEADER_BYTES, payload, 0, length);
+                drop(crcAt + 1);
+                return true;
+            }
+            return false;
+        }
+
+        /** Frames dropped for a bad length or CRC. */
+        long getCorruptedCount() {
+            return corrupted;
+        }
+
+        // Discards the first n buffered bytes; after a bad frame, the rest is rescanned for a SYNC
+        private void drop(int n) {
+            filled -= n;
+            System.arraycopy(frame, n, frame, 0, filled);
+        }
+    }
+
+    // ========== TEXT PARSING ==========
+
+    private static int expressionId(byte[] text, int from, int to) {
+        for (Expression expression : EXPRESSIONS) {
+            if (equals(text, from, to, expression.name())) return expression.ordinal();
+        }
+        return -1;
+    }
+
+    // direction << 8 | steps, or -1; the text is parsed by CommandCoalescer, like queued text
+    private static int headMove(byte[] text, int from, int to) {
+        for (int direction = 0; direction < DIRECTIONS.length; direction++) {
+            String name = DIRECTIONS[direction];
+            if (!startsWith(text, from, to, name)) continue;
+            int steps = CommandCoalescer.parseSteps(text, from + name.length(), to);
+            return steps >= 1 && steps <= 255 ? direction << 8 | steps : -1;
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] text, int from, int to, String prefix) {
+        return CommandCoalescer.startsWith(text, from, to, prefix);
+    }
+
+    private static boolean equals(byte[] text, int from, int to, String s) {
+        return to - from == s.length() && startsWith(text, from, to, s);
+    }
+
+    private static void checkRoom(byte[] out, int offset, int payloadLength) {
+        if (offset < 0 || out.length - offset < HEADER_BYTES + payloadLength + 1) {
+            throw new IndexOutOfBoundsException("Frame of " + (HEADER_BYTES + payloadLength + 1)
+                    + " bytes does not fit at " + offset);
+        }
+    }
+
+    private static int[] crcTable() {
+        int[] table = new int[256];
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80) != 0 ? ((crc << 1) ^ 0x07) & 0xFF : (crc << 1) & 0xFF;
+            }
+            table[i] = crc;
+        }
+        return table;
+    }
+}
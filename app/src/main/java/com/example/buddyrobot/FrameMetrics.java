@@ -0,0 +1,208 @@
+// FrameMetrics - draw times, frame intervals and missed vsyncs of the face, cheap enough to leave on
+// Fixed-size histograms and per-expression sums, all allocated up front; recording never allocates.
+// Recorded and read on the UI thread.
+package com.example.buddyrobot;
+
+public final class FrameMetrics {
+
+    // Draw time in 0.25 ms buckets up to 32 ms, frame interval in 1 ms buckets up to 128 ms;
+    // anything longer lands in the last bucket
+    private static final int DRAW_BUCKETS = 128;
+    private static final long DRAW_BUCKET_NANOS = 250_000L;
+    private static final int INTERVAL_BUCKETS = 128;
+    private static final long INTERVAL_BUCKET_NANOS = 1_000_000L;
+    // A vsync gap this many periods long or more counts the periods in between as missed
+    private static final float MISSED_VSYNC_RATIO = 1.5f;
+
+    private static final float NANOS_PER_MS = 1_000_000f;
+
+    private final Histogram drawTimes = new Histogram(DRAW_BUCKETS, DRAW_BUCKET_NANOS);
+    private final Histogram intervals = new Histogram(INTERVAL_BUCKETS, INTERVAL_BUCKET_NANOS);
+
+    // Per-expression sums, indexed by Expression.ordinal()
+    private final long[] drawNanos = new long[Expression.values().length];
+    private final int[] drawCounts = new int[Expression.values().length];
+    private final long[] intervalNanos = new long[Expression.values().length];
+    private final int[] intervalCounts = new int[Expression.values().length];
+
+    private long vsyncPeriodNanos = 16_666_667L;
+    private long lastVsyncNanos = 0;
+    private long lastFrameNanos = 0;
+    private long vsyncs = 0;
+    private long missedVsyncs = 0;
+
+    // ========== RECORDING ==========
+
+    /** Refresh period of the display, for judging which vsyncs were missed. */
+    void setVsyncPeriod(long periodNanos) {
+        if (periodNanos > 0) vsyncPeriodNanos = periodNanos;
+    }
+
+    /** Every vsync callback, whether or not it draws; gaps longer than a period are misses. */
+    void onVsync(long frameTimeNanos) {
+        if (lastVsyncNanos != 0) {
+            long gap = frameTimeNanos - lastVsyncNanos;
+            if (gap >= vsyncPeriodNanos * MISSED_VSYNC_RATIO) {
+                missedVsyncs += Math.round(gap / (double) vsyncPeriodNanos) - 1;
+            }
+        }
+        lastVsyncNanos = frameTimeNanos;
+        vsyncs++;
+    }
+
+    /** A vsync that advanced the face; the interval since the previous one is recorded. */
+    void onFrame(long frameTimeNanos, Expression expression) {
+        if (lastFrameNanos != 0) {
+            long interval = frameTimeNanos - lastFrameNanos;
+            intervals.record(interval);
+            intervalNanos[expression.ordinal()] += interval;
+            intervalCounts[expression.ordinal()]++;
+        }
+        lastFrameNanos = frameTimeNanos;
+    }
+
+    /** Time spent in one onDraw. */
+    void onDraw(long nanos, Expression expression) {
+        drawTimes.record(nanos);
+        drawNanos[expression.ordinal()] += nanos;
+        drawCounts[expression.ordinal()]++;
+    }
+
+    /** Forgets the previous vsync and frame, e.g. while the frame clock was stopped. */
+    void pause() {
+        lastVsyncNanos = 0;
+        lastFrameNanos = 0;
+    }
+
+    // ========== QUERIES ==========
+
+    public long getFrameCount() {
+        return drawTimes.count;
+    }
+
+    public long getVsyncCount() {
+        return vsyncs;
+    }
+
+    /** Vsyncs that passed without a frame callback, i.e. the UI thread was late for them. */
+    public long getMissedVsyncCount() {
+        return missedVsyncs;
+    }
+
+    public float getAverageDrawMs() {
+        return drawTimes.mean() / NANOS_PER_MS;
+    }
+
+    public float getMaxDrawMs() {
+        return drawTimes.max / NANOS_PER_MS;
+    }
+
+    /**
+     * Draw time that fraction of frames stayed within, at bucket resolution (0.25 ms).
+     *
+     * @param fraction 0..1, e.g. 0.99 for the 99th percentile
+     */
+    public float getDrawPercentileMs(float fraction) {
+        return drawTimes.percentile(fraction) / NANOS_PER_MS;
+    }
+
+    public float getAverageIntervalMs() {
+        return intervals.mean() / NANOS_PER_MS;
+    }
+
+    /** Frame interval that fraction of frames stayed within, at bucket resolution (1 ms). */
+    public float getIntervalPercentileMs(float fraction) {
+        return intervals.percentile(fraction) / NANOS_PER_MS;
+    }
+
+    /** Frames whose draw time fell in [ms, ms + 0.25); the last bucket includes everything longer. */
+    public long getDrawHistogramCount(float ms) {
+        return drawTimes.countAt((long) (ms * NANOS_PER_MS));
+    }
+
+    /** Frames whose interval fell in [ms, ms + 1); the last bucket includes everything longer. */
+    public long getIntervalHistogramCount(float ms) {
+        return intervals.countAt((long) (ms * NANOS_PER_MS));
+    }
+
+    /** Mean onDraw time while expression was showing, 0 if it has not been drawn. */
+    public float getAverageDrawMs(Expression expression) {
+        int count = drawCounts[expression.ordinal()];
+        return count == 0 ? 0f : drawNanos[expression.ordinal()] / (count * NANOS_PER_MS);
+    }
+
+    /** Frames per second actually achieved while expression was showing, 0 if unknown. */
+    public float getAverageFrameRate(Expression expression) {
+        long total = intervalNanos[expression.ordinal()];
+        return total == 0 ? 0f : intervalCounts[expression.ordinal()] * 1e9f / total;
+    }
+
+    public void reset() {
+        drawTimes.reset();
+        intervals.reset();
+        for (int i = 0; i < drawNanos.length; i++) {
+            drawNanos[i] = 0;
+            drawCounts[i] = 0;
+            intervalNanos[i] = 0;
+            intervalCounts[i] = 0;
+        }
+        vsyncs = 0;
+        missedVsyncs = 0;
+        pause();
+    }
+
+    // Linear buckets of equal width; the last one is open-ended
+    private static final class Histogram {
+        private final long[] counts;
+        private final long bucketNanos;
+        long count;
+        long sum;
+        long max;
+
+        Histogram(int buckets, long bucketNanos) {
+            this.counts = new long[buckets];
+            this.bucketNanos = bucketNanos;
+        }
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            counts[bucket(nanos)]++;
+            count++;
+            sum += nanos;
+            if (nanos > max) max = nanos;
+        }
+
+        long countAt(long nanos) {
+            return nanos < 0 ? 0 : counts[bucket(nanos)];
+        }
+
+        float mean() {
+            return count == 0 ? 0f : sum / (float) count;
+        }
+
+        // Upper edge of the bucket holding the fraction-th sample; max for the open bucket
+        long percentile(float fraction) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(Math.max(0f, Math.min(1f, fraction)) * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length - 1; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(1, rank)) return Math.min(max, (i + 1) * bucketNanos);
+            }
+            return max;
+        }
+
+        void reset() {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = 0;
+            }
+            count = 0;
+            sum = 0;
+            max = 0;
+        }
+
+        private int bucket(long nanos) {
+            return (int) Math.min(counts.length - 1, nanos / bucketNanos);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+// FrameMetricsOverlay - a small debug readout of FrameMetrics in the corner of the face
+// Text is formatted into preallocated char buffers a couple of times a second, so an
+// enabled overlay adds no per-frame allocation either
+package com.example.buddyrobot;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+final class FrameMetricsOverlay {
+
+    private static final long REFRESH_NANOS = 500_000_000L;
+    private static final int LINES = 3;
+    private static final int LINE_CHARS = 40;
+    private static final int BACKGROUND = 0x99000000;
+    private static final int TEXT_COLOR = 0xFFFFFFFF;
+
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final char[][] text = new char[LINES][LINE_CHARS];
+    private final int[] lengths = new int[LINES];
+    private final Rect bounds = new Rect();
+    private final float textSize;
+    private final float padding;
+    private long lastRefreshNanos = 0;
+
+    // Line being formatted by the append helpers
+    private int line;
+
+    FrameMetricsOverlay(float density) {
+        textSize = 10f * density;
+        padding = 6f * density;
+        paint.setTypeface(Typeface.MONOSPACE);
+        paint.setTextSize(textSize);
+        int width = (int) (LINE_CHARS * 0.6f * textSize + 2 * padding);
+        int height = (int) (LINES * textSize * 1.2f + 2 * padding);
+        bounds.set(0, 0, width, height);
+    }
+
+    /** Area the overlay draws into, for invalidating just that part of the view. */
+    Rect getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Reformats the readout when it is due.
+     *
+     * @return true when the text changed and the overlay needs redrawing
+     */
+    boolean refresh(FrameMetrics metrics, float targetRate, float measuredRate, long nowNanos) {
+        if (lastRefreshNanos != 0 && nowNanos - lastRefreshNanos < REFRESH_NANOS) return false;
+        lastRefreshNanos = nowNanos;
+
+        startLine(0);
+        append("fps ");
+        appendFixed(measuredRate, 1);
+        append(" / ");
+        appendFixed(targetRate, 0);
+        append("  miss ");
+        appendFixed(metrics.getMissedVsyncCount(), 0);
+
+        startLine(1);
+        append("draw ");
+        appendFixed(metrics.getAverageDrawMs(), 2);
+        append(" p99 ");
+        appendFixed(metrics.getDrawPercentileMs(0.99f), 2);
+        append(" max ");
+        appendFixed(metrics.getMaxDrawMs(), 1);
+
+        startLine(2);
+        append("interval p50 ");
+        appendFixed(metrics.getIntervalPercentileMs(0.5f), 0);
+        append(" p99 ");
+        appendFixed(metrics.getIntervalPercentileMs(0.99f), 0);
+        append(" ms");
+        return true;
+    }
+
+    void draw(Canvas canvas) {
+        paint.setColor(BACKGROUND);
+        canvas.drawRect(bounds.left, bounds.top, bounds.right, bounds.bottom, paint);
+        paint.setColor(TEXT_COLOR);
+        float y = bounds.top + padding + textSize;
+        for (int i = 0; i < LINES; i++) {
+            canvas.drawText(text[i], 0, lengths[i], bounds.left + padding, y, paint);
+            y += textSize * 1.2f;
+        }
+    }
+
+    // ========== FORMATTING ==========
+
+    private void startLine(int index) {
+        line = index;
+        lengths[index] = 0;
+    }
+
+    private void append(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            appendChar(s.charAt(i));
+        }
+    }
+
+    // Fixed-point decimal without String.format or boxing
+    private void appendFixed(double value, int decimals) {
+        if (value < 0) {
+            appendChar('-');
+            value = -value;
+        }
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        long scaled = Math.round(value * scale);
+        appendLong(scaled / scale);
+        if (decimals > 0) {
+            appendChar('.');
+            long fraction = scaled % scale;
+            for (long digit = scale / 10; digit > 0; digit /= 10) {
+                appendChar((char) ('0' + fraction / digit % 10));
+            }
+        }
+    }
+
+    private void appendLong(long value) {
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            appendChar((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    private void appendChar(char c) {
+        if (lengths[line] < LINE_CHARS) {
+            text[line][lengths[line]++] = c;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+// FrameRateGovernor - picks how often the face is redrawn from its motion content
+// Slow expressions run at 30 fps, fast shakes at the display's native rate, and a face
+// left alone for a while settles lower still
+package com.example.buddyrobot;
+
+final class FrameRateGovernor {
+
+    static final float RATE_SLOW = 30f;
+    static final float RATE_NORMAL = 60f;
+
+    // A face that has not changed expression for this long drops to the slow rate
+    private static final long IDLE_AFTER_NANOS = 30_000_000_000L;
+    // Vsync timestamps jitter; a frame this close to the interval still counts as due
+    private static final long FRAME_SLACK_NANOS = 2_000_000L;
+
+    private float displayRate = RATE_NORMAL;
+    private float targetRate = RATE_NORMAL;
+    private long frameIntervalNanos = intervalNanos(RATE_NORMAL);
+    private long lastFrameNanos = 0;
+
+    // Frames actually advanced, for the measured rate
+    private long windowStartNanos = 0;
+    private int windowFrames = 0;
+    private float measuredRate = 0f;
+
+    /** Highest refresh rate the display supports; fast expressions run at this rate. */
+    void setDisplayRate(float rate) {
+        displayRate = Math.max(RATE_NORMAL, rate);
+    }
+
+    /**
+     * Re-evaluates the target rate.
+     *
+     * @return true when the target changed, so the host can pass a new hint to the platform
+     */
+    boolean update(Expression expression, boolean transitioning, long idleNanos) {
+        float rate;
+        if (transitioning) {
+            rate = Math.max(RATE_NORMAL, motionRate(expression));
+        } else if (idleNanos >= IDLE_AFTER_NANOS) {
+            rate = Math.min(RATE_SLOW, motionRate(expression));
+        } else {
+            rate = motionRate(expression);
+        }
+        if (rate == targetRate) return false;
+        targetRate = rate;
+        frameIntervalNanos = intervalNanos(rate);
+        return true;
+    }
+
+    /** Whether a vsync at frameTimeNanos should advance and draw the face. */
+    boolean shouldRender(long frameTimeNanos) {
+        if (lastFrameNanos != 0
+                && frameTimeNanos - lastFrameNanos < frameIntervalNanos - FRAME_SLACK_NANOS) {
+            return false;
+        }
+        lastFrameNanos = frameTimeNanos;
+        countFrame(frameTimeNanos);
+        return true;
+    }
+
+    /** Forgets the previous frame, e.g. after the frame clock was stopped. */
+    void reset() {
+        lastFrameNanos = 0;
+        windowStartNanos = 0;
+        windowFrames = 0;
+    }
+
+    float getTargetRate() {
+        return targetRate;
+    }
+
+    /** Frames rendered per second over the last full second (0 until one has passed). */
+    float getMeasuredRate() {
+        return measuredRate;
+    }
+
+    // Slow-moving faces don't need 60 fps; the shaking ones look better at 90/120 Hz
+    private float motionRate(Expression expression) {
+        switch (expression) {
+            case NEUTRAL:
+            case SAD:
+            case SLEEPY:
+                return RATE_SLOW;
+            case ANGRY:
+            case LAUGHING:
+            case EXCITED:
+                return displayRate;
+            default:
+                return RATE_NORMAL;
+        }
+    }
+
+    private void countFrame(long frameTimeNanos) {
+        if (windowStartNanos == 0) {
+            windowStartNanos = frameTimeNanos;
+            windowFrames = 0;
+            return;
+        }
+        windowFrames++;
+        long elapsed = frameTimeNanos - windowStartNanos;
+        if (elapsed >= 1_000_000_000L) {
+            measuredRate = windowFrames * 1e9f / elapsed;
+            windowStartNanos = frameTimeNanos;
+            windowFrames = 0;
+        }
+    }
+
+    private static long intervalNanos(float rate) {
+        return (long) (1e9f / rate);
+    }
+}
@@ -0,0 +1,140 @@
+// HeadPadView - a square drag pad on the movement card for steering the head continuously
+// Touching or dragging reports where the head should point, -1 to 1 on each axis with + to
+// the right and up, on every touch event; HeadStream turns that into a steady stream of
+// targets. Letting go leaves the head where it was pointed. Drawing and touch handling
+// allocate nothing, however long the pad is dragged.
+package com.example.buddyrobot;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.core.content.ContextCompat;
+
+public class HeadPadView extends View {
+
+    /** Told of every new target while the pad is touched; called on the UI thread. */
+    public interface Listener {
+        void onTarget(float x, float y);
+    }
+
+    private static final float CORNER_DP = 16f;
+    private static final float STROKE_DP = 2f;
+    private static final float PUCK_DP = 14f;
+
+    private final Paint framePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint guidePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint puckPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF frame = new RectF();
+    private final float corner;
+    private final float puckRadius;
+
+    private Listener listener;
+    private float targetX, targetY;     // -1..1, + is right / up
+    private boolean dragging;
+
+    public HeadPadView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        corner = CORNER_DP * density;
+        puckRadius = PUCK_DP * density;
+
+        framePaint.setStyle(Paint.Style.STROKE);
+        framePaint.setStrokeWidth(STROKE_DP * density);
+        framePaint.setColor(ContextCompat.getColor(context, R.color.pink_light));
+        guidePaint.setStyle(Paint.Style.STROKE);
+        guidePaint.setStrokeWidth(STROKE_DP * density / 2f);
+        guidePaint.setColor(ContextCompat.getColor(context, R.color.pink_light));
+        puckPaint.setColor(ContextCompat.getColor(context, R.color.pink_primary));
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Moves the puck back to the middle and reports it, e.g. for a centre button. */
+    public void center() {
+        setTarget(0f, 0f);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // Square, as wide as the card allows
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        setMeasuredDimension(width, resolveSize(width, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        float inset = framePaint.getStrokeWidth();
+        frame.set(inset, inset, w - inset, h - inset);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        canvas.drawRoundRect(frame, corner, corner, framePaint);
+        float cx = frame.centerX();
+        float cy = frame.centerY();
+        canvas.drawLine(frame.left, cy, frame.right, cy, guidePaint);
+        canvas.drawLine(cx, frame.top, cx, frame.bottom, guidePaint);
+        float halfW = frame.width() / 2f - puckRadius;
+        float halfH = frame.height() / 2f - puckRadius;
+        canvas.drawCircle(cx + targetX * halfW, cy - targetY * halfH,
+                dragging ? puckRadius * 1.2f : puckRadius, puckPaint);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                // Keep a scrolling parent from taking the drag over
+                getParent().requestDisallowInterceptTouchEvent(true);
+                dragging = true;
+                onDrag(event.getX(), event.getY());
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                onDrag(event.getX(), event.getY());
+                return true;
+            case MotionEvent.ACTION_UP:
+                performClick();
+                endDrag();
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                endDrag();
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    private void endDrag() {
+        dragging = false;
+        getParent().requestDisallowInterceptTouchEvent(false);
+        invalidate();
+    }
+
+    private void onDrag(float px, float py) {
+        float halfW = frame.width() / 2f - puckRadius;
+        float halfH = frame.height() / 2f - puckRadius;
+        if (halfW <= 0f || halfH <= 0f) return;
+        setTarget((px - frame.centerX()) / halfW, (frame.centerY() - py) / halfH);
+    }
+
+    private void setTarget(float x, float y) {
+        targetX = Math.max(-1f, Math.min(1f, x));
+        targetY = Math.max(-1f, Math.min(1f, y));
+        invalidate();
+        if (listener != null) listener.onTarget(targetX, targetY);
+    }
+}
@@ -0,0 +1,231 @@
+// HeadStream - continuous head control: absolute pan/tilt targets sent at a fixed rate
+// The drag pad sets where the head should point whenever it likes; a ticker thread moves a
+// smoothed position towards it at up to the slew limit and sends that position as
+// "HEAD:POS:pan:tilt" (FrameCodec.OP_HEAD_TARGET) on each tick. Samples never queue up: the
+// send queue keeps only the newest target, and while the previous one awaits the robot's ack
+// the tick is skipped, so a slow robot gets the freshest target next instead of a backlog.
+// Ticks allocate nothing, so the stream can run for as long as the operator steers.
+// Only binary links carry the stream: text firmware knows no HEAD:POS and sends no acks to
+// pace it by, so on a text link the ticks send nothing.
+package com.example.buddyrobot;
+
+import java.util.concurrent.locks.LockSupport;
+
+final class HeadStream {
+
+    static final int DEFAULT_RATE_HZ = 50;
+
+    // Degrees either side of centre that a target at the edge of the pad means
+    static final int MAX_PAN_DEGREES = 90;
+    static final int MAX_TILT_DEGREES = 45;
+
+    // The position closes on the target by 1 - 1/e every this long, and no faster than
+    // MAX_SPEED, so a flick across the pad turns into a smooth sweep
+    static final long DEFAULT_SMOOTHING_MS = 60;
+    static final float MAX_SPEED_DEGREES_PER_S = 240f;
+
+    private final RobotLink link;
+    private final RobotState state;     // told of every target sent, for replay; may be null
+
+    // Pad position, x then y as float bits in one word so a tick never sees half a move
+    private volatile long target = 0;
+    private volatile long periodNanos = 1_000_000_000L / DEFAULT_RATE_HZ;
+    private volatile long smoothingNanos = DEFAULT_SMOOTHING_MS * 1_000_000L;
+    private Thread ticker;  // guarded by this
+
+    // Written by the ticking thread
+    private float pan, tilt;            // smoothed position, degrees
+    private long lastTickNanos = 0;
+    private int sentPan, sentTilt;
+    private int sentSeq = -1;
+    private int sentConnection = -1;    // RobotLink.getConnectionCount() when last sent
+
+    // Metrics, written by the ticking thread
+    private volatile long sent = 0;
+    private volatile long held = 0;
+    private volatile long unchanged = 0;
+
+    HeadStream(RobotLink link) {
+        this(link, null);
+    }
+
+    HeadStream(RobotLink link, RobotState state) {
+        this.link = link;
+        this.state = state;
+    }
+
+    /**
+     * Where the head should point, from -1 to 1 on each axis (edge of the pad), + is right / up.
+     * Any thread may call it as often as it likes; only the newest target is sent.
+     */
+    void setTarget(float x, float y) {
+        long bits = (long) Float.floatToRawIntBits(clamp(x)) << 32;
+        target = bits | (Float.floatToRawIntBits(clamp(y)) & 0xFFFFFFFFL);
+    }
+
+    /** Points the head straight ahead, smoothly like any other target. */
+    void center() {
+        setTarget(0f, 0f);
+    }
+
+    float getTargetX() {
+        return Float.intBitsToFloat((int) (target >>> 32));
+    }
+
+    float getTargetY() {
+        return Float.intBitsToFloat((int) target);
+    }
+
+    // ========== TICKER ==========
+
+    /** Starts ticking on a thread of its own, from where the head was last sent. */
+    synchronized void start() {
+        if (ticker != null) return;
+        ticker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runTicks();
+            }
+        }, "head-stream");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /** Stops ticking; the head stays at the last target sent. */
+    synchronized void stop() {
+        Thread t = ticker;
+        ticker = null;
+        if (t == null) return;
+        t.interrupt();
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    synchronized boolean isRunning() {
+        return ticker != null;
+    }
+
+    // Fixed rate: each tick is due one period after the last was due, and ticks missed
+    // while the thread wasn't scheduled are skipped rather than sent in a burst
+    private void runTicks() {
+        lastTickNanos = 0;
+        long due = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            long now = System.nanoTime();
+            if (now < due) {
+                LockSupport.parkNanos(due - now);
+                continue;
+            }
+            tick(now);
+            long period = periodNanos;
+            due += period;
+            if (now - due >= period) due = now + period;
+        }
+    }
+
+    /**
+     * Moves the smoothed position on to nanos and sends it if it changed, the link speaks
+     * binary frames and the previous target isn't still awaiting its ack. The ticker calls
+     * this; tests call it directly.
+     *
+     * @return true if a target was queued
+     */
+    boolean tick(long nanos) {
+        long dt = lastTickNanos == 0 ? periodNanos : nanos - lastTickNanos;
+        lastTickNanos = nanos;
+        long bits = target;
+        follow(Float.intBitsToFloat((int) (bits >>> 32)) * MAX_PAN_DEGREES,
+                Float.intBitsToFloat((int) bits) * MAX_TILT_DEGREES, dt);
+
+        if (!link.isBinaryProtocol()) return false;
+        int p = Math.round(pan);
+        int t = Math.round(tilt);
+        // After a reconnect the position is sent again, whatever the robot now thinks
+        int connection = link.getConnectionCount();
+        if (p == sentPan && t == sentTilt && connection == sentConnection) {
+            unchanged++;
+            return false;
+        }
+        if (sentSeq >= 0 && link.isInFlight(sentSeq)) {
+            held++;
+            return false;
+        }
+        int seq = link.sendHeadTarget(p, t, nanos);
+        if (seq < 0) return false;
+        sentSeq = seq;
+        sentConnection = connection;
+        sentPan = p;
+        sentTilt = t;
+        sent++;
+        if (state != null) state.onHeadTarget(p, t);
+        return true;
+    }
+
+    // Exponential approach to the target, capped at MAX_SPEED on each axis
+    private void follow(float toPan, float toTilt, long dtNanos) {
+        if (dtNanos <= 0) return;
+        float fraction = 1f - (float) Math.exp(-dtNanos / (double) smoothingNanos);
+        float maxStep = MAX_SPEED_DEGREES_PER_S * dtNanos / 1e9f;
+        pan += limit((toPan - pan) * fraction, maxStep);
+        tilt += limit((toTilt - tilt) * fraction, maxStep);
+        // Settle exactly rather than creeping ever closer
+        if (Math.abs(toPan - pan) < 0.01f) pan = toPan;
+        if (Math.abs(toTilt - tilt) < 0.01f) tilt = toTilt;
+    }
+
+    private static float limit(float step, float max) {
+        return step > max ? max : (step < -max ? -max : step);
+    }
+
+    private static float clamp(float v) {
+        // NaN from a bad touch becomes centre
+        return v > 1f ? 1f : (v < -1f ? -1f : (v == v ? v : 0f));
+    }
+
+    // ========== SETTINGS ==========
+
+    /** Targets sent per second at most; 50 by default. */
+    void setRateHz(int hz) {
+        if (hz <= 0 || hz > 1000) {
+            throw new IllegalArgumentException("Rate must be 1..1000 Hz: " + hz);
+        }
+        periodNanos = 1_000_000_000L / hz;
+    }
+
+    /**
+     * How long the head takes to close most of the way on a new target; 60 ms by default. 0
+     * follows the pad as fast as MAX_SPEED_DEGREES_PER_S allows.
+     */
+    void setSmoothingMillis(long millis) {
+        smoothingNanos = Math.max(1L, millis * 1_000_000L);
+    }
+
+    // ========== METRICS ==========
+
+    /** Smoothed position in degrees, as of the last tick. Ticking thread only. */
+    float getPan() {
+        return pan;
+    }
+
+    float getTilt() {
+        return tilt;
+    }
+
+    /** Targets queued for the robot. */
+    long getSentCount() {
+        return sent;
+    }
+
+    /** Ticks skipped because the previous target still awaited its ack. */
+    long getHeldCount() {
+        return held;
+    }
+
+    /** Ticks with nothing new to send: the head had reached the target. */
+    long getUnchangedCount() {
+        return unchanged;
+    }
+}
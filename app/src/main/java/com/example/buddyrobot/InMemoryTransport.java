@@ -0,0 +1,197 @@
+// InMemoryTransport - RobotTransport over in-process pipes, for tests and benchmarks
+// The test plays the robot through robotInput() (what the app sent) and robotOutput()
+// (what the app will read). Pipes are bounded, so a robot that stops reading stalls the
+// writer the way a full RFCOMM buffer does. Every app-side write() is counted as a packet.
+package com.example.buddyrobot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+final class InMemoryTransport implements RobotTransport {
+
+    static final int DEFAULT_BUFFER_BYTES = 4096;
+
+    private final int bufferBytes;
+    private final Pipe toRobot;
+    private final Pipe fromRobot;
+    private volatile boolean opened = false;
+    private volatile long writes = 0;
+
+    InMemoryTransport() {
+        this(DEFAULT_BUFFER_BYTES);
+    }
+
+    InMemoryTransport(int bufferBytes) {
+        this.bufferBytes = bufferBytes;
+        toRobot = new Pipe(bufferBytes, true);
+        fromRobot = new Pipe(bufferBytes, false);
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (toRobot.isClosed()) throw new IOException("Transport closed");
+        opened = true;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        checkOpen();
+        return fromRobot.source;
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        checkOpen();
+        return toRobot.sink;
+    }
+
+    @Override
+    public void close() {
+        toRobot.close();
+        fromRobot.close();
+    }
+
+    @Override
+    public String getName() {
+        return "in-memory";
+    }
+
+    /** A fresh pair of pipes; the test plays the robot on the new transport from then on. */
+    @Override
+    public RobotTransport reopen() {
+        return new InMemoryTransport(bufferBytes);
+    }
+
+    // ========== ROBOT SIDE ==========
+
+    /** What the app wrote, for the test acting as the robot. */
+    InputStream robotInput() {
+        return toRobot.source;
+    }
+
+    /** Replies from the test acting as the robot. */
+    OutputStream robotOutput() {
+        return fromRobot.sink;
+    }
+
+    /** App-side write() calls so far. */
+    long getWriteCount() {
+        return writes;
+    }
+
+    private void checkOpen() throws IOException {
+        if (!opened) throw new IOException("Transport not open");
+    }
+
+    // Bounded byte ring; reads after close() still drain what was written
+    private final class Pipe {
+        private final byte[] ring;
+        private final boolean countWrites;
+        private int head = 0;   // guarded by this
+        private int size = 0;
+        private boolean closed = false;
+
+        final InputStream source = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return Pipe.this.read(b, off, len);
+            }
+
+            @Override
+            public int available() {
+                return Pipe.this.available();
+            }
+
+            @Override
+            public void close() {
+                Pipe.this.close();
+            }
+        };
+
+        final OutputStream sink = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (countWrites) writes++;
+                Pipe.this.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                Pipe.this.close();
+            }
+        };
+
+        Pipe(int bufferBytes, boolean countWrites) {
+            this.ring = new byte[bufferBytes];
+            this.countWrites = countWrites;
+        }
+
+        synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (size == 0 && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted", e);
+                }
+            }
+            if (size == 0) return -1;
+            int n = Math.min(len, size);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = ring[(head + i) % ring.length];
+            }
+            head = (head + n) % ring.length;
+            size -= n;
+            notifyAll();
+            return n;
+        }
+
+        synchronized void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                while (size == ring.length && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted", e);
+                    }
+                }
+                if (closed) throw new IOException("Transport closed");
+                int n = Math.min(len, ring.length - size);
+                for (int i = 0; i < n; i++) {
+                    ring[(head + size + i) % ring.length] = b[off + i];
+                }
+                size += n;
+                off += n;
+                len -= n;
+                notifyAll();
+            }
+        }
+
+        synchronized int available() {
+            return size;
+        }
+
+        synchronized boolean isClosed() {
+            return closed;
+        }
+
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+}
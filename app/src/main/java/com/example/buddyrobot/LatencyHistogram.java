@@ -0,0 +1,97 @@
+// LatencyHistogram - lock-free log-linear histogram of durations for percentile reporting
+// 16 buckets per power of two of microseconds (at most 6.25% error), recorded with atomic
+// increments so the UI, writer and reader threads can all record without a lock
+package com.example.buddyrobot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Octaves above the linear range; the top bucket starts at about 19 hours
+    private static final int OCTAVES = 33;
+    private static final int BUCKETS = SUB_BUCKETS + OCTAVES * SUB_BUCKETS;
+    private static final long NANOS_PER_MICRO = 1000L;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /** Records one duration; negative durations (clock skew between stages) count as 0. */
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucket(nanos / NANOS_PER_MICRO));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long seen;
+        while (nanos > (seen = max.get())) {
+            if (max.compareAndSet(seen, nanos)) break;
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public float getMeanMs() {
+        long n = count.get();
+        return n == 0 ? 0f : sum.get() / (n * 1e6f);
+    }
+
+    public float getMaxMs() {
+        return max.get() / 1e6f;
+    }
+
+    /**
+     * Duration that fraction of samples stayed within: the upper edge of the bucket holding
+     * the sample at that rank, capped at the maximum. Concurrent recording may be partly seen.
+     *
+     * @param fraction 0..1, e.g. 0.95 for p95
+     */
+    public float getPercentileMs(float fraction) {
+        long n = count.get();
+        if (n == 0) return 0f;
+        long rank = Math.max(1, (long) Math.ceil(Math.max(0f, Math.min(1f, fraction)) * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(max.get(), upperEdgeMicros(i) * NANOS_PER_MICRO) / 1e6f;
+            }
+        }
+        return getMaxMs();
+    }
+
+    /** Not atomic with respect to concurrent recording; samples racing a reset may survive it. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    // ========== BUCKETS ==========
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int octave = exponent - SUB_BITS + 1;
+        if (octave > OCTAVES) return BUCKETS - 1;
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return octave * SUB_BUCKETS + sub;
+    }
+
+    // Smallest value in the next bucket, so every value in bucket i is below it
+    static long upperEdgeMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket + 1;
+        int octave = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        int shift = octave - 1;
+        return (long) (SUB_BUCKETS + sub + 1) << shift;
+    }
+}
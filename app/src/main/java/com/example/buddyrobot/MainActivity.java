@@ -22,6 +22,7 @@ import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Set;
 
@@ -31,7 +32,9 @@ public class MainActivity extends AppCompatActivity {
     private TextView statusText;
     private View statusDot;
     private MaterialButton connectButton;
+    private HeadPadView headPad;
     private MaterialButton btnHeadUp, btnHeadDown, btnHeadLeft, btnHeadRight, btnHeadCenter;
+    private boolean headStreaming = false;  // pad on a binary link, else one step per tap
     private Chip btnHappy, btnSad, btnSurprise, btnAngry, btnLove, btnSleepy;
     private Chip btnExcited, btnConfused, btnCool, btnShy, btnThinking, btnLaughing;
     private FaceView faceView;
@@ -55,9 +58,10 @@ public class MainActivity extends AppCompatActivity {
     private Handler expressionHandler;
     private Runnable expressionRunnable;
     private int currentExpressionIndex = 0;
-    private String[] expressions = {
-            "HAPPY", "SAD", "SURPRISE", "ANGRY", "LOVE", "SLEEPY",
-            "EXCITED", "CONFUSED", "COOL", "SHY", "THINKING", "LAUGHING"
+    private Expression[] expressions = {
+            Expression.HAPPY, Expression.SAD, Expression.SURPRISE, Expression.ANGRY,
+            Expression.LOVE, Expression.SLEEPY, Expression.EXCITED, Expression.CONFUSED,
+            Expression.COOL, Expression.SHY, Expression.THINKING, Expression.LAUGHING
     };
 
     @Override
@@ -80,6 +84,12 @@ public class MainActivity extends AppCompatActivity {
 
             // Check permissions
             checkBluetoothPermissions();
+
+            // After an automatic reconnect, the robot is put back to the face on screen
+            bluetoothManager.setExpressionSource(() -> faceView.getExpression());
+
+            // The movement pad steers the head through a continuous stream of targets
+            bluetoothManager.startHeadStream();
             */
 
             // Initialize UI components
@@ -91,6 +101,9 @@ public class MainActivity extends AppCompatActivity {
             // Setup minimize/maximize functionality
             setupMinimizeMaximize();
 
+            // Long-press the face for frame timing
+            setupMetricsOverlay();
+
             // Start auto expression cycling
             startAutoExpressionCycle();
 
@@ -136,12 +149,15 @@ public class MainActivity extends AppCompatActivity {
         fabMinimize = findViewById(R.id.fabMinimize);
         statusContainer = findViewById(R.id.statusContainer);
 
-        // Movement buttons
+        // Movement pad and buttons
+        headPad = findViewById(R.id.headPad);
         btnHeadUp = findViewById(R.id.btnHeadUp);
         btnHeadDown = findViewById(R.id.btnHeadDown);
         btnHeadLeft = findViewById(R.id.btnHeadLeft);
         btnHeadRight = findViewById(R.id.btnHeadRight);
         btnHeadCenter = findViewById(R.id.btnHeadCenter);
+        // Text firmware, which all robots run so far, only knows steps
+        showHeadControls(false);
 
         // Expression chips
         btnHappy = findViewById(R.id.btnHappy);
@@ -175,6 +191,21 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    // ========== FRAME METRICS OVERLAY ==========
+
+    private void setupMetricsOverlay() {
+        if (faceCard == null) return;
+        faceCard.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                boolean enabled = !faceView.isMetricsOverlayEnabled();
+                faceView.setMetricsOverlayEnabled(enabled);
+                showToast(enabled ? "Frame metrics on" : "Frame metrics off");
+                return true;
+            }
+        });
+    }
+
     // ========== MINIMIZE/MAXIMIZE FUNCTIONALITY ==========
 
     private void setupMinimizeMaximize() {
@@ -251,7 +282,17 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
-        // Movement buttons - NOW WORKS WITHOUT CONNECTION
+        // Movement pad - streams head targets while dragged, NOW WORKS WITHOUT CONNECTION
+        if (headPad != null) {
+            headPad.setListener(new HeadPadView.Listener() {
+                @Override
+                public void onTarget(float x, float y) {
+                    sendHeadTarget(x, y);
+                }
+            });
+        }
+
+        // Movement buttons - one step per tap, for links without the head stream
         if (btnHeadUp != null) {
             btnHeadUp.setOnClickListener(new View.OnClickListener() {
                 @Override
@@ -292,7 +333,12 @@ public class MainActivity extends AppCompatActivity {
             btnHeadCenter.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    sendCommand("HEAD:CENTER");
+                    // With the pad the head glides back through the stream rather than jumping
+                    if (headStreaming && headPad != null) {
+                        headPad.center();
+                    } else {
+                        sendCommand("HEAD:CENTER");
+                    }
                 }
             });
         }
@@ -303,7 +349,7 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     stopAutoExpressionCycle();
-                    sendCommand("EXPR:HAPPY");
+                    sendExpression(Expression.HAPPY);
                 }
             });
         }
@@ -313,7 +359,7 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     stopAutoExpressionCycle();
-                    sendCommand("EXPR:SAD");
+                    sendExpression(Expression.SAD);
                 }
             });
         }
@@ -323,7 +369,7 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     stopAutoExpressionCycle();
-                    sendCommand("EXPR:SURPRISE");
+                    sendExpression(Expression.SURPRISE);
                 }
             });
         }
@@ -333,7 +379,7 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     stopAutoExpressionCycle();
-                    sendCommand("EXPR:ANGRY");
+                    sendExpression(Expression.ANGRY);
                 }
             });
         }
@@ -343,7 +389,7 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     stopAutoExpressionCycle();
-                    sendCommand("EXPR:LOVE");
+                    sendExpression(Expression.LOVE);
                 }
             });
         }
@@ -353,7 +399,7 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     stopAutoExpressionCycle();
-                    sendCommand("EXPR:SLEEPY");
+                    sendExpression(Expression.SLEEPY);
                 }
             });
         }
@@ -363,7 +409,7 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     stopAutoExpressionCycle();
-                    sendCommand("EXPR:EXCITED");
+                    sendExpression(Expression.EXCITED);
                 }
             });
         }
@@ -373,7 +419,7 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     stopAutoExpressionCycle();
-                    sendCommand("EXPR:CONFUSED");
+                    sendExpression(Expression.CONFUSED);
                 }
             });
         }
@@ -383,7 +429,7 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     stopAutoExpressionCycle();
-                    sendCommand("EXPR:COOL");
+                    sendExpression(Expression.COOL);
                 }
             });
         }
@@ -393,7 +439,7 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     stopAutoExpressionCycle();
-                    sendCommand("EXPR:SHY");
+                    sendExpression(Expression.SHY);
                 }
             });
         }
@@ -403,7 +449,7 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     stopAutoExpressionCycle();
-                    sendCommand("EXPR:THINKING");
+                    sendExpression(Expression.THINKING);
                 }
             });
         }
@@ -413,7 +459,7 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     stopAutoExpressionCycle();
-                    sendCommand("EXPR:LAUGHING");
+                    sendExpression(Expression.LAUGHING);
                 }
             });
         }
@@ -427,7 +473,7 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void run() {
                 // Change to next expression
-                String expression = expressions[currentExpressionIndex];
+                Expression expression = expressions[currentExpressionIndex];
 
                 if (faceView != null) {
                     faceView.setExpression(expression);
@@ -462,8 +508,8 @@ public class MainActivity extends AppCompatActivity {
                 return;
             }
 
-            // Show device selection dialog
-            showDeviceSelectionDialog();
+            // Look for the robot among the paired devices; pick by hand if it isn't found
+            findRobot();
         } else {
             // Disconnect
             bluetoothManager.disconnect();
@@ -473,6 +519,31 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    private void findRobot() {
+        Set<BluetoothDevice> pairedDevices = bluetoothManager.getPairedDevices();
+        if (pairedDevices == null || pairedDevices.isEmpty()) {
+            showToast("No paired devices found. Please pair your ESP32 first.");
+            return;
+        }
+
+        showToast("Looking for BUDDY...");
+        bluetoothManager.probeAndConnect(pairedDevices, new BluetoothManager.ConnectCallback() {
+            @Override
+            public void onConnected(RobotTransport transport) {
+                runOnUiThread(() -> {
+                    isConnected = true;
+                    updateConnectionStatus(true);
+                    showToast("Connected to " + transport.getName());
+                });
+            }
+
+            @Override
+            public void onConnectFailed(IOException cause) {
+                runOnUiThread(() -> showDeviceSelectionDialog());
+            }
+        });
+    }
+
     private void showDeviceSelectionDialog() {
         try {
             Set<BluetoothDevice> pairedDevices = bluetoothManager.getPairedDevices();
@@ -514,23 +585,27 @@ public class MainActivity extends AppCompatActivity {
     private void connectToDevice(String address) {
         showToast("Connecting...");
 
-        // Connect in background thread
-        new Thread(() -> {
-            boolean success = bluetoothManager.connect(address);
-
-            runOnUiThread(() -> {
-                if (success) {
+        // Connects on the manager's connector threads, with a deadline
+        bluetoothManager.connectAsync(address, new BluetoothManager.ConnectCallback() {
+            @Override
+            public void onConnected(RobotTransport transport) {
+                runOnUiThread(() -> {
                     isConnected = true;
                     updateConnectionStatus(true);
                     showToast("Connected to BUDDY!");
-                } else {
-                    showToast("Connection failed. Try again.");
-                }
-            });
-        }).start();
+                });
+            }
+
+            @Override
+            public void onConnectFailed(IOException cause) {
+                showToast("Connection failed. Try again.");
+            }
+        });
     }
 
     private void updateConnectionStatus(boolean connected) {
+        // The pad needs binary frames; text firmware keeps the step buttons
+        showHeadControls(connected && bluetoothManager.isBinaryProtocol());
         try {
             if (connected) {
                 statusText.setText("Connected");
@@ -561,7 +636,21 @@ public class MainActivity extends AppCompatActivity {
     }
     */
 
+    // The drag pad when the link carries the head stream, otherwise the four step buttons
+    private void showHeadControls(boolean streaming) {
+        headStreaming = streaming;
+        int steps = streaming ? View.GONE : View.VISIBLE;
+        if (headPad != null) headPad.setVisibility(streaming ? View.VISIBLE : View.GONE);
+        if (btnHeadUp != null) btnHeadUp.setVisibility(steps);
+        if (btnHeadDown != null) btnHeadDown.setVisibility(steps);
+        if (btnHeadLeft != null) btnHeadLeft.setVisibility(steps);
+        if (btnHeadRight != null) btnHeadRight.setVisibility(steps);
+    }
+
     private void sendCommand(String command) {
+        // Command latency is measured from here, the tap as the UI thread sees it
+        long tapNanos = System.nanoTime();
+
         // BLUETOOTH SENDING COMMENTED
         /*
         if (!isConnected) {
@@ -572,21 +661,31 @@ public class MainActivity extends AppCompatActivity {
 
         try {
             // BLUETOOTH SEND COMMENTED
-            // bluetoothManager.sendData("<" + command + ">");
+            // bluetoothManager.sendData("<" + command + ">", tapNanos);
 
             showToast("Command: " + command);
-
-            // Update face expression locally
-            if (command.startsWith("EXPR:") && faceView != null) {
-                String expression = command.substring(5); // Remove "EXPR:"
-                faceView.setExpression(expression);
-            }
         } catch (Exception e) {
             showToast("Error sending command");
             e.printStackTrace();
         }
     }
 
+    // Called on every touch event of the pad, so no toast and nothing allocated here; the
+    // head stream sends the newest target 50 times a second
+    private void sendHeadTarget(float x, float y) {
+        // BLUETOOTH SEND COMMENTED
+        // bluetoothManager.setHeadTarget(x, y);
+    }
+
+    private void sendExpression(Expression expression) {
+        sendCommand(expression.getCommand());
+
+        // Update face expression locally
+        if (faceView != null) {
+            faceView.setExpression(expression);
+        }
+    }
+
     private void showToast(String message) {
         runOnUiThread(new Runnable() {
             @Override
@@ -623,7 +722,8 @@ public class MainActivity extends AppCompatActivity {
         /*
         try {
             if (bluetoothManager != null) {
-                bluetoothManager.disconnect();
+                bluetoothManager.dumpLatency();
+                bluetoothManager.shutdown();
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,11 @@
+// OutagePolicy - what happens to commands sent while the robot link is reconnecting
+package com.example.buddyrobot;
+
+public enum OutagePolicy {
+    /** Refuse them; sendData() returns false. */
+    DROP,
+    /** Keep only the newest, sent once the robot's state has been replayed. */
+    KEEP_LATEST,
+    /** Keep them in order, up to the send queue's capacity, and send them after the replay. */
+    QUEUE
+}
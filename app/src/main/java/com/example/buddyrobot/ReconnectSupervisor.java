@@ -0,0 +1,321 @@
+// ReconnectSupervisor - brings a lost robot link back and restores what the robot was showing
+// When the writer thread reports the link lost, reconnects are retried with jittered
+// exponential backoff until one succeeds or stop() is called. The robot may have reset in the
+// meantime, so the expression and head position (RobotState) are replayed before anything
+// else is sent. Commands issued during the outage follow the OutagePolicy.
+package com.example.buddyrobot;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+final class ReconnectSupervisor {
+
+    /** Reconnect progress; called on the supervisor thread. */
+    interface Listener {
+        void onReconnecting(int attempt, long delayMs, IOException cause);
+
+        void onReconnected(RobotTransport transport, int attempts);
+
+        /** Reconnecting stopped because the lost transport could not be reopened. */
+        void onGaveUp(RuntimeException cause);
+    }
+
+    static final long DEFAULT_INITIAL_DELAY_MS = 250;
+    static final long DEFAULT_MAX_DELAY_MS = 8000;
+    static final long DEFAULT_CONNECT_TIMEOUT_MS = 4000;
+
+    private final RobotLink link;
+    private final RobotConnector connector;
+    private final Listener listener;
+    private final RobotState state = new RobotState();
+    private final Random random = new Random();
+    private final ScheduledExecutorService scheduler;
+
+    private volatile OutagePolicy policy = OutagePolicy.KEEP_LATEST;
+    private volatile Supplier<Expression> expressionSource;    // e.g. FaceView::getExpression
+    private volatile HeadStream headStream;
+    private volatile long initialDelayMs = DEFAULT_INITIAL_DELAY_MS;
+    private volatile long maxDelayMs = DEFAULT_MAX_DELAY_MS;
+    private volatile long connectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
+
+    // Outage; guarded by this
+    private volatile boolean reconnecting = false;
+    private RobotTransport lost;            // reopened for every attempt
+    private int attempt;
+    private Future<RobotConnector.Connection> pending;
+    private final ArrayDeque<String> outageCommands = new ArrayDeque<>();
+    private final ArrayDeque<Long> outageTaps = new ArrayDeque<>();
+    private long dropped = 0;
+    private long reconnects = 0;
+
+    ReconnectSupervisor(RobotLink link, RobotConnector connector, Listener listener) {
+        this.link = link;
+        this.connector = connector;
+        this.listener = listener;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "robot-reconnect");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // ========== SENDING ==========
+
+    /**
+     * Sends through the link, or applies the outage policy while reconnecting.
+     *
+     * @return false if the command was refused or dropped
+     */
+    boolean send(String data, long tapNanos) {
+        if (!reconnecting) return sendNow(data, tapNanos);
+        synchronized (this) {
+            if (!reconnecting) return sendNow(data, tapNanos);
+            switch (policy) {
+                case DROP:
+                    dropped++;
+                    return false;
+                case KEEP_LATEST:
+                    dropped += outageCommands.size();
+                    outageCommands.clear();
+                    outageTaps.clear();
+                    break;
+                default:
+                    if (outageCommands.size() == RobotLink.QUEUE_CAPACITY) {
+                        outageCommands.removeFirst();
+                        outageTaps.removeFirst();
+                        dropped++;
+                    }
+                    break;
+            }
+            outageCommands.addLast(data);
+            outageTaps.addLast(tapNanos);
+            return true;
+        }
+    }
+
+    private boolean sendNow(String data, long tapNanos) {
+        if (!link.send(data, tapNanos)) return false;
+        state.onCommand(data);
+        return true;
+    }
+
+    // ========== RECONNECTING ==========
+
+    /**
+     * The link is failing but not yet down; commands from here on follow the outage policy
+     * instead of being refused. Call from RobotLink.Listener.
+     */
+    synchronized void onLinkFailing(RobotTransport transport) {
+        if (reconnecting || scheduler.isShutdown()) return;
+        reconnecting = true;
+        lost = transport;
+        attempt = 0;
+    }
+
+    /** The link failed; starts reconnecting to the same robot. Call from RobotLink.Listener. */
+    synchronized void onLinkLost(RobotTransport transport, IOException cause) {
+        if (scheduler.isShutdown()) return;
+        if (!reconnecting) {
+            onLinkFailing(transport);
+        } else if (lost != transport || attempt > 0) {
+            return;     // already reconnecting
+        }
+        scheduleAttempt(cause);
+    }
+
+    /** Gives up reconnecting, e.g. the operator disconnected; outage commands are dropped. */
+    synchronized void stop() {
+        reconnecting = false;
+        lost = null;
+        if (pending != null) pending.cancel(false);
+        dropped += outageCommands.size();
+        outageCommands.clear();
+        outageTaps.clear();
+    }
+
+    /** Stops for good and ends the supervisor thread. */
+    void shutdown() {
+        stop();
+        scheduler.shutdownNow();
+    }
+
+    boolean isReconnecting() {
+        return reconnecting;
+    }
+
+    // Caller holds the lock
+    private void scheduleAttempt(IOException cause) {
+        long delay = backoffMillis(attempt, initialDelayMs, maxDelayMs, random);
+        attempt++;
+        if (listener != null) listener.onReconnecting(attempt, delay, cause);
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                tryReconnect();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void tryReconnect() {
+        Future<RobotConnector.Connection> future = null;
+        RuntimeException broken = null;
+        synchronized (this) {
+            if (!reconnecting) return;
+            try {
+                future = connector.connect(lost.reopen(), connectTimeoutMs,
+                        link.isBinaryProtocolEnabled(), null);
+                pending = future;
+            } catch (RuntimeException e) {
+                // Not a fault of the link: the next attempt would fail the same way, and
+                // left like this the supervisor would stay reconnecting for good
+                broken = e;
+                stop();
+            }
+        }
+        if (broken != null) {
+            if (listener != null) listener.onGaveUp(broken);
+            return;
+        }
+        RobotConnector.Connection connection;
+        try {
+            connection = future.get();
+        } catch (ExecutionException e) {
+            retry(e.getCause() instanceof IOException ? (IOException) e.getCause()
+                    : new IOException(e.getCause()));
+            return;
+        } catch (CancellationException e) {
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        int attempts;
+        synchronized (this) {
+            pending = null;
+            if (!reconnecting) {
+                connection.transport.close();   // stopped while connecting
+                return;
+            }
+            try {
+                link.attach(connection.transport, connection.binary);
+            } catch (IOException e) {
+                connection.transport.close();
+                scheduleAttempt(e);
+                return;
+            }
+            replay();
+            while (!outageCommands.isEmpty()) {
+                sendNow(outageCommands.removeFirst(), outageTaps.removeFirst());
+            }
+            reconnecting = false;
+            lost = null;
+            attempts = attempt;
+            reconnects++;
+        }
+        if (listener != null) listener.onReconnected(connection.transport, attempts);
+    }
+
+    private synchronized void retry(IOException cause) {
+        pending = null;
+        if (reconnecting) scheduleAttempt(cause);
+    }
+
+    // Expression first, then the head: back to its last target, or centre, and out by the steps
+    // taken since. A running HeadStream sends its position to each new connection itself, and
+    // a CENTER here would replace that in the queue
+    private void replay() {
+        long now = System.nanoTime();
+        Supplier<Expression> source = expressionSource;
+        Expression expression = source != null ? source.get() : state.getExpression();
+        if (expression != null) sendNow("<" + expression.getCommand() + ">", now);
+        HeadStream stream = headStream;
+        if (stream != null && stream.isRunning()) return;
+        int x = state.getHeadX();
+        int y = state.getHeadY();
+        boolean counted = link.isBinaryProtocol();
+        // Text firmware knows no targets; centre is the nearest it gets
+        if (counted && state.isHeadTargeted()) {
+            link.sendHeadTarget(state.getTargetPan(), state.getTargetTilt(), now);
+        } else {
+            sendNow("<HEAD:CENTER>", now);
+        }
+        if (x != 0) sendHead(x < 0 ? "LEFT" : "RIGHT", Math.abs(x), counted, now);
+        if (y != 0) sendHead(y > 0 ? "UP" : "DOWN", Math.abs(y), counted, now);
+    }
+
+    // Text firmware only knows single steps; the queue batches them into one write
+    private void sendHead(String direction, int steps, boolean counted, long now) {
+        if (counted && steps > 1) {
+            sendNow("<HEAD:" + direction + ":" + steps + ">", now);
+            return;
+        }
+        for (int i = 0; i < steps; i++) {
+            sendNow("<HEAD:" + direction + ">", now);
+        }
+    }
+
+    /**
+     * Delay before reconnect attempt n (from 0): initialMs doubled per attempt up to maxMs,
+     * then jittered down by up to half, so several phones don't retry in lockstep.
+     */
+    static long backoffMillis(int attempt, long initialMs, long maxMs, Random random) {
+        long delay = initialMs << Math.min(attempt, 20);
+        delay = Math.min(Math.max(delay, initialMs), maxMs);
+        long half = delay / 2;
+        return delay - half + (half > 0 ? (long) (random.nextDouble() * (half + 1)) : 0);
+    }
+
+    // ========== SETTINGS ==========
+
+    void setOutagePolicy(OutagePolicy policy) {
+        this.policy = policy;
+    }
+
+    /** Where the replayed expression comes from; by default the last one sent. */
+    void setExpressionSource(Supplier<Expression> source) {
+        this.expressionSource = source;
+    }
+
+    /** The stream steering the head, if any; while it runs, replay leaves the head to it. */
+    void setHeadStream(HeadStream stream) {
+        this.headStream = stream;
+    }
+
+    void setBackoff(long initialDelayMs, long maxDelayMs) {
+        this.initialDelayMs = Math.max(1, initialDelayMs);
+        this.maxDelayMs = Math.max(this.initialDelayMs, maxDelayMs);
+    }
+
+    void setConnectTimeoutMillis(long millis) {
+        connectTimeoutMs = millis;
+    }
+
+    // ========== METRICS ==========
+
+    RobotState getState() {
+        return state;
+    }
+
+    /** Commands refused or discarded during outages. */
+    synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /** Outages recovered from. */
+    synchronized long getReconnectCount() {
+        return reconnects;
+    }
+}
@@ -0,0 +1,77 @@
+// RfcommTransport - RobotTransport over a Bluetooth SPP (RFCOMM) socket to the ESP32
+package com.example.buddyrobot;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+
+final class RfcommTransport implements RobotTransport {
+
+    // Serial Port Profile
+    private static final UUID SPP_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
+
+    private final BluetoothDevice device;
+    private volatile BluetoothSocket socket;
+    // Set by close(), which may come before open() has a socket to close
+    private volatile boolean closed = false;
+
+    RfcommTransport(BluetoothDevice device) {
+        this.device = device;
+    }
+
+    @Override
+    public void open() throws IOException {
+        BluetoothSocket s = device.createRfcommSocketToServiceRecord(SPP_UUID);
+        socket = s;
+        abortIfClosed(s);
+        s.connect();
+        // A close() racing connect() may have found the socket not yet connecting
+        abortIfClosed(s);
+    }
+
+    private void abortIfClosed(BluetoothSocket s) throws IOException {
+        if (!closed) return;
+        closeQuietly(s);
+        throw new IOException("Closed while opening " + getName());
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return socket.getInputStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return socket.getOutputStream();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        BluetoothSocket s = socket;
+        if (s != null) closeQuietly(s);
+    }
+
+    private static void closeQuietly(BluetoothSocket s) {
+        try {
+            s.close();
+        } catch (IOException ignored) {
+            // already gone
+        }
+    }
+
+    @Override
+    public RobotTransport reopen() {
+        return new RfcommTransport(device);
+    }
+
+    @Override
+    public String getName() {
+        String name = device.getName();
+        return name != null ? name : device.getAddress();
+    }
+}
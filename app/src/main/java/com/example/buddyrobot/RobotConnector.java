@@ -0,0 +1,270 @@
+// RobotConnector - opens robot links off the caller's thread, each within a deadline
+// A transport still opening when its deadline passes is closed, which makes a blocked
+// RFCOMM connect() fail instead of hanging for the stack's own timeout. probe() opens
+// several candidates at once and keeps the first that answers the robot handshake, so the
+// operator doesn't have to guess which paired device is the robot.
+package com.example.buddyrobot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+final class RobotConnector {
+
+    /** Where a connection attempt ends; called once, on a connector thread. */
+    interface Callback {
+        void onConnected(Connection connection);
+
+        void onFailed(IOException cause);
+    }
+
+    /** An open transport that has been through the handshake, ready for RobotLink.attach(). */
+    static final class Connection {
+        final RobotTransport transport;
+        final boolean binary;       // the robot answered the hello and expects binary frames
+        final long elapsedNanos;    // from the connect() or probe() call
+
+        Connection(RobotTransport transport, boolean binary, long elapsedNanos) {
+            this.transport = transport;
+            this.binary = binary;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+    /** Opens running at once; more candidates than this wait for a free thread. */
+    static final int THREADS = 4;
+
+    private final ScheduledExecutorService executor;
+
+    RobotConnector() {
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(THREADS,
+                new ThreadFactory() {
+                    private int count = 0;
+
+                    @Override
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "robot-connect-" + ++count);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        pool.setRemoveOnCancelPolicy(true);
+        executor = pool;
+    }
+
+    /**
+     * Opens transport and runs the handshake (when offerBinary), giving up after timeoutMs.
+     *
+     * @param callback may be null; the returned future completes the same way
+     */
+    Future<Connection> connect(RobotTransport transport, long timeoutMs, boolean offerBinary,
+                               Callback callback) {
+        List<RobotTransport> candidates = new ArrayList<>(1);
+        candidates.add(transport);
+        return probe(candidates, timeoutMs, offerBinary, callback);
+    }
+
+    /**
+     * Opens every candidate in parallel and keeps the first that answers the handshake; the
+     * others are closed. Older firmware never answers, so when none does by the deadline the
+     * first candidate that opened is kept instead. With offerBinary false no hello is sent and
+     * the first to open wins.
+     *
+     * @param callback may be null; the returned future completes the same way. Cancelling the
+     *                 future closes every candidate.
+     */
+    Future<Connection> probe(List<RobotTransport> candidates, long timeoutMs, boolean offerBinary,
+                             Callback callback) {
+        Probe probe = new Probe(candidates, offerBinary, callback);
+        if (candidates.isEmpty()) {
+            probe.finish();
+            return probe.result;
+        }
+        probe.deadline = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                probe.expire();
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < candidates.size(); i++) {
+            final int index = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    probe.attempt(index);
+                }
+            });
+        }
+        return probe.result;
+    }
+
+    /** Stops the connector threads; attempts in progress are closed by their deadlines. */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    // ========== PROBE ==========
+
+    // One connect() or probe() call; candidates report here as they open, answer or fail
+    private static final class Probe {
+        // Candidate states; 0 until its attempt starts
+        private static final int OPENING = 1, SILENT = 2, DONE = 3;
+
+        private final List<RobotTransport> candidates;
+        private final boolean offerBinary;
+        private final Callback callback;
+        private final long startNanos = System.nanoTime();
+        private final int[] states;
+        private final CompletableFuture<Connection> result = new CompletableFuture<Connection>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                synchronized (Probe.this) {
+                    if (settled) return false;
+                    settled = true;
+                }
+                closeAll(-1);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        volatile ScheduledFuture<?> deadline;
+
+        // Guarded by this
+        private boolean settled = false;    // a candidate won, the probe failed or was cancelled
+        private int silent = -1;    // first candidate that opened without answering
+        private int finished = 0;
+        private boolean expired = false;
+        private IOException lastError;
+
+        Probe(List<RobotTransport> candidates, boolean offerBinary, Callback callback) {
+            this.candidates = new ArrayList<>(candidates);
+            this.offerBinary = offerBinary;
+            this.callback = callback;
+            this.states = new int[candidates.size()];
+        }
+
+        void attempt(int index) {
+            RobotTransport transport = candidates.get(index);
+            boolean late;
+            synchronized (this) {
+                late = expired || settled;
+                states[index] = late ? DONE : OPENING;
+            }
+            if (late) {
+                failed(index, null);
+                return;
+            }
+            try {
+                transport.open();
+                boolean answered = offerBinary && RobotLink.handshake(transport);
+                opened(index, answered || !offerBinary, answered);
+            } catch (IOException e) {
+                transport.close();
+                failed(index, e);
+            }
+        }
+
+        // Closes every candidate still open or opening, except keep
+        void closeAll(int keep) {
+            for (int i = 0; i < candidates.size(); i++) {
+                if (i != keep) candidates.get(i).close();
+            }
+        }
+
+        private void opened(int index, boolean wins, boolean binary) {
+            boolean late;
+            boolean last;
+            synchronized (this) {
+                finished++;
+                last = finished == candidates.size();
+                late = expired || settled;
+                states[index] = late ? DONE : SILENT;
+                if (!late && silent < 0) silent = index;
+            }
+            if (late) {
+                // expire() closed it while it was opening, or another candidate already won
+                candidates.get(index).close();
+                if (last) finish();
+            } else if (wins) {
+                complete(index, binary);
+            } else if (last) {
+                finish();
+            }
+        }
+
+        private void failed(int index, IOException error) {
+            boolean last;
+            synchronized (this) {
+                states[index] = DONE;
+                finished++;
+                if (error != null) lastError = error;
+                last = finished == candidates.size();
+            }
+            if (last) finish();
+        }
+
+        // Deadline: close whatever is still opening; a silent candidate, if any, wins now
+        void expire() {
+            synchronized (this) {
+                expired = true;
+                for (int i = 0; i < states.length; i++) {
+                    if (states[i] == OPENING) candidates.get(i).close();
+                }
+            }
+            finish();
+        }
+
+        // Every attempt is over, or time is up: keep the first silent candidate, or fail
+        void finish() {
+            int keep;
+            IOException cause;
+            synchronized (this) {
+                if (settled) return;
+                keep = silent;
+                if (keep < 0 && finished < candidates.size()) return; // attempts still closing
+                cause = lastError;
+                if (keep < 0) settled = true;
+            }
+            if (keep >= 0) {
+                complete(keep, false);
+            } else {
+                IOException error = new IOException(candidates.isEmpty() ? "No robot to connect to"
+                        : "No robot answered among " + candidates.size() + " devices", cause);
+                ScheduledFuture<?> d = deadline;
+                if (d != null) d.cancel(false);
+                try {
+                    if (callback != null) callback.onFailed(error);
+                } finally {
+                    result.completeExceptionally(error);
+                }
+            }
+        }
+
+        // The callback runs before the future completes, so get() returns once it is done
+        private void complete(int index, boolean binary) {
+            Connection connection = new Connection(candidates.get(index), binary,
+                    System.nanoTime() - startNanos);
+            synchronized (this) {
+                if (settled) {
+                    connection.transport.close();
+                    return;
+                }
+                settled = true;
+            }
+            ScheduledFuture<?> d = deadline;
+            if (d != null) d.cancel(false);
+            closeAll(index);
+            try {
+                if (callback != null) callback.onConnected(connection);
+            } finally {
+                result.complete(connection);
+            }
+        }
+    }
+}
@@ -0,0 +1,413 @@
+// RobotLink - the command pipeline over any RobotTransport: queue, coalescing, framing, batching
+// sendData() queues and returns; a writer thread per connection drains the queue through a
+// CommandBatcher, and a reader thread parses acks and telemetry (TelemetryReader). Plain
+// Java, so the whole path runs under tests and benchmarks on a desktop JVM against
+// InMemoryTransport or TcpTransport; BluetoothManager puts RFCOMM underneath.
+package com.example.buddyrobot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class RobotLink {
+
+    /** Told when a connection fails after connect() returned; called on its writer or reader. */
+    interface Listener {
+        /**
+         * The connection failed and is about to be closed; isConnected() is still true. Whoever
+         * takes over commands during an outage starts here, so none are refused in between.
+         */
+        void onLinkFailing(RobotTransport transport);
+
+        /** The failed connection is closed; isConnected() is false. */
+        void onLinkLost(RobotTransport transport, IOException cause);
+    }
+
+    // Outgoing commands wait here for the writer thread, so a stalled link never blocks
+    // the caller; when it fills up the oldest command is dropped. Queued expressions and
+    // head moves are coalesced, so repeated taps don't pile up in the ESP32's serial buffer.
+    static final int QUEUE_CAPACITY = 32;
+    static final int MAX_COMMAND_BYTES = 64;
+
+    // Binary frames (FrameCodec) when the robot answers the hello on connect, text otherwise
+    static final long NEGOTIATE_TIMEOUT_MS = 300;
+
+    // Commands queued behind each other go out together; a batch of two or more waits at most
+    // this long for further commands before it is written
+    static final long DEFAULT_FLUSH_DEADLINE_MS = 5;
+
+    // Binary frames awaiting the robot's ack (SendWindow); a full window holds commands back
+    // in the queue. 0 sends without waiting, for firmware that doesn't ack
+    static final int DEFAULT_ACK_WINDOW = 8;
+    static final long DEFAULT_ACK_TIMEOUT_MS = 250;
+
+    // Closing the queue and the transport unblocks a writer or reader almost at once
+    private static final long THREAD_EXIT_TIMEOUT_MS = 1000;
+
+    // Per-command timestamps from tap to acknowledgement
+    private final CommandLatency latency = new CommandLatency();
+    private final RobotTelemetry telemetry = new RobotTelemetry();
+    private final CommandQueue sendQueue = new CommandQueue(QUEUE_CAPACITY, MAX_COMMAND_BYTES,
+            CommandQueue.OverflowPolicy.DROP_OLDEST, true);
+    private final Listener listener;
+
+    private volatile RobotTransport transport;
+    private volatile boolean connected = false;
+    private volatile boolean binaryProtocolEnabled = true;
+    private volatile boolean binaryFrames = false;
+    private volatile long flushDeadlineNanos = DEFAULT_FLUSH_DEADLINE_MS * 1_000_000L;
+    private volatile int ackWindow = DEFAULT_ACK_WINDOW;
+    private volatile long ackTimeoutNanos = DEFAULT_ACK_TIMEOUT_MS * 1_000_000L;
+    private volatile CommandBatcher batcher;
+    private volatile SendWindow window;     // null on text links or with the window off
+    private volatile TelemetryReader reader;
+    private volatile int connections = 0;
+    // Of the current or last connection; guarded by this
+    private Thread writer;
+    private Thread readerThread;
+
+    RobotLink(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Opens transport, negotiates the frame format and starts the writer thread. Any previous
+     * connection is closed first. Blocks for as long as the transport takes to open; see
+     * RobotConnector for connecting with a deadline.
+     *
+     * @throws IOException if the transport could not be opened; it is closed again
+     */
+    void connect(RobotTransport transport) throws IOException {
+        disconnect();
+        this.transport = transport;
+        try {
+            transport.open();
+            attach(transport, binaryProtocolEnabled && handshake(transport));
+        } catch (IOException e) {
+            disconnect();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts sending over a transport that is already open and has been through handshake(),
+     * in place of any previous connection.
+     *
+     * @param binary whether the robot answered the handshake and now expects binary frames
+     */
+    synchronized void attach(RobotTransport transport, boolean binary) throws IOException {
+        if (this.transport != transport) disconnect();
+        awaitExit(writer);
+        awaitExit(readerThread);
+        this.transport = transport;
+        InputStream in = transport.getInputStream();
+        OutputStream out = transport.getOutputStream();
+        binaryFrames = binary;
+        int frames = ackWindow;
+        window = binary && frames > 0 ? new SendWindow(frames, ackTimeoutNanos, latency) : null;
+        batcher = new CommandBatcher(sendQueue, latency, MAX_COMMAND_BYTES, binary,
+                flushDeadlineNanos, window);
+        reader = new TelemetryReader(latency, telemetry, binary, window,
+                TelemetryReader.RING_BYTES);
+        AtomicBoolean failed = new AtomicBoolean();
+        sendQueue.setCountedHeadMoves(binary);
+        sendQueue.open();
+        connections++;
+        connected = true;
+        writer = new Thread(new Writer(transport, out, batcher, failed), "robot-writer");
+        readerThread = new Thread(new Reader(transport, in, reader, failed), "robot-reader");
+        writer.start();
+        readerThread.start();
+    }
+
+    // The previous writer must be gone before the queue reopens, or it could take the new
+    // connection's commands and write them to the old, closed transport; likewise only one
+    // reader may publish telemetry
+    private static void awaitExit(Thread previous) throws IOException {
+        if (previous == null || previous == Thread.currentThread()) return;
+        try {
+            previous.join(THREAD_EXIT_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + previous.getName());
+        }
+        if (previous.isAlive()) throw new IOException(previous.getName() + " did not exit");
+    }
+
+    /**
+     * Asks the robot on an open transport for binary frames and waits briefly for its answer.
+     * Firmware that doesn't know the hello ignores it, and the link stays text.
+     *
+     * @return true if the robot answered and expects binary frames from now on
+     */
+    static boolean handshake(RobotTransport transport) throws IOException {
+        return negotiateFrames(transport.getInputStream(), transport.getOutputStream());
+    }
+
+    /**
+     * Queues a command the operator triggered at tapNanos (System.nanoTime()), so its latency
+     * is measured from the tap rather than from this call.
+     *
+     * @return false if not connected or the command could not be queued
+     * @throws IllegalArgumentException if data is longer than MAX_COMMAND_BYTES, or on a binary
+     *         link longer than a frame carries (FrameCodec.MAX_PAYLOAD)
+     */
+    boolean send(String data, long tapNanos) {
+        if (!connected) return false;
+        if (binaryFrames && FrameCodec.textPayloadLength(data) > FrameCodec.MAX_PAYLOAD) {
+            throw new IllegalArgumentException("Command too long for a frame: " + data);
+        }
+        int seq = latency.begin(tapNanos);
+        if (!sendQueue.offer(data, seq)) return false;
+        latency.onEnqueued(seq, System.nanoTime());
+        return true;
+    }
+
+    /**
+     * Queues an absolute head target in degrees from centre, + is right / up, in place of any
+     * head command still waiting, without building its text. For streams of targets; see
+     * HeadStream.
+     *
+     * @return the target's sequence number, for isInFlight(); -1 if not connected or queued
+     */
+    int sendHeadTarget(int pan, int tilt, long tapNanos) {
+        if (!connected) return -1;
+        int seq = latency.begin(tapNanos);
+        if (!sendQueue.offerHeadTarget(pan, tilt, seq)) return -1;
+        latency.onEnqueued(seq, System.nanoTime());
+        return seq;
+    }
+
+    /**
+     * Whether command seq has gone to the robot on this connection and awaits its ack. Only
+     * binary links with an ack window hear of acks; elsewhere a command is done once written.
+     */
+    boolean isInFlight(int seq) {
+        SendWindow w = window;
+        return w != null && w.contains(seq);
+    }
+
+    /** Closes the transport and discards queued commands; the writer thread exits. */
+    void disconnect() {
+        connected = false;
+        sendQueue.close();
+        SendWindow w = window;
+        if (w != null) w.close();
+        RobotTransport t = transport;
+        if (t != null) t.close();
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    /** Connections made so far; a new one means the robot may have lost what it was told. */
+    int getConnectionCount() {
+        return connections;
+    }
+
+    /** The transport of the current or last connection, or null. */
+    RobotTransport getTransport() {
+        return transport;
+    }
+
+    private static boolean negotiateFrames(InputStream in, OutputStream out) throws IOException {
+        byte[] hello = new byte[FrameCodec.HELLO.length() + 1];
+        CommandCodec.encode(FrameCodec.HELLO, hello, 0);
+        hello[hello.length - 1] = '\n';
+        out.write(hello);
+
+        // RFCOMM reads can't time out, so poll until the deadline
+        String reply = FrameCodec.HELLO_REPLY;
+        int matched = 0;
+        long deadline = System.nanoTime() + NEGOTIATE_TIMEOUT_MS * 1_000_000L;
+        while (System.nanoTime() < deadline) {
+            if (in.available() == 0) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                continue;
+            }
+            int b = in.read();
+            if (b < 0) return false;
+            // Match the reply anywhere in the incoming text, e.g. after a boot banner
+            matched = b == reply.charAt(matched) ? matched + 1 : (b == reply.charAt(0) ? 1 : 0);
+            if (matched == reply.length()) return true;
+        }
+        return false;
+    }
+
+    // The writer and the reader both notice a dropped connection; only the first reports it,
+    // and a thread left over from an earlier connection must not close the new one
+    private void onConnectionFailed(RobotTransport owner, AtomicBoolean failed, IOException e) {
+        if (!failed.compareAndSet(false, true) || owner != transport || !connected) return;
+        if (listener != null) listener.onLinkFailing(owner);
+        disconnect();
+        if (listener != null) listener.onLinkLost(owner, e);
+    }
+
+    // Drains the send queue into one connection's stream until the queue is closed
+    private final class Writer implements Runnable {
+        private final RobotTransport owner;
+        private final OutputStream out;
+        private final CommandBatcher batcher;
+        private final AtomicBoolean failed;
+
+        Writer(RobotTransport owner, OutputStream out, CommandBatcher batcher,
+               AtomicBoolean failed) {
+            this.owner = owner;
+            this.out = out;
+            this.batcher = batcher;
+            this.failed = failed;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (batcher.writeBatch(out)) {
+                    // one write() per batch; newlines or frames are added by the batcher
+                }
+            } catch (IOException e) {
+                onConnectionFailed(owner, failed, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                // A command the batcher can't encode would otherwise end the thread silently,
+                // leaving a link that looks connected but never writes again
+                onConnectionFailed(owner, failed, new IOException("Writer failed", e));
+            }
+        }
+    }
+
+    // Parses one connection's incoming stream until it ends or the transport is closed
+    private final class Reader implements Runnable {
+        private final RobotTransport owner;
+        private final InputStream in;
+        private final TelemetryReader reader;
+        private final AtomicBoolean failed;
+
+        Reader(RobotTransport owner, InputStream in, TelemetryReader reader,
+               AtomicBoolean failed) {
+            this.owner = owner;
+            this.in = in;
+            this.reader = reader;
+            this.failed = failed;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (reader.readFrom(in)) {
+                    // acks and telemetry are published as they are parsed
+                }
+                onConnectionFailed(owner, failed, new IOException("Robot closed the connection"));
+            } catch (IOException e) {
+                onConnectionFailed(owner, failed, e);
+            } catch (RuntimeException e) {
+                onConnectionFailed(owner, failed, new IOException("Reader failed", e));
+            }
+        }
+    }
+
+    // ========== SETTINGS ==========
+
+    /** Whether the next connect() offers binary frames; on by default. */
+    void setBinaryProtocolEnabled(boolean enabled) {
+        binaryProtocolEnabled = enabled;
+    }
+
+    boolean isBinaryProtocolEnabled() {
+        return binaryProtocolEnabled;
+    }
+
+    /** Whether the current connection negotiated binary frames rather than text. */
+    boolean isBinaryProtocol() {
+        return connected && binaryFrames;
+    }
+
+    /**
+     * Longest a batch of queued commands waits for more before it is written, from the next
+     * connect(); 0 sends at once whatever is queued. A command on an idle link never waits.
+     */
+    void setFlushDeadlineMillis(long millis) {
+        flushDeadlineNanos = Math.max(0, millis) * 1_000_000L;
+    }
+
+    /**
+     * Binary frames that may await the robot's ack at once, from the next connect(); at most
+     * SendWindow.MAX_FRAMES. 0 turns flow control off, for firmware that doesn't ack frames.
+     */
+    void setAckWindow(int frames) {
+        if (frames < 0 || frames > SendWindow.MAX_FRAMES) {
+            throw new IllegalArgumentException("Ack window must be 0.." + SendWindow.MAX_FRAMES
+                    + " frames: " + frames);
+        }
+        ackWindow = frames;
+    }
+
+    /** How long the oldest frame may wait for its ack before it is resent; from next connect(). */
+    void setAckTimeoutMillis(long millis) {
+        ackTimeoutNanos = Math.max(1, millis) * 1_000_000L;
+    }
+
+    // ========== METRICS ==========
+
+    /**
+     * Whether the robot is behind: the ack window is full, so commands wait in the queue,
+     * where repeated expressions and head moves coalesce and other commands may be dropped.
+     */
+    boolean isBackpressured() {
+        SendWindow w = window;
+        return connected && w != null && w.room() == 0;
+    }
+
+    /** The ack window of the current connection, or null. */
+    SendWindow getWindow() {
+        return window;
+    }
+
+    /**
+     * The robot echoed a command; echoes arrive in the order the commands were sent. The
+     * reader thread does this itself for echoes on the link.
+     */
+    void onCommandEchoed() {
+        latency.onAckInOrder(System.nanoTime());
+    }
+
+    CommandLatency getLatency() {
+        return latency;
+    }
+
+    /** What the robot last reported; kept across reconnects. */
+    RobotTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    CommandQueue getQueue() {
+        return sendQueue;
+    }
+
+    /** The latency summary followed by queue, batching, telemetry and ack window counters. */
+    String summary() {
+        CommandBatcher b = batcher;
+        TelemetryReader r = reader;
+        SendWindow w = window;
+        return latency.summary()
+                + "queue depth avg " + sendQueue.getAverageDepth()
+                + " max " + sendQueue.getHighWaterMark() + "/" + sendQueue.getCapacity()
+                + ", dropped " + sendQueue.getDroppedCount()
+                + ", coalesced " + sendQueue.getCoalescedCount()
+                + (b != null ? ", commands per write " + b.getCommandsPerWrite() : "")
+                + (r != null ? "\nreceived " + r.getMessageCount() + " acks/telemetry, "
+                        + r.getCorruptedCount() + " corrupted frames, "
+                        + r.getOverflowCount() + " overlong lines" : "")
+                + (w != null ? "\nack window " + w.getInFlight() + "/" + w.getSize()
+                        + ", full " + w.getStallCount() + " times, retransmitted "
+                        + w.getRetransmitCount() + ", stale acks " + w.getStaleAckCount() : "");
+    }
+}
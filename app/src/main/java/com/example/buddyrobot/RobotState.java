@@ -0,0 +1,119 @@
+// RobotState - what the robot was last told: its expression and where its head points
+// Fed every command handed to the link, so after a reconnect the state can be replayed to
+// firmware that lost it. Head position is in steps from centre, + is RIGHT / UP, or in steps
+// from the last absolute target (HEAD:POS, e.g. from HeadStream) once there is one.
+// Updated on the sending thread and read on the reconnect thread, hence synchronized.
+package com.example.buddyrobot;
+
+final class RobotState {
+
+    private static final String EXPR = "EXPR:";
+    private static final String HEAD = "HEAD:";
+    private static final String POS = "POS:";
+    private static final String[] DIRECTIONS = {"LEFT", "RIGHT", "UP", "DOWN", "CENTER"};
+    private static final int LEFT = 0, RIGHT = 1, UP = 2, DOWN = 3;
+    private static final Expression[] EXPRESSIONS = Expression.values();
+
+    private Expression expression;  // null until an expression is sent
+    private int headX, headY;
+    private boolean headTargeted;   // headX / headY count from targetPan / targetTilt
+    private int targetPan, targetTilt;
+
+    /** Applies a sent command, framed "<...>" or not; other commands are ignored. */
+    synchronized void onCommand(CharSequence command) {
+        boolean framed = CommandCoalescer.isFramed(command);
+        int start = framed ? 1 : 0;
+        int end = command.length() - (framed ? 1 : 0);
+
+        if (CommandCoalescer.startsWith(command, start, end, EXPR)) {
+            Expression e = find(command, start + EXPR.length(), end);
+            if (e != null) expression = e;
+            return;
+        }
+        if (!CommandCoalescer.startsWith(command, start, end, HEAD)) return;
+        int nameStart = start + HEAD.length();
+        if (CommandCoalescer.startsWith(command, nameStart, end, POS)) {
+            long target = CommandCoalescer.parseTarget(command, nameStart + POS.length(), end);
+            if (target >= 0) onHeadTarget((short) (target >>> 16), (short) target);
+            return;
+        }
+        for (int direction = 0; direction < DIRECTIONS.length; direction++) {
+            String name = DIRECTIONS[direction];
+            if (!CommandCoalescer.startsWith(command, nameStart, end, name)) continue;
+            int steps = CommandCoalescer.parseSteps(command, nameStart + name.length(), end);
+            if (steps <= 0) return;
+            switch (direction) {
+                case LEFT:
+                    headX -= steps;
+                    break;
+                case RIGHT:
+                    headX += steps;
+                    break;
+                case UP:
+                    headY += steps;
+                    break;
+                case DOWN:
+                    headY -= steps;
+                    break;
+                default:
+                    if (nameStart + name.length() != end) return; // "HEAD:CENTER:n" isn't one
+                    headX = 0;
+                    headY = 0;
+                    headTargeted = false;
+                    break;
+            }
+            return;
+        }
+    }
+
+    /** Applies an absolute head target sent without its text, in degrees from centre. */
+    synchronized void onHeadTarget(int pan, int tilt) {
+        headTargeted = true;
+        targetPan = pan;
+        targetTilt = tilt;
+        headX = 0;
+        headY = 0;
+    }
+
+    synchronized Expression getExpression() {
+        return expression;
+    }
+
+    synchronized int getHeadX() {
+        return headX;
+    }
+
+    synchronized int getHeadY() {
+        return headY;
+    }
+
+    /** Whether the head was last sent to an absolute target, which getHeadX/Y count from. */
+    synchronized boolean isHeadTargeted() {
+        return headTargeted;
+    }
+
+    synchronized int getTargetPan() {
+        return targetPan;
+    }
+
+    synchronized int getTargetTilt() {
+        return targetTilt;
+    }
+
+    synchronized void reset() {
+        expression = null;
+        headX = 0;
+        headY = 0;
+        headTargeted = false;
+    }
+
+    private static Expression find(CharSequence s, int from, int to) {
+        for (Expression e : EXPRESSIONS) {
+            String name = e.name();
+            if (to - from == name.length() && CommandCoalescer.startsWith(s, from, to, name)) {
+                return e;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,121 @@
+// RobotTelemetry - the latest head position, battery and ack count reported by the robot
+// Written by the link's reader thread, polled by the UI. Publishing is a sequence lock: the
+// version is odd while fields change, and read() retries until it copies a stable set, so
+// neither side blocks or allocates.
+package com.example.buddyrobot;
+
+public final class RobotTelemetry {
+
+    // Odd while the reader thread is updating; bumped twice per update
+    private volatile int version = 0;
+    private volatile int headPan, headTilt;
+    private volatile long headNanos = 0;
+    private volatile int batteryMillivolts, batteryPercent;
+    private volatile long batteryNanos = 0;
+    private volatile long acks = 0;
+
+    /** One consistent set of telemetry values; reuse an instance for every read(). */
+    public static final class Snapshot {
+        int version;
+        int headPan, headTilt;
+        long headNanos;
+        int batteryMillivolts, batteryPercent;
+        long batteryNanos;
+        long acks;
+
+        /** Changes whenever new telemetry arrives; poll this to skip redrawing. */
+        public int getVersion() {
+            return version;
+        }
+
+        public boolean hasHeadPosition() {
+            return headNanos != 0;
+        }
+
+        /** Degrees from centre, + is right. */
+        public int getHeadPan() {
+            return headPan;
+        }
+
+        /** Degrees from centre, + is up. */
+        public int getHeadTilt() {
+            return headTilt;
+        }
+
+        /** When the head position arrived (System.nanoTime()), or 0 if it never has. */
+        public long getHeadNanos() {
+            return headNanos;
+        }
+
+        public boolean hasBattery() {
+            return batteryNanos != 0;
+        }
+
+        public int getBatteryMillivolts() {
+            return batteryMillivolts;
+        }
+
+        public int getBatteryPercent() {
+            return batteryPercent;
+        }
+
+        public long getBatteryNanos() {
+            return batteryNanos;
+        }
+
+        /** Commands the robot has acknowledged. */
+        public long getAckCount() {
+            return acks;
+        }
+    }
+
+    // ========== READING ==========
+
+    /** Copies the latest values into snapshot and returns it. Safe from any thread. */
+    public Snapshot read(Snapshot snapshot) {
+        while (true) {
+            int before = version;
+            if ((before & 1) != 0) continue; // an update is being written
+            snapshot.headPan = headPan;
+            snapshot.headTilt = headTilt;
+            snapshot.headNanos = headNanos;
+            snapshot.batteryMillivolts = batteryMillivolts;
+            snapshot.batteryPercent = batteryPercent;
+            snapshot.batteryNanos = batteryNanos;
+            snapshot.acks = acks;
+            if (version == before) {
+                snapshot.version = before;
+                return snapshot;
+            }
+        }
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    // ========== PUBLISHING ==========
+    // Only one thread publishes at a time: the reader of the current connection
+
+    void onHeadPosition(int pan, int tilt, long nanos) {
+        version++;
+        headPan = pan;
+        headTilt = tilt;
+        headNanos = nanos;
+        version++;
+    }
+
+    void onBattery(int millivolts, int percent, long nanos) {
+        version++;
+        batteryMillivolts = millivolts;
+        batteryPercent = percent;
+        batteryNanos = nanos;
+        version++;
+    }
+
+    void onAck() {
+        version++;
+        acks++;
+        version++;
+    }
+}
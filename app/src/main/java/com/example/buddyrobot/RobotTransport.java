@@ -0,0 +1,29 @@
+// RobotTransport - the byte link to the robot, under the command pipeline (RobotLink)
+// RFCOMM to the ESP32 on a phone (RfcommTransport); TCP to a robot stand-in on any machine
+// (TcpTransport); an in-process pipe for tests and benchmarks (InMemoryTransport).
+package com.example.buddyrobot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface RobotTransport {
+
+    /** Connects; blocks until the link is up. A transport is opened at most once. */
+    void open() throws IOException;
+
+    /** Bytes from the robot; valid after open(). */
+    InputStream getInputStream() throws IOException;
+
+    /** Bytes to the robot; valid after open(). Each write() may become its own packet. */
+    OutputStream getOutputStream() throws IOException;
+
+    /** Drops the link and unblocks pending reads and writes. Safe to call more than once. */
+    void close();
+
+    /** Who is on the other end, for logs. */
+    String getName();
+
+    /** A new, unopened transport to the same robot, for reconnecting after this one failed. */
+    RobotTransport reopen();
+}
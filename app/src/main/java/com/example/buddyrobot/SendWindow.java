@@ -0,0 +1,214 @@
+// SendWindow - flow control for binary links: at most N frames on their way to the robot
+// The ESP32 buffers commands until its servos get to them, and a full serial buffer loses
+// whatever arrives next. Each frame sent gets the next wire seq (mod 256) and is kept until
+// the robot acks it; while N frames are unacknowledged the writer stops taking commands, and
+// they wait in the send queue instead (coalescing there). The firmware accepts only the next
+// seq and acks cumulatively once a command is carried out, so after a lost or rejected frame
+// the writer resends everything still in flight when the oldest ack is overdue (go-back-N).
+package com.example.buddyrobot;
+
+import java.io.IOException;
+
+final class SendWindow {
+
+    /** Largest window: go-back-N needs fewer frames in flight than the 8-bit seq space. */
+    static final int MAX_FRAMES = 127;
+
+    /** Resends of the same oldest frame before the robot is considered gone. */
+    static final int MAX_RETRANSMITS = 3;
+
+    private final CommandLatency latency;
+    private final int size;
+    private final long timeoutNanos;
+
+    // In-flight frames, oldest at head; guarded by this
+    private final byte[][] frames;
+    private final int[] lengths;
+    private final int[] latencySeqs;
+    private final long[] sentNanos;
+    private int head = 0;
+    private int count = 0;
+    private int unsent = 0;     // the newest frames, added but not yet written
+    private int baseSeq = 0;    // wire seq of the oldest frame
+    private int retries = 0;    // resends of the oldest frame
+    private boolean open = true;
+
+    // Written by the writer thread only
+    private final byte[] resend;
+
+    // Metrics, guarded by this
+    private long retransmitted = 0;
+    private long stalls = 0;
+    private long staleAcks = 0;
+
+    SendWindow(int frames, long timeoutNanos, CommandLatency latency) {
+        if (frames < 1 || frames > MAX_FRAMES) {
+            throw new IllegalArgumentException("Window must be 1.." + MAX_FRAMES + " frames: "
+                    + frames);
+        }
+        this.latency = latency;
+        this.size = frames;
+        this.timeoutNanos = timeoutNanos;
+        this.frames = new byte[frames][FrameCodec.MAX_FRAME];
+        this.lengths = new int[frames];
+        this.latencySeqs = new int[frames];
+        this.sentNanos = new long[frames];
+        this.resend = new byte[frames * FrameCodec.MAX_FRAME];
+    }
+
+    // ========== WRITER ==========
+
+    /**
+     * Frames the command with the next wire seq, keeps a copy for resending and copies the
+     * frame to out[offset]. Call onWritten() once it has been written.
+     *
+     * @return the frame's length
+     * @throws IllegalStateException if the window is full
+     */
+    synchronized int add(CommandQueue.Entry entry, byte[] out, int offset) {
+        if (count == size) throw new IllegalStateException("Window full");
+        int slot = (head + count) % size;
+        int length = FrameCodec.encode(entry.bytes, entry.length, (baseSeq + count) & 0xFF,
+                frames[slot], 0);
+        System.arraycopy(frames[slot], 0, out, offset, length);
+        lengths[slot] = length;
+        latencySeqs[slot] = entry.seq;
+        count++;
+        unsent++;
+        return length;
+    }
+
+    /** The frames added since the last call went out at nanos; their ack timers start. */
+    synchronized void onWritten(long nanos) {
+        for (int i = count - unsent; i < count; i++) {
+            sentNanos[(head + i) % size] = nanos;
+        }
+        unsent = 0;
+    }
+
+    /**
+     * If the oldest frame's ack is overdue at nanos, copies every written frame still in
+     * flight into getResendBuffer() for the caller to write again.
+     *
+     * @return bytes to resend, 0 if nothing is overdue
+     * @throws IOException if the oldest frame has already been resent MAX_RETRANSMITS times
+     */
+    synchronized int takeOverdue(long nanos) throws IOException {
+        int written = count - unsent;
+        if (written == 0 || nanos - sentNanos[head] < timeoutNanos) return 0;
+        if (retries == MAX_RETRANSMITS) {
+            throw new IOException("No ack for frame " + baseSeq + " after " + retries
+                    + " retransmits");
+        }
+        retries++;
+        int length = 0;
+        for (int i = 0; i < written; i++) {
+            int slot = (head + i) % size;
+            System.arraycopy(frames[slot], 0, resend, length, lengths[slot]);
+            length += lengths[slot];
+            sentNanos[slot] = nanos;
+        }
+        retransmitted += written;
+        return length;
+    }
+
+    byte[] getResendBuffer() {
+        return resend;
+    }
+
+    /** How long until the oldest frame's ack is overdue; Long.MAX_VALUE if none is awaited. */
+    synchronized long nanosUntilOverdue(long nanos) {
+        if (count == unsent) return Long.MAX_VALUE;
+        return Math.max(0, sentNanos[head] + timeoutNanos - nanos);
+    }
+
+    /**
+     * Waits while the window is full.
+     *
+     * @return true once there is room; false if the oldest ack became overdue first, or the
+     * window was closed
+     */
+    synchronized boolean awaitRoom() throws InterruptedException {
+        if (count < size) return true;
+        stalls++;
+        while (open && count == size) {
+            long wait = nanosUntilOverdue(System.nanoTime());
+            if (wait == 0) return false;
+            wait(wait / 1_000_000L, (int) (wait % 1_000_000L));
+        }
+        return open;
+    }
+
+    synchronized int room() {
+        return size - count;
+    }
+
+    /** Wakes a writer waiting for room; the connection is gone. */
+    synchronized void close() {
+        open = false;
+        notifyAll();
+    }
+
+    synchronized boolean isOpen() {
+        return open;
+    }
+
+    /** Whether command seq (CommandLatency's, not the wire seq) was framed and isn't acked yet. */
+    synchronized boolean contains(int seq) {
+        for (int i = 0; i < count; i++) {
+            if (latencySeqs[(head + i) % size] == seq) return true;
+        }
+        return false;
+    }
+
+    // ========== READER ==========
+
+    /**
+     * The robot acked wire seq, and with it every frame sent before.
+     *
+     * @return false for an ack of nothing in flight, e.g. a repeat after a rejected frame
+     */
+    synchronized boolean onAck(int seq, long nanos) {
+        // The ack may beat the writer's onWritten() on a fast link
+        int acked = ((seq - baseSeq) & 0xFF) + 1;
+        if (acked > count) {
+            staleAcks++;
+            return false;
+        }
+        for (int i = 0; i < acked; i++) {
+            latency.onAck(latencySeqs[head], nanos);
+            head = (head + 1) % size;
+        }
+        count -= acked;
+        unsent = Math.min(unsent, count);
+        baseSeq = (baseSeq + acked) & 0xFF;
+        retries = 0;
+        notifyAll();
+        return true;
+    }
+
+    // ========== METRICS ==========
+
+    int getSize() {
+        return size;
+    }
+
+    synchronized int getInFlight() {
+        return count;
+    }
+
+    /** Frames written again after an ack was overdue. */
+    synchronized long getRetransmitCount() {
+        return retransmitted;
+    }
+
+    /** Times the writer found the window full and had to wait for acks. */
+    synchronized long getStallCount() {
+        return stalls;
+    }
+
+    /** Acks for frames no longer in flight. */
+    synchronized long getStaleAckCount() {
+        return staleAcks;
+    }
+}
@@ -0,0 +1,108 @@
+// ShapeCache - decorative primitives (hearts, stars, sparkles, thought clouds)
+// Each shape is built once in unit space and placed with a Matrix at draw time
+package com.example.buddyrobot;
+
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+final class ShapeCache {
+
+    static final int HEART = FaceSurface.SHAPE_HEART;
+    static final int STAR = FaceSurface.SHAPE_STAR;
+    static final int SPARKLE = FaceSurface.SHAPE_SPARKLE;
+    static final int THOUGHT_CLOUD = FaceSurface.SHAPE_THOUGHT_CLOUD;
+    private static final int SHAPE_COUNT = 4;
+
+    private static final float PI = (float) Math.PI;
+
+    private final Path[] unitShapes = new Path[SHAPE_COUNT];
+    private final Matrix placement = new Matrix();
+
+    ShapeCache() {
+        unitShapes[HEART] = buildHeart();
+        unitShapes[STAR] = buildStar();
+        unitShapes[SPARKLE] = buildSparkle();
+        unitShapes[THOUGHT_CLOUD] = buildThoughtCloud();
+    }
+
+    /**
+     * Draws a cached shape centred on (x, y), scaled to size and rotated by degrees.
+     * The same Path instance is drawn every time, so the renderer can reuse its
+     * tessellation; stroke widths are compensated so they stay in screen pixels.
+     */
+    void draw(Canvas canvas, int shape, float x, float y, float size, float degrees, Paint paint) {
+        placement.setScale(size, size);
+        if (degrees != 0f) placement.postRotate(degrees);
+        placement.postTranslate(x, y);
+
+        float strokeWidth = paint.getStrokeWidth();
+        boolean stroked = paint.getStyle() != Paint.Style.FILL;
+        if (stroked) paint.setStrokeWidth(strokeWidth / size);
+
+        canvas.save();
+        canvas.concat(placement);
+        canvas.drawPath(unitShapes[shape], paint);
+        canvas.restore();
+
+        if (stroked) paint.setStrokeWidth(strokeWidth);
+    }
+
+    void draw(Canvas canvas, int shape, float x, float y, float size, Paint paint) {
+        draw(canvas, shape, x, y, size, 0f, paint);
+    }
+
+    // ========== UNIT SHAPES ==========
+
+    private static Path buildHeart() {
+        Path heart = new Path();
+        heart.moveTo(0f, 0.3f);
+        heart.cubicTo(-0.6f, -0.3f, -0.8f, 0.2f, 0f, 0.8f);
+        heart.cubicTo(0.8f, 0.2f, 0.6f, -0.3f, 0f, 0.3f);
+        return heart;
+    }
+
+    private static Path buildStar() {
+        Path star = new Path();
+        float angle = PI / 5;
+
+        for (int i = 0; i < 10; i++) {
+            float radius = (i % 2 == 0) ? 1f : 0.4f;
+            float pointX = (float) Math.cos(i * angle - PI / 2) * radius;
+            float pointY = (float) Math.sin(i * angle - PI / 2) * radius;
+
+            if (i == 0) {
+                star.moveTo(pointX, pointY);
+            } else {
+                star.lineTo(pointX, pointY);
+            }
+        }
+        star.close();
+        return star;
+    }
+
+    private static Path buildSparkle() {
+        Path sparkle = new Path();
+        sparkle.moveTo(-1f, 0f);
+        sparkle.lineTo(1f, 0f);
+        sparkle.moveTo(0f, -1f);
+        sparkle.lineTo(0f, 1f);
+        sparkle.moveTo(-0.7f, -0.7f);
+        sparkle.lineTo(0.7f, 0.7f);
+        sparkle.moveTo(-0.7f, 0.7f);
+        sparkle.lineTo(0.7f, -0.7f);
+        return sparkle;
+    }
+
+    private static Path buildThoughtCloud() {
+        Path cloud = new Path();
+        cloud.addCircle(0f, 0f, 0.6f, Path.Direction.CW);
+        cloud.addCircle(0.4f, -0.2f, 0.5f, Path.Direction.CW);
+        cloud.addCircle(-0.4f, -0.2f, 0.45f, Path.Direction.CW);
+
+        cloud.addCircle(-0.8f, 0.6f, 0.2f, Path.Direction.CW);
+        cloud.addCircle(-1.1f, 0.9f, 0.12f, Path.Direction.CW);
+        return cloud;
+    }
+}
@@ -0,0 +1,147 @@
+// SimulatedRobot - binary firmware with a small serial buffer and slow servos, for tests and
+// benchmarks. It plays the robot end of an InMemoryTransport: answers the hello, buffers up to
+// bufferFrames frames and executes one every serviceNanos, acking each when it is done. A frame
+// arriving while the buffer is full is lost, as on the ESP32's UART. With checkSeq, only the
+// next wire seq is accepted; anything else is answered by repeating the last ack, since an ack
+// means the command was carried out and its buffer space is free again (see SendWindow).
+package com.example.buddyrobot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+final class SimulatedRobot {
+
+    private final InMemoryTransport transport;
+    private final long serviceNanos;
+    private final boolean checkSeq;
+    private final BlockingQueue<Integer> buffer;
+    private final byte[] ack = new byte[FrameCodec.HEADER_BYTES + 1];
+    private Thread receiver;
+    private Thread servos;
+
+    // Written by the receiving thread
+    private int expected = 0;
+    private volatile long received = 0;
+    private volatile long overflowed = 0;
+    private volatile long rejected = 0;
+    // Written by the servo thread
+    private volatile long executed = 0;
+    private volatile int lastAcked = -1;
+
+    SimulatedRobot(InMemoryTransport transport, int bufferFrames, long serviceNanos,
+                   boolean checkSeq) {
+        this.transport = transport;
+        this.serviceNanos = serviceNanos;
+        this.checkSeq = checkSeq;
+        this.buffer = new ArrayBlockingQueue<>(bufferFrames);
+    }
+
+    /** Answers the hello in advance and starts receiving; call before RobotLink.connect(). */
+    void start() throws IOException {
+        transport.open();
+        transport.robotOutput().write((FrameCodec.HELLO_REPLY + "\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        receiver = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receive();
+            }
+        }, "robot-sim-rx");
+        servos = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                execute();
+            }
+        }, "robot-sim-servos");
+        receiver.setDaemon(true);
+        servos.setDaemon(true);
+        receiver.start();
+        servos.start();
+    }
+
+    void stop() {
+        transport.close();
+        if (servos != null) servos.interrupt();
+    }
+
+    private void receive() {
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+        byte[] bytes = new byte[256];
+        try {
+            InputStream in = transport.robotInput();
+            for (int n = in.read(bytes); n >= 0; n = in.read(bytes)) {
+                for (int i = 0; i < n; i++) {
+                    if (decoder.feed(bytes[i])) onFrame(decoder.seq);
+                }
+            }
+        } catch (IOException e) {
+            // link closed
+        }
+    }
+
+    private void onFrame(int seq) throws IOException {
+        received++;
+        if (checkSeq && seq != expected) {
+            rejected++;
+            int last = lastAcked;
+            if (last >= 0) sendAck(last);
+            return;
+        }
+        if (!buffer.offer(seq)) {
+            overflowed++;
+            return;
+        }
+        expected = (seq + 1) & 0xFF;
+    }
+
+    private void execute() {
+        try {
+            while (true) {
+                int seq = buffer.take();
+                LockSupport.parkNanos(serviceNanos);
+                executed++;
+                lastAcked = seq;
+                sendAck(seq);
+            }
+        } catch (InterruptedException | IOException e) {
+            // stopped
+        }
+    }
+
+    private synchronized void sendAck(int seq) throws IOException {
+        ack[0] = (byte) FrameCodec.SYNC;
+        ack[1] = (byte) FrameCodec.OP_ACK;
+        ack[2] = (byte) seq;
+        ack[3] = 0;
+        ack[4] = (byte) FrameCodec.crc8(ack, 1, FrameCodec.HEADER_BYTES);
+        OutputStream out = transport.robotOutput();
+        out.write(ack);
+    }
+
+    // ========== METRICS ==========
+
+    /** Frames that arrived intact, whatever became of them. */
+    long getReceivedCount() {
+        return received;
+    }
+
+    /** Frames lost to a full buffer. */
+    long getOverflowCount() {
+        return overflowed;
+    }
+
+    /** Frames refused for not carrying the next seq, e.g. those sent after a lost one. */
+    long getRejectedCount() {
+        return rejected;
+    }
+
+    /** Commands the servos have carried out. */
+    long getExecutedCount() {
+        return executed;
+    }
+}
@@ -0,0 +1,66 @@
+// StaticLayerCache - one RenderNode display list per expression for the geometry that never changes
+// Per frame only the node's transform properties are updated; the RenderThread replays the list
+package com.example.buddyrobot;
+
+import android.graphics.Canvas;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+
+import androidx.annotation.RequiresApi;
+
+@RequiresApi(Build.VERSION_CODES.Q)
+final class StaticLayerCache {
+
+    /** Draws the static part of an expression, untransformed, into a recording canvas. */
+    interface Recorder {
+        void record(Canvas canvas, Expression expression);
+    }
+
+    private final Recorder recorder;
+    private final RenderNode[] nodes = new RenderNode[Expression.values().length];
+    private int width, height;
+
+    StaticLayerCache(Recorder recorder) {
+        this.recorder = recorder;
+        for (Expression expression : Expression.values()) {
+            nodes[expression.ordinal()] = new RenderNode("face-" + expression.name());
+        }
+    }
+
+    /** Drops every recording; they are re-recorded lazily at the new size. */
+    void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        for (RenderNode node : nodes) {
+            node.discardDisplayList();
+            node.setPosition(0, 0, width, height);
+            node.setPivotX(width / 2f);
+            node.setPivotY(height / 2f);
+        }
+    }
+
+    /**
+     * Draws the cached layer for expression with the body transform applied as
+     * translate -> rotate -> scale around the view centre, matching the canvas path.
+     */
+    void draw(Canvas canvas, Expression expression, float translateX, float translateY,
+              float rotation, float scaleX, float scaleY) {
+        RenderNode node = nodes[expression.ordinal()];
+        if (!node.hasDisplayList()) {
+            RecordingCanvas recording = node.beginRecording(width, height);
+            try {
+                recorder.record(recording, expression);
+            } finally {
+                node.endRecording();
+            }
+        }
+
+        node.setTranslationX(translateX);
+        node.setTranslationY(translateY);
+        node.setRotationZ(rotation);
+        node.setScaleX(scaleX);
+        node.setScaleY(scaleY);
+        canvas.drawRenderNode(node);
+    }
+}
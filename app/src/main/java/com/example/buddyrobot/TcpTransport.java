@@ -0,0 +1,58 @@
+// TcpTransport - RobotTransport over TCP, e.g. to a robot stand-in on localhost
+// Nagle is off, so each write() leaves as its own segment the way it would on RFCOMM.
+package com.example.buddyrobot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+final class TcpTransport implements RobotTransport {
+
+    private final String host;
+    private final int port;
+    private final int connectTimeoutMs;
+    private final Socket socket = new Socket();
+
+    TcpTransport(String host, int port, int connectTimeoutMs) {
+        this.host = host;
+        this.port = port;
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    @Override
+    public void open() throws IOException {
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return socket.getInputStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return socket.getOutputStream();
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // already gone
+        }
+    }
+
+    @Override
+    public RobotTransport reopen() {
+        return new TcpTransport(host, port, connectTimeoutMs);
+    }
+
+    @Override
+    public String getName() {
+        return host + ":" + port;
+    }
+}
@@ -0,0 +1,230 @@
+// TelemetryReader - parses what the robot sends back: command acks, head position and battery
+// Bytes are read straight into a ring buffer and messages are parsed where they lie, so the
+// reader thread neither copies nor allocates per message. A binary link carries FrameCodec
+// frames (OP_ACK, OP_HEAD_POSITION, OP_BATTERY); a text link carries lines:
+//   <POS:pan:tilt>   head position in degrees from centre, + is right / up
+//   <BAT:mv:pct>     battery millivolts and percent
+//   <...>            any other framed line is the echo of a command, i.e. its ack
+// Unframed lines, such as a boot banner, are ignored.
+package com.example.buddyrobot;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+final class TelemetryReader {
+
+    /** Ring size; a power of two, and more than any one line or frame. */
+    static final int RING_BYTES = 1024;
+
+    private static final String POS = "POS:";
+    private static final String BAT = "BAT:";
+
+    private final CommandLatency latency;
+    private final RobotTelemetry telemetry;
+    private final boolean binary;
+    private final SendWindow window;    // acks go here when the link has one
+
+    private final byte[] ring;
+    private final int mask;
+    private long head = 0;      // first byte not yet consumed
+    private long tail = 0;      // next byte to fill
+    private long scanned = 0;   // text: next byte to look at for a newline
+    private final int[] fields = new int[2];
+
+    // Metrics, written by the reader thread only
+    private volatile long messages = 0;
+    private volatile long corrupted = 0;
+    private volatile long overflows = 0;
+
+    TelemetryReader(CommandLatency latency, RobotTelemetry telemetry, boolean binary) {
+        this(latency, telemetry, binary, null, RING_BYTES);
+    }
+
+    /** @param window the link's SendWindow, whose wire seqs the robot's acks refer to; or null */
+    TelemetryReader(CommandLatency latency, RobotTelemetry telemetry, boolean binary,
+                    SendWindow window, int ringBytes) {
+        if (Integer.bitCount(ringBytes) != 1 || ringBytes < FrameCodec.MAX_FRAME) {
+            throw new IllegalArgumentException("Ring must be a power of two of at least "
+                    + FrameCodec.MAX_FRAME + " bytes: " + ringBytes);
+        }
+        this.latency = latency;
+        this.telemetry = telemetry;
+        this.binary = binary;
+        this.window = window;
+        this.ring = new byte[ringBytes];
+        this.mask = ringBytes - 1;
+    }
+
+    /**
+     * Blocks for the next bytes from in and handles every message they complete.
+     *
+     * @return false at the end of the stream
+     */
+    boolean readFrom(InputStream in) throws IOException {
+        int free = ring.length - (int) (tail - head);
+        if (free == 0) {
+            // A line longer than the ring: drop it rather than stall
+            overflows++;
+            head = tail;
+            scanned = tail;
+            free = ring.length;
+        }
+        int at = (int) tail & mask;
+        int n = in.read(ring, at, Math.min(free, ring.length - at));
+        if (n < 0) return false;
+        tail += n;
+        if (binary) {
+            parseFrames();
+        } else {
+            parseLines();
+        }
+        return true;
+    }
+
+    // ========== FRAMES ==========
+
+    // Same rules as FrameCodec.Decoder: skip to a SYNC, drop a byte on a bad length or CRC
+    private void parseFrames() {
+        while (tail > head) {
+            if (byteAt(head) != FrameCodec.SYNC) {
+                head++;
+                continue;
+            }
+            if (tail - head < FrameCodec.HEADER_BYTES) return;
+            int length = byteAt(head + 3);
+            if (length > FrameCodec.MAX_PAYLOAD) {
+                corrupted++;
+                head++;
+                continue;
+            }
+            long crcAt = head + FrameCodec.HEADER_BYTES + length;
+            if (tail <= crcAt) return;
+            int crc = 0;
+            for (long i = head + 1; i < crcAt; i++) {
+                crc = FrameCodec.crc8(crc, ring[(int) i & mask]);
+            }
+            if (crc != byteAt(crcAt)) {
+                corrupted++;
+                head++;
+                continue;
+            }
+            onFrame(byteAt(head + 1), byteAt(head + 2), head + FrameCodec.HEADER_BYTES, length);
+            head = crcAt + 1;
+        }
+    }
+
+    private void onFrame(int opcode, int seq, long payload, int length) {
+        long now = System.nanoTime();
+        switch (opcode) {
+            case FrameCodec.OP_ACK:
+                if (window != null) {
+                    window.onAck(seq, now);
+                } else {
+                    latency.onAckFrame(seq, now);
+                }
+                telemetry.onAck();
+                break;
+            case FrameCodec.OP_HEAD_POSITION:
+                if (length != 4) return;
+                telemetry.onHeadPosition((short) (byteAt(payload) << 8 | byteAt(payload + 1)),
+                        (short) (byteAt(payload + 2) << 8 | byteAt(payload + 3)), now);
+                break;
+            case FrameCodec.OP_BATTERY:
+                if (length != 3) return;
+                telemetry.onBattery(byteAt(payload) << 8 | byteAt(payload + 1),
+                        byteAt(payload + 2), now);
+                break;
+            default:
+                return; // newer firmware; not for us
+        }
+        messages++;
+    }
+
+    // ========== LINES ==========
+
+    private void parseLines() {
+        while (scanned < tail) {
+            if (byteAt(scanned) != '\n') {
+                scanned++;
+                continue;
+            }
+            long end = scanned > head && byteAt(scanned - 1) == '\r' ? scanned - 1 : scanned;
+            onLine(head, end);
+            head = ++scanned;
+        }
+    }
+
+    private void onLine(long from, long to) {
+        // "<>" echoes nothing
+        if (to - from < 3 || byteAt(from) != '<' || byteAt(to - 1) != '>') return;
+        from++;
+        to--;
+        long now = System.nanoTime();
+        if (startsWith(from, to, POS)) {
+            if (!parsePair(from + POS.length(), to)) return;
+            telemetry.onHeadPosition(fields[0], fields[1], now);
+        } else if (startsWith(from, to, BAT)) {
+            if (!parsePair(from + BAT.length(), to)) return;
+            telemetry.onBattery(fields[0], fields[1], now);
+        } else {
+            latency.onAckInOrder(now);
+            telemetry.onAck();
+        }
+        messages++;
+    }
+
+    // "a:b" with optionally negative decimal integers, into fields
+    private boolean parsePair(long from, long to) {
+        int field = 0;
+        int value = 0;
+        boolean negative = false;
+        boolean digits = false;
+        for (long i = from; i <= to; i++) {
+            int b = i < to ? byteAt(i) : ':';
+            if (b == ':') {
+                if (!digits || field == fields.length) return false;
+                fields[field++] = negative ? -value : value;
+                value = 0;
+                negative = false;
+                digits = false;
+            } else if (b == '-' && !digits && !negative) {
+                negative = true;
+            } else if (b >= '0' && b <= '9' && value < 100_000) {
+                value = value * 10 + (b - '0');
+                digits = true;
+            } else {
+                return false;
+            }
+        }
+        return field == fields.length;
+    }
+
+    private boolean startsWith(long from, long to, String prefix) {
+        if (to - from < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (byteAt(from + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private int byteAt(long position) {
+        return ring[(int) position & mask] & 0xFF;
+    }
+
+    // ========== METRICS ==========
+
+    /** Acks and telemetry messages handled. */
+    long getMessageCount() {
+        return messages;
+    }
+
+    /** Frames dropped for a bad length or CRC. */
+    long getCorruptedCount() {
+        return corrupted;
+    }
+
+    /** Lines dropped for not fitting in the ring. */
+    long getOverflowCount() {
+        return overflows;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.buddyrobot;
+
+/**
+ * FaceSurface that samples the thread's allocation counter on every call. Bytes allocated
+ * since the previous call are charged to the call that follows them, so a stray allocation
+ * in the renderer is reported next to the draw op (and shape) it was building.
+ */
+final class AllocationCheckingSurface implements FaceSurface {
+
+    private static final String[] SHAPE_NAMES = {
+            "drawShape(heart)", "drawShape(star)", "drawShape(sparkle)",
+            "drawShape(thought cloud)"
+    };
+
+    private long lastSample;
+
+    // First offending call since reset(); kept as fields so recording itself never allocates
+    long allocatedBytes;
+    String firstOffender;
+    long firstOffenderBytes;
+    int calls;
+
+    /** Starts a frame; allocations before this point are not charged to it. */
+    void reset() {
+        allocatedBytes = 0;
+        firstOffender = null;
+        firstOffenderBytes = 0;
+        calls = 0;
+        lastSample = AllocationProbe.allocatedBytes();
+    }
+
+    /** Charges whatever was allocated after the last surface call to the end of the frame. */
+    void finish() {
+        sample("after last draw call");
+    }
+
+    private void sample(String call) {
+        long now = AllocationProbe.allocatedBytes();
+        long bytes = now - lastSample;
+        if (bytes > 0) {
+            allocatedBytes += bytes;
+            if (firstOffender == null) {
+                firstOffender = call;
+                firstOffenderBytes = bytes;
+            }
+        }
+        calls++;
+        // Re-read so the probe's own bookkeeping is never charged to the next call
+        lastSample = AllocationProbe.allocatedBytes();
+    }
+
+    @Override
+    public void save() {
+        sample("save");
+    }
+
+    @Override
+    public void restore() {
+        sample("restore");
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        sample("translate");
+    }
+
+    @Override
+    public void rotate(float degrees, float px, float py) {
+        sample("rotate");
+    }
+
+    @Override
+    public void scale(float sx, float sy, float px, float py) {
+        sample("scale");
+    }
+
+    @Override
+    public void setFill(int color) {
+        sample("setFill");
+    }
+
+    @Override
+    public void setStroke(int color, float width) {
+        sample("setStroke");
+    }
+
+    @Override
+    public void drawOval(float left, float top, float right, float bottom) {
+        sample("drawOval");
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius) {
+        sample("drawCircle");
+    }
+
+    @Override
+    public void drawArc(float left, float top, float right, float bottom,
+                        float startAngle, float sweepAngle) {
+        sample("drawArc");
+    }
+
+    @Override
+    public void drawLine(float x0, float y0, float x1, float y1) {
+        sample("drawLine");
+    }
+
+    @Override
+    public void drawRoundRect(float left, float top, float right, float bottom, float radius) {
+        sample("drawRoundRect");
+    }
+
+    @Override
+    public void drawQuad(float x0, float y0, float cx, float cy, float x1, float y1) {
+        sample("drawQuad");
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, float textSize) {
+        sample("drawText");
+    }
+
+    @Override
+    public void drawShape(int shape, float x, float y, float size, float degrees) {
+        sample(shape >= 0 && shape < SHAPE_NAMES.length ? SHAPE_NAMES[shape] : "drawShape");
+    }
+}
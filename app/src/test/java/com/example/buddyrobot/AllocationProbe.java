@@ -0,0 +1,33 @@
+package com.example.buddyrobot;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Bytes allocated by the current thread, from HotSpot's per-thread allocation counter.
+ * Reading the counter does not allocate, so it can be sampled between draw calls.
+ */
+final class AllocationProbe {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private AllocationProbe() {
+    }
+
+    /** False on VMs without the counter; tests should skip rather than pass vacuously. */
+    static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) return null;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+}
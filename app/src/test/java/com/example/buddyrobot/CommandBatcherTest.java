@@ -0,0 +1,174 @@
+package com.example.buddyrobot;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class CommandBatcherTest {
+
+    private static final long MS = 1_000_000L;
+
+    private final CommandQueue queue = new CommandQueue(32, 64,
+            CommandQueue.OverflowPolicy.DROP_OLDEST);
+    private final CommandLatency latency = new CommandLatency();
+    private final CountingStream out = new CountingStream();
+
+    @Test
+    public void command_andItsNewline_goOutInOneWrite() throws Exception {
+        CommandBatcher batcher = newBatcher(false, 5 * MS);
+        offer("<EXPR:HAPPY>");
+
+        assertTrue(batcher.writeBatch(out));
+        assertEquals(1, out.writes);
+        assertEquals("<EXPR:HAPPY>\n", out.text());
+    }
+
+    @Test
+    public void queuedCommands_shareAWrite() throws Exception {
+        CommandBatcher batcher = newBatcher(false, 0);
+        offer("PING");
+        offer("HEAD:LEFT");
+        offer("BEEP");
+
+        assertTrue(batcher.writeBatch(out));
+        assertEquals(1, out.writes);
+        assertEquals("PING\nHEAD:LEFT\nBEEP\n", out.text());
+        assertEquals(3f, batcher.getCommandsPerWrite(), 0f);
+    }
+
+    @Test
+    public void binaryFrames_areConcatenated() throws Exception {
+        CommandBatcher batcher = newBatcher(true, 0);
+        offer("EXPR:SAD");
+        offer("HEAD:UP:4");
+
+        assertTrue(batcher.writeBatch(out));
+        assertEquals(1, out.writes);
+        byte[] bytes = out.toByteArray();
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+        int frames = 0;
+        for (byte b : bytes) {
+            if (decoder.feed(b)) frames++;
+        }
+        assertEquals(2, frames);
+        assertEquals(FrameCodec.OP_HEAD_MOVE, decoder.opcode);
+        assertEquals(4, decoder.payload[1]);
+    }
+
+    @Test
+    public void fullBatch_isWrittenAndTheRestFollows() throws Exception {
+        CommandBatcher batcher = newBatcher(false, 0);
+        String command = "PAD:0123456789012345678901234567890123456789012345678901234";
+        int fit = CommandBatcher.BATCH_BYTES / (command.length() + 1);
+        for (int i = 0; i < fit + 2; i++) {
+            offer(command);
+        }
+
+        assertTrue(batcher.writeBatch(out));
+        assertTrue(out.size() <= CommandBatcher.BATCH_BYTES);
+        assertTrue(batcher.writeBatch(out));
+        assertEquals(2, out.writes);
+        assertEquals(fit + 2, batcher.getCommandCount());
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    public void loadedBatch_waitsForLateCommandsUntilTheDeadline() throws Exception {
+        CommandBatcher batcher = newBatcher(false, 200 * MS);
+        offer("A");
+        offer("B");
+        Thread late = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                offer("C");
+            }
+        });
+        late.start();
+
+        long start = System.nanoTime();
+        assertTrue(batcher.writeBatch(out));
+        long elapsed = System.nanoTime() - start;
+        late.join();
+
+        assertEquals("A\nB\nC\n", out.text());
+        assertTrue("waited " + elapsed / MS + " ms", elapsed >= 200 * MS);
+        assertTrue("waited " + elapsed / MS + " ms", elapsed < 2_000 * MS);
+    }
+
+    @Test
+    public void loneCommand_doesNotWaitForTheDeadline() throws Exception {
+        CommandBatcher batcher = newBatcher(false, 2_000 * MS);
+        offer("A");
+
+        long start = System.nanoTime();
+        assertTrue(batcher.writeBatch(out));
+        assertTrue(System.nanoTime() - start < 1_000 * MS);
+    }
+
+    @Test
+    public void writes_stampEveryCommandInTheBatch() throws Exception {
+        CommandBatcher batcher = newBatcher(false, 0);
+        for (int i = 0; i < 3; i++) {
+            int seq = latency.begin(System.nanoTime());
+            queue.offer("HEAD:RIGHT", seq);
+            latency.onEnqueued(seq, System.nanoTime());
+        }
+
+        batcher.writeBatch(out);
+        assertEquals(3, latency.getHistogram(CommandLatency.Stage.WRITE).getCount());
+        assertEquals(3, latency.getHistogram(CommandLatency.Stage.SEND).getCount());
+    }
+
+    @Test
+    public void closedQueue_endsTheWriter() throws Exception {
+        CommandBatcher batcher = newBatcher(false, 5 * MS);
+        offer("A");
+        queue.close();
+
+        assertFalse(batcher.writeBatch(out));
+        assertEquals(0, out.writes);
+    }
+
+    private CommandBatcher newBatcher(boolean binary, long flushDeadlineNanos) {
+        return new CommandBatcher(queue, latency, 64, binary, flushDeadlineNanos);
+    }
+
+    private void offer(String command) {
+        assertTrue(queue.offer(command, 0));
+    }
+
+    // Counts write() calls, each a separate packet on an SPP link
+    private static final class CountingStream extends ByteArrayOutputStream {
+        int writes = 0;
+
+        @Override
+        public synchronized void write(int b) {
+            writes++;
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes++;
+            super.write(b, off, len);
+        }
+
+        @Override
+        public void write(byte[] b) throws IOException {
+            write(b, 0, b.length);
+        }
+
+        String text() {
+            return new String(toByteArray(), StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.buddyrobot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class CommandCoalescerTest {
+
+    private final CommandQueue queue = new CommandQueue(8, 32,
+            CommandQueue.OverflowPolicy.DROP_OLDEST, true);
+    private final CommandQueue.Entry entry = new CommandQueue.Entry(32);
+    private int seq = 0;
+
+    @Before
+    public void setUp() {
+        // As on a binary link; headMoves_goOutAsSingleStepsForTextFirmware covers text
+        queue.setCountedHeadMoves(true);
+    }
+
+    @Test
+    public void queuedExpressions_collapseToTheNewest() throws InterruptedException {
+        offer("EXPR:HAPPY");
+        offer("EXPR:SAD");
+        offer("EXPR:LOVE");
+
+        assertEquals(1, queue.getDepth());
+        assertEquals(2, queue.getCoalescedCount());
+        assertTake("EXPR:LOVE", 3);
+    }
+
+    @Test
+    public void headMoves_mergeIntoANetDeltaPerAxis() throws InterruptedException {
+        offer("HEAD:LEFT");
+        offer("HEAD:LEFT");
+        offer("HEAD:UP");
+        offer("HEAD:LEFT");
+        offer("HEAD:RIGHT");
+        offer("HEAD:UP");
+
+        assertEquals(2, queue.getDepth());
+        assertTake("HEAD:LEFT:2", 5);
+        assertTake("HEAD:UP:2", 6);
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    public void headMoves_goOutAsSingleStepsForTextFirmware() throws InterruptedException {
+        queue.setCountedHeadMoves(false);
+        offer("HEAD:LEFT");
+        offer("HEAD:LEFT:3");
+        offer("HEAD:RIGHT");
+        offer("HEAD:DOWN");
+
+        // The net move still goes out, one step per command; only the last is timed
+        assertEquals(4, queue.getDepth());
+        assertTake("HEAD:LEFT", CommandLatency.NO_SEQ);
+        assertTake("HEAD:LEFT", CommandLatency.NO_SEQ);
+        assertTake("HEAD:LEFT", 3);
+        assertTake("HEAD:DOWN", 4);
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    public void textSteps_areCappedAtTheQueueCapacityPerAxis() throws InterruptedException {
+        queue.setCountedHeadMoves(false);
+        for (int i = 0; i < 12; i++) {
+            offer("HEAD:LEFT");
+        }
+        offer("HEAD:UP");
+
+        assertEquals(9, queue.getDepth());
+        for (int i = 0; i < 7; i++) {
+            assertTake("HEAD:LEFT", CommandLatency.NO_SEQ);
+        }
+        assertTake("HEAD:LEFT", 12);
+        assertTake("HEAD:UP", 13);
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    public void singleMoves_keepThePlainCommand() throws InterruptedException {
+        offer("HEAD:DOWN");
+        assertTake("HEAD:DOWN", 1);
+    }
+
+    @Test
+    public void opposingMoves_cancelOut() {
+        offer("HEAD:LEFT");
+        offer("HEAD:RIGHT");
+        offer("HEAD:UP");
+        offer("HEAD:DOWN");
+
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    public void center_dropsQueuedMovesButKeepsLaterOnes() throws InterruptedException {
+        offer("HEAD:LEFT");
+        offer("HEAD:UP");
+        offer("HEAD:CENTER");
+        offer("HEAD:RIGHT");
+
+        assertEquals(2, queue.getDepth());
+        assertTake("HEAD:CENTER", 3);
+        assertTake("HEAD:RIGHT", 4);
+    }
+
+    @Test
+    public void framedCommands_stayFramed() throws InterruptedException {
+        offer("<EXPR:HAPPY>");
+        offer("<HEAD:RIGHT>");
+        offer("<HEAD:RIGHT>");
+        offer("<EXPR:COOL>");
+
+        assertTake("<EXPR:COOL>", 4);
+        assertTake("<HEAD:RIGHT:2>", 3);
+    }
+
+    @Test
+    public void countedMoves_addUp() throws InterruptedException {
+        offer("HEAD:LEFT:3");
+        offer("HEAD:RIGHT");
+        assertTake("HEAD:LEFT:2", 2);
+    }
+
+    @Test
+    public void slots_keepTheirPlaceAmongOtherCommands() throws InterruptedException {
+        offer("HEAD:LEFT");
+        offer("PING");
+        offer("EXPR:HAPPY");
+        offer("HEAD:LEFT");
+        offer("EXPR:SAD");
+        offer("BEEP");
+
+        assertTake("HEAD:LEFT:2", 4);
+        assertTake("PING", 2);
+        assertTake("EXPR:SAD", 5);
+        assertTake("BEEP", 6);
+    }
+
+    @Test
+    public void unknownHeadCommands_areQueuedAsIs() throws InterruptedException {
+        offer("HEAD:SPIN");
+        offer("HEAD:CENTER:2");
+        offer("HEAD:LEFT:x");
+
+        assertEquals(3, queue.getDepth());
+        assertTake("HEAD:SPIN", 1);
+        assertTake("HEAD:CENTER:2", 2);
+        assertTake("HEAD:LEFT:x", 3);
+    }
+
+    @Test
+    public void movesQueuedAfterATake_startANewDelta() throws InterruptedException {
+        offer("HEAD:UP");
+        assertTake("HEAD:UP", 1);
+        offer("HEAD:UP");
+        offer("HEAD:UP");
+        assertTake("HEAD:UP:2", 3);
+    }
+
+    @Test
+    public void headTargets_keepOnlyTheNewest() throws InterruptedException {
+        offer("HEAD:LEFT");
+        offer("<HEAD:POS:10:-5>");
+        assertTrue(queue.offerHeadTarget(-90, 45, ++seq));
+        offer("<HEAD:UP>");
+
+        assertEquals(2, queue.getDepth());
+        assertTake("<HEAD:POS:-90:45>", 3);
+        assertTake("<HEAD:UP>", 4);
+    }
+
+    @Test
+    public void center_dropsAQueuedTarget() throws InterruptedException {
+        assertTrue(queue.offerHeadTarget(30, 0, ++seq));
+        offer("HEAD:CENTER");
+
+        assertEquals(1, queue.getDepth());
+        assertTake("HEAD:CENTER", 2);
+    }
+
+    @Test
+    public void malformedTargets_areQueuedAsIs() throws InterruptedException {
+        offer("HEAD:POS:1");
+        offer("HEAD:POS:1:2:3");
+        offer("HEAD:POS:40000:0");
+
+        assertEquals(3, queue.getDepth());
+        assertTake("HEAD:POS:1", 1);
+    }
+
+    @Test
+    public void close_discardsPendingSlots() {
+        offer("EXPR:HAPPY");
+        offer("HEAD:LEFT");
+        queue.close();
+        queue.open();
+        assertEquals(0, queue.getDepth());
+    }
+
+    private void offer(String command) {
+        assertTrue(queue.offer(command, ++seq));
+    }
+
+    private void assertTake(String command, int expectedSeq) throws InterruptedException {
+        assertTrue(queue.take(entry));
+        assertEquals(command, new String(entry.bytes, 0, entry.length, StandardCharsets.US_ASCII));
+        assertEquals(expectedSeq, entry.seq);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.buddyrobot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CommandLatencyTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void everyStage_isMeasuredFromThePreviousOne() {
+        CommandLatency latency = new CommandLatency();
+        long t = 1_000 * MS;
+        int seq = latency.begin(t);
+        latency.onEnqueued(seq, t + 2 * MS);
+        latency.onWriteStarted(seq, t + 5 * MS);
+        latency.onWriteCompleted(seq, t + 6 * MS);
+        latency.onAck(seq, t + 26 * MS);
+
+        assertStage(latency, CommandLatency.Stage.UI, 2f);
+        assertStage(latency, CommandLatency.Stage.QUEUE, 3f);
+        assertStage(latency, CommandLatency.Stage.WRITE, 1f);
+        assertStage(latency, CommandLatency.Stage.SEND, 6f);
+        assertStage(latency, CommandLatency.Stage.ACK, 20f);
+        assertStage(latency, CommandLatency.Stage.ROUND_TRIP, 26f);
+    }
+
+    @Test
+    public void inOrderAcks_matchTheOldestOutstandingCommand() {
+        CommandLatency latency = new CommandLatency();
+        long t = 1_000 * MS;
+        int first = send(latency, t);
+        int second = send(latency, t + 10 * MS);
+
+        assertEquals(first, latency.onAckInOrder(t + 30 * MS));
+        assertEquals(second, latency.onAckInOrder(t + 40 * MS));
+        assertEquals(-1, latency.onAckInOrder(t + 50 * MS));
+
+        LatencyHistogram roundTrip = latency.getHistogram(CommandLatency.Stage.ROUND_TRIP);
+        assertEquals(2, roundTrip.getCount());
+        assertEquals(30f, roundTrip.getMaxMs(), 1e-3f);
+    }
+
+    @Test
+    public void inOrderAcks_skipCommandsThatWereNeverWritten() throws InterruptedException {
+        CommandLatency latency = new CommandLatency();
+        CommandQueue queue = new CommandQueue(8, 32, CommandQueue.OverflowPolicy.DROP_OLDEST, true);
+        long t = 1_000 * MS;
+        int first = latency.begin(t);
+        queue.offer("<EXPR:HAPPY>", first);
+        int second = latency.begin(t + MS);
+        queue.offer("<EXPR:SAD>", second);
+        latency.onEnqueued(first, t + MS);
+        latency.onEnqueued(second, t + 2 * MS);
+
+        // The second expression replaced the first, so only it goes out and gets echoed
+        CommandQueue.Entry entry = new CommandQueue.Entry(32);
+        assertTrue(queue.poll(entry, 0));
+        assertEquals(second, entry.seq);
+        assertFalse(queue.poll(entry, 0));
+        latency.onWriteStarted(second, t + 3 * MS);
+        latency.onWriteCompleted(second, t + 4 * MS);
+
+        assertEquals(second, latency.onAckInOrder(t + 20 * MS));
+        assertEquals(-1, latency.onAckInOrder(t + 30 * MS));
+        LatencyHistogram ack = latency.getHistogram(CommandLatency.Stage.ACK);
+        assertEquals(1, ack.getCount());
+        assertEquals(16f, ack.getMaxMs(), 1e-3f);
+    }
+
+    @Test
+    public void untimedCommands_takeTheirEchoButRecordNothing() {
+        CommandLatency latency = new CommandLatency();
+        long t = 1_000 * MS;
+        int seq = latency.begin(t);
+        latency.onEnqueued(seq, t);
+        // A move split into steps for text firmware: only the last step carries the seq
+        latency.onWriteStarted(CommandLatency.NO_SEQ, t + MS);
+        latency.onWriteStarted(seq, t + MS);
+        latency.onWriteCompleted(CommandLatency.NO_SEQ, t + 2 * MS);
+        latency.onWriteCompleted(seq, t + 2 * MS);
+
+        assertEquals(-1, latency.onAckInOrder(t + 10 * MS));
+        assertEquals(seq, latency.onAckInOrder(t + 12 * MS));
+        assertEquals(1, latency.getHistogram(CommandLatency.Stage.WRITE).getCount());
+        assertEquals(12f, latency.getHistogram(CommandLatency.Stage.ROUND_TRIP).getMaxMs(), 1e-3f);
+    }
+
+    @Test
+    public void overwrittenSlots_dropLateStages() {
+        CommandLatency latency = new CommandLatency();
+        long t = 1_000 * MS;
+        int stale = latency.begin(t);
+        for (int i = 0; i < CommandLatency.SLOTS; i++) {
+            latency.begin(t + i);
+        }
+        latency.onEnqueued(stale, t + MS);
+        latency.onAck(stale, t + 2 * MS);
+
+        assertEquals(0, latency.getHistogram(CommandLatency.Stage.UI).getCount());
+        assertEquals(0, latency.getHistogram(CommandLatency.Stage.ROUND_TRIP).getCount());
+    }
+
+    @Test
+    public void ackBeforeWrite_isIgnored() {
+        CommandLatency latency = new CommandLatency();
+        int seq = latency.begin(MS);
+        latency.onAck(seq, 2 * MS);
+        assertEquals(0, latency.getHistogram(CommandLatency.Stage.ACK).getCount());
+    }
+
+    @Test
+    public void summary_listsEveryStage() {
+        CommandLatency latency = new CommandLatency();
+        send(latency, MS);
+        String summary = latency.summary();
+        for (CommandLatency.Stage stage : CommandLatency.Stage.values()) {
+            assertTrue(summary, summary.contains(stage.label));
+        }
+    }
+
+    private static int send(CommandLatency latency, long tap) {
+        int seq = latency.begin(tap);
+        latency.onEnqueued(seq, tap + MS);
+        latency.onWriteStarted(seq, tap + MS);
+        latency.onWriteCompleted(seq, tap + 2 * MS);
+        return seq;
+    }
+
+    private static void assertStage(CommandLatency latency, CommandLatency.Stage stage, float ms) {
+        LatencyHistogram histogram = latency.getHistogram(stage);
+        assertEquals(stage.name(), 1, histogram.getCount());
+        assertEquals(stage.name(), ms, histogram.getMeanMs(), 1e-3f);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.buddyrobot;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class CommandQueueTest {
+
+    private final CommandQueue.Entry entry = new CommandQueue.Entry(16);
+
+    @Test
+    public void commands_comeOutInOrderWithTheirSeq() throws InterruptedException {
+        CommandQueue queue = newQueue(4, CommandQueue.OverflowPolicy.DROP_NEWEST);
+        assertTrue(queue.offer("EXPR:HAPPY", 1));
+        assertTrue(queue.offer("HEAD:LEFT", 2));
+
+        assertTake(queue, "EXPR:HAPPY", 1);
+        assertTake(queue, "HEAD:LEFT", 2);
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    public void dropNewest_refusesWhenFull() throws InterruptedException {
+        CommandQueue queue = newQueue(2, CommandQueue.OverflowPolicy.DROP_NEWEST);
+        assertTrue(queue.offer("A", 1));
+        assertTrue(queue.offer("B", 2));
+        assertFalse(queue.offer("C", 3));
+
+        assertEquals(1, queue.getDroppedCount());
+        assertTake(queue, "A", 1);
+        assertTake(queue, "B", 2);
+    }
+
+    @Test
+    public void dropOldest_keepsTheNewestCommands() throws InterruptedException {
+        CommandQueue queue = newQueue(2, CommandQueue.OverflowPolicy.DROP_OLDEST);
+        assertTrue(queue.offer("A", 1));
+        assertTrue(queue.offer("B", 2));
+        assertTrue(queue.offer("C", 3));
+        assertTrue(queue.offer("D", 4));
+
+        assertEquals(2, queue.getDroppedCount());
+        assertEquals(2, queue.getDepth());
+        assertTake(queue, "C", 3);
+        assertTake(queue, "D", 4);
+    }
+
+    @Test
+    public void depthMetrics_trackTheBacklog() throws InterruptedException {
+        CommandQueue queue = newQueue(8, CommandQueue.OverflowPolicy.DROP_OLDEST);
+        queue.offer("A", 1);   // saw 0 waiting
+        queue.offer("B", 2);   // saw 1
+        queue.offer("C", 3);   // saw 2
+        queue.take(entry);
+
+        assertEquals(2, queue.getDepth());
+        assertEquals(3, queue.getHighWaterMark());
+        assertEquals(1f, queue.getAverageDepth(), 1e-6f);
+        assertEquals(3, queue.getEnqueuedCount());
+
+        queue.resetMetrics();
+        assertEquals(2, queue.getHighWaterMark());
+        assertEquals(0, queue.getEnqueuedCount());
+    }
+
+    @Test
+    public void take_waitsForOfferAndStopsOnClose() throws InterruptedException {
+        final CommandQueue queue = newQueue(4, CommandQueue.OverflowPolicy.DROP_OLDEST);
+        final CountDownLatch taken = new CountDownLatch(1);
+        final AtomicReference<String> received = new AtomicReference<>();
+        final AtomicReference<Boolean> afterClose = new AtomicReference<>();
+        Thread consumer = new Thread(() -> {
+            CommandQueue.Entry e = new CommandQueue.Entry(16);
+            try {
+                if (queue.take(e)) {
+                    received.set(new String(e.bytes, 0, e.length, StandardCharsets.US_ASCII));
+                }
+                taken.countDown();
+                afterClose.set(queue.take(e));
+            } catch (InterruptedException ignored) {
+            }
+        });
+        consumer.start();
+
+        queue.offer("HEAD:UP", 7);
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+        assertEquals("HEAD:UP", received.get());
+
+        queue.close();
+        consumer.join(5000);
+        assertFalse(consumer.isAlive());
+        assertEquals(Boolean.FALSE, afterClose.get());
+        assertFalse(queue.offer("HEAD:DOWN", 8));
+    }
+
+    @Test
+    public void open_startsEmpty() throws InterruptedException {
+        CommandQueue queue = newQueue(4, CommandQueue.OverflowPolicy.DROP_OLDEST);
+        queue.offer("A", 1);
+        queue.close();
+        queue.open();
+        assertEquals(0, queue.getDepth());
+        queue.offer("B", 2);
+        assertTake(queue, "B", 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void offer_rejectsCommandsLongerThanASlot() {
+        newQueue(4, CommandQueue.OverflowPolicy.DROP_OLDEST).offer("EXPR:THIS_IS_TOO_LONG", 1);
+    }
+
+    @Test
+    public void concurrentProducers_loseNothingWhileThereIsRoom() throws InterruptedException {
+        final CommandQueue queue = newQueue(4096, CommandQueue.OverflowPolicy.DROP_NEWEST);
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            final int base = p * 1000;
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    queue.offer("HEAD:UP", base + i);
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        boolean[] seen = new boolean[4000];
+        for (int i = 0; i < 4000; i++) {
+            assertTrue(queue.take(entry));
+            assertFalse("seq " + entry.seq + " twice", seen[entry.seq]);
+            seen[entry.seq] = true;
+        }
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void offerAndTake_doNotAllocate() throws InterruptedException {
+        assumeTrue(AllocationProbe.isSupported());
+        CommandQueue queue = newQueue(8, CommandQueue.OverflowPolicy.DROP_OLDEST);
+        long allocated = -1;
+        // First pass warms up; see DrawLoopAllocationTest for why later passes get retries
+        for (int pass = 0; pass < 4 && allocated != 0; pass++) {
+            long before = AllocationProbe.allocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                queue.offer("HEAD:LEFT", i);
+                queue.offer("EXPR:HAPPY", i);
+                queue.take(entry);
+                queue.take(entry);
+            }
+            allocated = pass == 0 ? -1 : AllocationProbe.allocatedBytes() - before;
+        }
+        assertEquals(0L, allocated);
+    }
+
+    private static CommandQueue newQueue(int capacity, CommandQueue.OverflowPolicy policy) {
+        return new CommandQueue(capacity, 16, policy);
+    }
+
+    private void assertTake(CommandQueue queue, String command, int seq) throws InterruptedException {
+        assertTrue(queue.take(entry));
+        assertEquals(command, new String(entry.bytes, 0, entry.length, StandardCharsets.US_ASCII));
+        assertEquals(seq, entry.seq);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.buddyrobot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Guards the face draw loop against allocating: every steady-state frame of every expression
+ * (the animator step, pose evaluation, the accent drawers and the shape calls they issue)
+ * must allocate nothing, so a stray new RectF or new Path can't bring GC jank back.
+ *
+ * <p>Frames are checked after warm-up passes over the same deterministic timeline, and the
+ * test only fails if an attempt allocates every time (see ATTEMPTS). CanvasFaceSurface and
+ * ShapeCache need android.graphics and are not covered here; both only reuse objects
+ * created in their constructors.
+ */
+public class DrawLoopAllocationTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 720;
+    private static final long FRAME_NANOS = 16_666_667L;
+    private static final int CYCLE_FRAMES = (int) (FaceAnimator.ANIM_CYCLE_MS * 1_000_000L / FRAME_NANOS);
+    // Enough cycles to cover blinks, eye darts, gaze changes and idle tilts
+    private static final int CHECKED_FRAMES = 10 * CYCLE_FRAMES;
+    // Warm-up passes take every branch at least once, so class initialisation, lambda linkage
+    // and the JIT have settled before frames are checked
+    private static final int WARMUP_PASSES = 2;
+    // A C2 deoptimisation mid-frame can allocate on the VM's behalf, once; a stray new in the
+    // draw loop allocates on every pass, so a frame must fail every attempt to fail the test
+    private static final int ATTEMPTS = 3;
+
+    private final AllocationCheckingSurface surface = new AllocationCheckingSurface();
+    private Object escaped;
+
+    /** One deterministic pass over a set of frames; returns the first allocating frame. */
+    private interface Pass {
+        String run();
+    }
+
+    @Before
+    public void requireAllocationCounter() {
+        assumeTrue("VM has no per-thread allocation counter", AllocationProbe.isSupported());
+    }
+
+    @Test
+    public void everyExpression_steadyStateFramesDoNotAllocate() {
+        assertNoAllocation(() -> {
+            String failure = null;
+            for (Expression expression : Expression.values()) {
+                FaceState state = new FaceState();
+                FaceAnimator animator = new FaceAnimator(state, new Random(11), 0L);
+                animator.setExpressionImmediate(expression);
+                FaceRenderer renderer = newRenderer();
+
+                long frameTime = 0L;
+                for (int frame = 0; frame < CHECKED_FRAMES; frame++) {
+                    frameTime += FRAME_NANOS;
+                    long before = AllocationProbe.allocatedBytes();
+                    animator.advance(frameTime);
+                    renderer.update(state);
+                    renderer.holdBody(state);
+                    long animated = AllocationProbe.allocatedBytes() - before;
+
+                    surface.reset();
+                    renderer.draw(surface, state, false);
+                    surface.finish();
+
+                    if (failure == null) failure = checkFrame(expression, "frame", frame, animated);
+                }
+            }
+            return failure;
+        });
+    }
+
+    @Test
+    public void transitions_doNotAllocate() {
+        int transitionFrames = (int) (FaceAnimator.TRANSITION_MS * 1_000_000L / FRAME_NANOS) + 2;
+        assertNoAllocation(() -> {
+            String failure = null;
+            FaceState state = new FaceState();
+            FaceAnimator animator = new FaceAnimator(state, new Random(11), 0L);
+            FaceRenderer renderer = newRenderer();
+
+            long frameTime = 0L;
+            for (Expression to : Expression.values()) {
+                animator.setExpression(to, frameTime);
+                for (int frame = 0; frame < transitionFrames; frame++) {
+                    frameTime += FRAME_NANOS;
+                    long before = AllocationProbe.allocatedBytes();
+                    animator.advance(frameTime);
+                    renderer.update(state);
+                    renderer.holdBody(state);
+                    long animated = AllocationProbe.allocatedBytes() - before;
+
+                    surface.reset();
+                    renderer.draw(surface, state, false);
+                    surface.finish();
+
+                    if (failure == null) failure = checkFrame(to, "transition frame", frame, animated);
+                }
+            }
+            return failure;
+        });
+    }
+
+    @Test
+    public void cachedLayerAndDirtyRegions_doNotAllocate() {
+        FaceRenderer renderer = newRenderer();
+        FaceState state = new FaceState();
+        FaceRenderer.Bounds bounds = new FaceRenderer.Bounds();
+
+        assertNoAllocation(() -> {
+            String failure = null;
+            for (Expression expression : Expression.values()) {
+                state.expression = expression;
+                state.targetExpression = expression;
+                for (int step = 0; step < CYCLE_FRAMES; step++) {
+                    state.animProgress = step / (float) CYCLE_FRAMES;
+                    long before = AllocationProbe.allocatedBytes();
+                    renderer.update(state);
+                    renderer.holdBody(state);
+                    bounds.setEmpty();
+                    if (renderer.hasRegions(expression)) {
+                        renderer.unionChangedRegion(expression, true, bounds);
+                    }
+                    long animated = AllocationProbe.allocatedBytes() - before;
+
+                    surface.reset();
+                    renderer.drawStaticLayer(surface, state, expression);
+                    renderer.draw(surface, state, true);
+                    surface.finish();
+
+                    if (failure == null) failure = checkFrame(expression, "cached step", step, animated);
+                }
+            }
+            return failure;
+        });
+    }
+
+    @Test
+    public void probe_catchesAStrayAllocation() {
+        for (int i = 0; i < 1000; i++) {
+            surface.reset();
+            surface.setFill(0);
+            escaped = new float[16]; // what a stray new RectF looks like to the probe
+            surface.drawCircle(0f, 0f, 1f);
+            surface.finish();
+            assertTrue(surface.allocatedBytes > 0);
+            assertEquals("drawCircle", surface.firstOffender);
+        }
+    }
+
+    private static void assertNoAllocation(Pass pass) {
+        for (int i = 0; i < WARMUP_PASSES; i++) {
+            pass.run();
+        }
+        String failure = null;
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            failure = pass.run();
+            if (failure == null) return;
+        }
+        fail(failure);
+    }
+
+    // Builds its message only on failure: allocating in the loop would itself be measured
+    private String checkFrame(Expression expression, String what, int frame, long animatedBytes) {
+        if (animatedBytes != 0) {
+            return expression + " " + what + " " + frame + " allocated " + animatedBytes
+                    + " bytes while animating";
+        }
+        if (surface.allocatedBytes != 0) {
+            return expression + " " + what + " " + frame + " allocated " + surface.allocatedBytes
+                    + " bytes while drawing, first " + surface.firstOffenderBytes + " before "
+                    + surface.firstOffender;
+        }
+        return null;
+    }
+
+    private static FaceRenderer newRenderer() {
+        FaceRenderer renderer = new FaceRenderer();
+        renderer.setSize(WIDTH, HEIGHT);
+        return renderer;
+    }
+}
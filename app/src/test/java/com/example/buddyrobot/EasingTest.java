@@ -0,0 +1,58 @@
+package com.example.buddyrobot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Table-backed easing curves against their closed forms.
+ */
+public class EasingTest {
+
+    @Test
+    public void elastic_withinDocumentedError() {
+        for (int i = 0; i <= 100000; i++) {
+            float t = i / 100000f;
+            assertEquals("t=" + t, Easing.elastic(t), Easing.easeOutElastic(t),
+                    Easing.ELASTIC_MAX_ERROR);
+        }
+    }
+
+    @Test
+    public void elastic_clampsOutsideUnitRange() {
+        assertEquals(Easing.easeOutElastic(0f), Easing.easeOutElastic(-0.5f), 0f);
+        assertEquals(Easing.easeOutElastic(1f), Easing.easeOutElastic(1.5f), 0f);
+    }
+
+    @Test
+    public void cubicBezier_withinDocumentedError() {
+        Easing.CubicBezier curve = Easing.STANDARD;
+        for (int i = 0; i <= 10000; i++) {
+            float x = i / 10000f;
+            double exact = Easing.CubicBezier.solve(0.4, 0, 0.2, 1, x);
+            assertEquals("x=" + x, exact, curve.at(x), Easing.BEZIER_MAX_ERROR);
+        }
+    }
+
+    @Test
+    public void cubicBezier_linearControlPointsIsIdentity() {
+        Easing.CubicBezier linear = new Easing.CubicBezier(0.25f, 0.25f, 0.75f, 0.75f);
+        for (int i = 0; i <= 100; i++) {
+            float x = i / 100f;
+            assertEquals(x, linear.at(x), 1e-5f);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cubicBezier_rejectsNonMonotonicX() {
+        new Easing.CubicBezier(1.5f, 0f, 0.2f, 1f);
+    }
+
+    @Test
+    public void bounceAndQuad_hitEndpoints() {
+        assertEquals(0f, Easing.easeInOutQuad(0f), 0f);
+        assertEquals(1f, Easing.easeInOutQuad(1f), 1e-6f);
+        assertEquals(0f, Easing.easeOutBounce(0f), 0f);
+        assertEquals(1f, Easing.easeOutBounce(1f), 1e-6f);
+    }
+}
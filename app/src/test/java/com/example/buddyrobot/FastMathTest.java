@@ -0,0 +1,50 @@
+package com.example.buddyrobot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Accuracy of the sine table against java.lang.Math. Speed is measured by EasingBenchmark.
+ */
+public class FastMathTest {
+
+    @Test
+    public void sin_withinDocumentedError() {
+        for (int i = -200000; i <= 200000; i++) {
+            float x = 64f * FastMath.PI * i / 200000f;
+            assertEquals("sin(" + x + ")", Math.sin(x), FastMath.sin(x), FastMath.sinErrorBound(x));
+        }
+    }
+
+    @Test
+    public void cos_withinDocumentedError() {
+        for (int i = -200000; i <= 200000; i++) {
+            float x = 64f * FastMath.PI * i / 200000f;
+            assertEquals("cos(" + x + ")", Math.cos(x), FastMath.cos(x), FastMath.sinErrorBound(x));
+        }
+    }
+
+    @Test
+    public void sin_phasesUsedByFaceStayTight() {
+        for (int i = 0; i <= 100000; i++) {
+            float x = 8f * FastMath.PI * i / 100000f;
+            assertEquals(Math.sin(x), FastMath.sin(x), 3e-6);
+        }
+    }
+
+    @Test
+    public void sin_exactAtQuadrants() {
+        assertEquals(0f, FastMath.sin(0f), 0f);
+        assertEquals(1f, FastMath.sin(FastMath.HALF_PI), 1e-6f);
+        assertEquals(-1f, FastMath.sin(-FastMath.HALF_PI), 1e-6f);
+        assertEquals(0f, FastMath.sin(FastMath.PI), 1e-6f);
+    }
+
+    @Test
+    public void cycle_wrapsLongClocks() {
+        assertEquals(0.5f, FastMath.cycle(3000, 6000), 0f);
+        assertEquals(0.5f, FastMath.cycle(6000L * 1000000 + 3000, 6000), 0f);
+        assertEquals(0.75f, FastMath.cycle(-1500, 6000), 0f);
+    }
+}
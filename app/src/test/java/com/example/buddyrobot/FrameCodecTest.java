@@ -0,0 +1,175 @@
+package com.example.buddyrobot;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class FrameCodecTest {
+
+    private final byte[] frame = new byte[FrameCodec.MAX_FRAME];
+    private final FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+
+    @Test
+    public void expressions_encodeToOneBytePayload() {
+        int length = encode("<EXPR:LAUGHING>", 7);
+
+        assertEquals(6, length);
+        assertEquals((byte) FrameCodec.SYNC, frame[0]);
+        assertEquals(FrameCodec.OP_EXPRESSION, frame[1]);
+        assertEquals(7, frame[2]);
+        assertEquals(1, frame[3]);
+        assertEquals(Expression.LAUGHING.ordinal(), frame[4]);
+        assertEquals(FrameCodec.crc8(frame, 1, 5), frame[5] & 0xFF);
+    }
+
+    @Test
+    public void headCommands_encodeDirectionAndSteps() {
+        assertEquals(7, encode("HEAD:LEFT", 1));
+        assertEquals(FrameCodec.OP_HEAD_MOVE, frame[1]);
+        assertEquals(FrameCodec.DIR_LEFT, frame[4]);
+        assertEquals(1, frame[5]);
+
+        encode("<HEAD:UP:12>", 2);
+        assertEquals(FrameCodec.DIR_UP, frame[4]);
+        assertEquals(12, frame[5]);
+
+        assertEquals(5, encode("HEAD:CENTER", 3));
+        assertEquals(FrameCodec.OP_HEAD_CENTER, frame[1]);
+    }
+
+    @Test
+    public void headTargets_encodeSignedDegrees() {
+        assertEquals(9, encode("<HEAD:POS:-90:300>", 4));
+        assertEquals(FrameCodec.OP_HEAD_TARGET, frame[1]);
+        assertEquals(4, frame[3]);
+        assertEquals(-90, (short) ((frame[4] & 0xFF) << 8 | (frame[5] & 0xFF)));
+        assertEquals(300, (short) ((frame[6] & 0xFF) << 8 | (frame[7] & 0xFF)));
+
+        byte[] text = new byte[CommandCodec.MAX_HEAD_TARGET_BYTES];
+        int length = CommandCodec.encodeHeadTarget(-32768, 32767, true, text, 0);
+        assertEquals("<HEAD:POS:-32768:32767>", new String(text, 0, length,
+                StandardCharsets.US_ASCII));
+        FrameCodec.encode(text, length, 0, frame, 0);
+        assertEquals(FrameCodec.OP_HEAD_TARGET, frame[1]);
+    }
+
+    @Test
+    public void otherCommands_travelAsText() {
+        String[] commands = {"PING", "HEAD:SPIN", "EXPR:UNKNOWN", "HEAD:LEFT:300", "<BEEP:2>",
+                "HEAD:POS:1", "HEAD:POS:-:1", "HEAD:POS:1:2:3", "HEAD:POS:0:40000"};
+        for (String command : commands) {
+            int length = encode(command, 0);
+            assertEquals(command, FrameCodec.OP_TEXT, frame[1] & 0xFF);
+            String text = command.startsWith("<") ? command.substring(1, command.length() - 1) : command;
+            assertEquals(text, new String(frame, 4, frame[3], StandardCharsets.US_ASCII));
+            assertEquals(FrameCodec.HEADER_BYTES + text.length() + 1, length);
+        }
+    }
+
+    @Test
+    public void seq_wrapsModulo256() {
+        encode("HEAD:UP", 300);
+        assertEquals(300 & 0xFF, frame[2] & 0xFF);
+    }
+
+    @Test
+    public void decoder_roundTripsEveryFrame() {
+        for (Expression expression : Expression.values()) {
+            int length = encode(expression.getCommand(), expression.ordinal());
+            assertTrue(feedAll(frame, 0, length));
+            assertEquals(FrameCodec.OP_EXPRESSION, decoder.opcode);
+            assertEquals(expression.ordinal(), decoder.seq);
+            assertEquals(expression.ordinal(), decoder.payload[0]);
+        }
+    }
+
+    @Test
+    public void decoder_skipsNoiseAndCorruptFrames() {
+        byte[] stream = new byte[64];
+        int n = 0;
+        stream[n++] = 'x';
+        stream[n++] = (byte) FrameCodec.SYNC;          // stray sync with a bad length
+        stream[n++] = 0x01;
+        stream[n++] = 0x00;
+        stream[n++] = (byte) 200;
+        int corruptAt = n;
+        n += FrameCodec.encode(ascii("HEAD:LEFT"), 9, 1, stream, n);
+        stream[corruptAt + 5] ^= 0x01;                  // flip a payload bit
+        n += FrameCodec.encode(ascii("HEAD:RIGHT"), 10, 2, stream, n);
+
+        int frames = 0;
+        for (int i = 0; i < n; i++) {
+            if (decoder.feed(stream[i])) {
+                frames++;
+                assertEquals(2, decoder.seq);
+                assertEquals(FrameCodec.DIR_RIGHT, decoder.payload[0]);
+            }
+        }
+        assertEquals(1, frames);
+        assertTrue(decoder.getCorruptedCount() >= 2);
+    }
+
+    @Test
+    public void crc_catchesEverySingleBitError() {
+        int length = encode("EXPR:HAPPY", 5);
+        for (int bit = 8; bit < length * 8; bit++) {  // every bit after the sync byte
+            byte[] copy = frame.clone();
+            copy[bit / 8] ^= (byte) (1 << (bit % 8));
+            FrameCodec.Decoder fresh = new FrameCodec.Decoder();
+            boolean decoded = false;
+            for (int i = 0; i < length; i++) {
+                decoded |= fresh.feed(copy[i]);
+            }
+            assertFalse("bit " + bit, decoded);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void oversizedText_isRejected() {
+        StringBuilder command = new StringBuilder();
+        for (int i = 0; i <= FrameCodec.MAX_PAYLOAD; i++) {
+            command.append('A');
+        }
+        byte[] text = ascii(command.toString());
+        FrameCodec.encode(text, text.length, 0, new byte[128], 0);
+    }
+
+    @Test
+    public void encodeAndDecode_doNotAllocate() {
+        assumeTrue(AllocationProbe.isSupported());
+        byte[] head = ascii("<HEAD:LEFT:3>");
+        byte[] expr = ascii("EXPR:SLEEPY");
+        long allocated = -1;
+        // First pass warms up; see DrawLoopAllocationTest for why later passes get retries
+        for (int pass = 0; pass < 4 && allocated != 0; pass++) {
+            long before = AllocationProbe.allocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                int length = FrameCodec.encode((i & 1) == 0 ? head : expr,
+                        (i & 1) == 0 ? head.length : expr.length, i, frame, 0);
+                feedAll(frame, 0, length);
+            }
+            allocated = pass == 0 ? -1 : AllocationProbe.allocatedBytes() - before;
+        }
+        assertEquals(0L, allocated);
+    }
+
+    private int encode(String command, int seq) {
+        byte[] text = ascii(command);
+        return FrameCodec.encode(text, text.length, seq, frame, 0);
+    }
+
+    private boolean feedAll(byte[] bytes, int from, int to) {
+        boolean complete = false;
+        for (int i = from; i < to; i++) {
+            complete = decoder.feed(bytes[i]);
+        }
+        return complete;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
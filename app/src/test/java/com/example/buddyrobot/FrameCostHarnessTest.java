@@ -0,0 +1,149 @@
+package com.example.buddyrobot;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives FaceRenderer through every expression (MainActivity's twelve plus NEUTRAL) over a
+ * simulated 60 fps timeline, recording draw calls instead of drawing, and checks the
+ * structural rules every frame must follow. With -Dbuddyrobot.frameCostReport=true (Gradle:
+ * -PframeCostReport) it also prints a per-expression report of op counts, save depth and
+ * relative frame cost.
+ */
+public class FrameCostHarnessTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 720;
+    private static final long FRAME_NANOS = 16_666_667L;
+    // Two full animation cycles, so every phase of every accent is covered
+    private static final int FRAMES = (int) (2 * FaceAnimator.ANIM_CYCLE_MS * 1_000_000L / FRAME_NANOS);
+
+    // Relative cost of the most expensive frame the face may issue; NEUTRAL is about 7
+    private static final float FRAME_COST_BUDGET = 60f;
+    private static final int MAX_SAVE_DEPTH = 3;
+
+    private static final boolean REPORT = Boolean.getBoolean("buddyrobot.frameCostReport");
+
+    @Test
+    public void everyExpression_staysWithinFrameBudget() {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "%-9s %7s %6s %6s %6s %6s %6s %6s %6s %6s %6s %5s %7s %7s%n",
+                "expr", "ops", "ovals", "circ", "arcs", "lines", "rrect", "paths", "text", "shapes",
+                "state", "depth", "cost", "maxCost"));
+
+        for (Expression expression : Expression.values()) {
+            Totals totals = simulate(expression);
+            report.append(String.format(Locale.ROOT,
+                    "%-9s %7.1f %6.1f %6.1f %6.1f %6.1f %6.1f %6.1f %6.1f %6.1f %6.1f %5d %7.1f %7.1f%n",
+                    expression, totals.avg(totals.drawOps), totals.avg(totals.ovals),
+                    totals.avg(totals.circles), totals.avg(totals.arcs), totals.avg(totals.lines),
+                    totals.avg(totals.roundRects), totals.avg(totals.paths),
+                    totals.avg(totals.texts), totals.avg(totals.shapes),
+                    totals.avg(totals.stateChanges), totals.maxDepth,
+                    totals.cost / FRAMES, totals.maxCost));
+
+            assertTrue(expression + " draws nothing", totals.drawOps > 0);
+            assertTrue(expression + " nests saves " + totals.maxDepth + " deep",
+                    totals.maxDepth <= MAX_SAVE_DEPTH);
+            assertTrue(expression + " peaks at cost " + totals.maxCost,
+                    totals.maxCost <= FRAME_COST_BUDGET);
+        }
+        if (REPORT) System.out.print(report);
+    }
+
+    @Test
+    public void transitions_betweenAllExpressions_stayBalanced() {
+        FaceRenderer renderer = new FaceRenderer();
+        renderer.setSize(WIDTH, HEIGHT);
+        FaceState state = new FaceState();
+        RecordingFaceSurface surface = new RecordingFaceSurface();
+
+        for (Expression from : Expression.values()) {
+            for (Expression to : Expression.values()) {
+                state.expression = from;
+                state.targetExpression = to;
+                state.transitioning = from != to;
+                for (int step = 0; step <= 10; step++) {
+                    state.transitionProgress = step / 10f;
+                    state.animProgress = step / 10f;
+                    surface.reset();
+                    renderer.render(surface, state);
+                    assertEquals(from + "->" + to, surface.saves, surface.restores);
+                    assertTrue(from + "->" + to + " peaks at cost " + surface.cost,
+                            surface.cost <= 2 * FRAME_COST_BUDGET);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void frames_areReproducibleFromState() {
+        FaceRenderer renderer = new FaceRenderer();
+        renderer.setSize(WIDTH, HEIGHT);
+        RecordingFaceSurface first = new RecordingFaceSurface();
+        RecordingFaceSurface second = new RecordingFaceSurface();
+        FaceState state = new FaceState();
+        state.expression = Expression.EXCITED;
+        state.targetExpression = Expression.EXCITED;
+        state.animProgress = 0.42f;
+
+        renderer.render(first, state);
+        renderer.render(second, state);
+
+        assertEquals(first.drawOps, second.drawOps);
+        assertEquals(first.cost, second.cost, 0f);
+    }
+
+    private static Totals simulate(Expression expression) {
+        FaceState state = new FaceState();
+        FaceAnimator animator = new FaceAnimator(state, new Random(7), 0L);
+        animator.setExpressionImmediate(expression);
+        FaceRenderer renderer = new FaceRenderer();
+        renderer.setSize(WIDTH, HEIGHT);
+        RecordingFaceSurface surface = new RecordingFaceSurface();
+        Totals totals = new Totals();
+
+        long frameTime = 0L;
+        for (int frame = 0; frame < FRAMES; frame++) {
+            frameTime += FRAME_NANOS;
+            animator.advance(frameTime);
+            surface.reset();
+            renderer.render(surface, state);
+
+            assertEquals(expression + " frame " + frame + " leaves saves open",
+                    surface.saves, surface.restores);
+            totals.add(surface);
+        }
+        return totals;
+    }
+
+    private static final class Totals {
+        long drawOps, ovals, circles, arcs, lines, roundRects, paths, texts, shapes, stateChanges;
+        int maxDepth;
+        float cost, maxCost;
+
+        void add(RecordingFaceSurface s) {
+            drawOps += s.drawOps;
+            ovals += s.ovals;
+            circles += s.circles;
+            arcs += s.arcs;
+            lines += s.lines;
+            roundRects += s.roundRects;
+            paths += s.paths;
+            texts += s.texts;
+            shapes += s.shapes;
+            stateChanges += s.stateChanges;
+            maxDepth = Math.max(maxDepth, s.maxDepth);
+            cost += s.cost;
+            maxCost = Math.max(maxCost, s.cost);
+        }
+
+        float avg(long total) {
+            return total / (float) FRAMES;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.buddyrobot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class FrameMetricsTest {
+
+    private static final long VSYNC = 16_666_667L;
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void vsyncGaps_countMissedVsyncs() {
+        FrameMetrics metrics = new FrameMetrics();
+        metrics.setVsyncPeriod(VSYNC);
+        long t = 1_000 * MS;
+        metrics.onVsync(t);
+        metrics.onVsync(t += VSYNC);
+        metrics.onVsync(t += VSYNC + 2 * MS);   // late, but still the next vsync
+        metrics.onVsync(t += 3 * VSYNC);        // two vsyncs missed
+        metrics.onVsync(t += 2 * VSYNC);        // one more
+
+        assertEquals(5, metrics.getVsyncCount());
+        assertEquals(3, metrics.getMissedVsyncCount());
+    }
+
+    @Test
+    public void pause_doesNotCountTheStoppedTimeAsMissed() {
+        FrameMetrics metrics = new FrameMetrics();
+        metrics.setVsyncPeriod(VSYNC);
+        metrics.onVsync(VSYNC);
+        metrics.pause();
+        metrics.onVsync(100 * VSYNC);
+
+        assertEquals(0, metrics.getMissedVsyncCount());
+    }
+
+    @Test
+    public void drawTimes_reportMeanMaxAndPercentiles() {
+        FrameMetrics metrics = new FrameMetrics();
+        for (int i = 0; i < 98; i++) {
+            metrics.onDraw(MS, Expression.HAPPY);          // 1 ms
+        }
+        metrics.onDraw(5 * MS, Expression.HAPPY);
+        metrics.onDraw(50 * MS, Expression.HAPPY);         // beyond the last bucket
+
+        assertEquals(100, metrics.getFrameCount());
+        assertEquals((98 + 5 + 50) / 100f, metrics.getAverageDrawMs(), 1e-4f);
+        assertEquals(50f, metrics.getMaxDrawMs(), 1e-4f);
+        assertEquals(1.25f, metrics.getDrawPercentileMs(0.5f), 1e-4f);
+        assertEquals(5.25f, metrics.getDrawPercentileMs(0.99f), 1e-4f);
+        assertEquals(50f, metrics.getDrawPercentileMs(1f), 1e-4f);
+        assertEquals(98, metrics.getDrawHistogramCount(1f));
+        assertEquals(1, metrics.getDrawHistogramCount(40f));
+    }
+
+    @Test
+    public void frameIntervals_areHistogrammedAndAveragedPerExpression() {
+        FrameMetrics metrics = new FrameMetrics();
+        long t = 0;
+        for (int i = 0; i <= 60; i++) {
+            metrics.onFrame(t += VSYNC, Expression.ANGRY);
+        }
+        for (int i = 0; i < 30; i++) {
+            metrics.onFrame(t += 2 * VSYNC, Expression.SLEEPY);
+        }
+
+        assertEquals(60f, metrics.getAverageFrameRate(Expression.ANGRY), 0.01f);
+        assertEquals(30f, metrics.getAverageFrameRate(Expression.SLEEPY), 0.01f);
+        assertEquals(0f, metrics.getAverageFrameRate(Expression.COOL), 0f);
+        assertEquals(60, metrics.getIntervalHistogramCount(16f));
+        assertEquals(30, metrics.getIntervalHistogramCount(33f));
+        assertEquals(17f, metrics.getIntervalPercentileMs(0.5f), 1e-4f);
+        // Bucket edge (34 ms) capped at the longest interval seen
+        assertEquals(2 * VSYNC / (float) MS, metrics.getIntervalPercentileMs(0.99f), 1e-3f);
+    }
+
+    @Test
+    public void drawTimes_areAveragedPerExpression() {
+        FrameMetrics metrics = new FrameMetrics();
+        metrics.onDraw(MS, Expression.COOL);
+        metrics.onDraw(3 * MS, Expression.COOL);
+        metrics.onDraw(8 * MS, Expression.LAUGHING);
+
+        assertEquals(2f, metrics.getAverageDrawMs(Expression.COOL), 1e-4f);
+        assertEquals(8f, metrics.getAverageDrawMs(Expression.LAUGHING), 1e-4f);
+        assertEquals(0f, metrics.getAverageDrawMs(Expression.NEUTRAL), 0f);
+    }
+
+    @Test
+    public void reset_clearsEverything() {
+        FrameMetrics metrics = new FrameMetrics();
+        metrics.onVsync(VSYNC);
+        metrics.onVsync(10 * VSYNC);
+        metrics.onFrame(VSYNC, Expression.SAD);
+        metrics.onFrame(2 * VSYNC, Expression.SAD);
+        metrics.onDraw(MS, Expression.SAD);
+
+        metrics.reset();
+
+        assertEquals(0, metrics.getFrameCount());
+        assertEquals(0, metrics.getVsyncCount());
+        assertEquals(0, metrics.getMissedVsyncCount());
+        assertEquals(0f, metrics.getAverageDrawMs(), 0f);
+        assertEquals(0f, metrics.getDrawPercentileMs(0.99f), 0f);
+        assertEquals(0f, metrics.getAverageFrameRate(Expression.SAD), 0f);
+    }
+
+    @Test
+    public void recording_doesNotAllocate() {
+        assumeTrue(AllocationProbe.isSupported());
+        FrameMetrics metrics = new FrameMetrics();
+        Expression[] expressions = Expression.values();
+        long t = 0;
+        // The first pass warms up; a JIT deoptimisation can allocate once, so any later
+        // clean pass proves recording itself is allocation-free
+        long allocated = -1;
+        for (int pass = 0; pass < 4 && allocated != 0; pass++) {
+            long before = AllocationProbe.allocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                Expression expression = expressions[i % expressions.length];
+                metrics.onVsync(t += VSYNC);
+                metrics.onFrame(t, expression);
+                metrics.onDraw(i * 1_000L, expression);
+            }
+            allocated = pass == 0 ? -1 : AllocationProbe.allocatedBytes() - before;
+        }
+        assertEquals(0L, allocated);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.buddyrobot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameRateGovernorTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final FrameRateGovernor governor = new FrameRateGovernor();
+
+    @Test
+    public void rate_followsTheExpressionsMotion() {
+        governor.setDisplayRate(120f);
+
+        governor.update(Expression.SLEEPY, false, 0);
+        assertEquals(FrameRateGovernor.RATE_SLOW, governor.getTargetRate(), 0f);
+        governor.update(Expression.HAPPY, false, 0);
+        assertEquals(FrameRateGovernor.RATE_NORMAL, governor.getTargetRate(), 0f);
+        governor.update(Expression.LAUGHING, false, 0);
+        assertEquals(120f, governor.getTargetRate(), 0f);
+    }
+
+    @Test
+    public void displayRate_isNeverBelowNormal() {
+        governor.setDisplayRate(50f);
+        governor.update(Expression.ANGRY, false, 0);
+        assertEquals(FrameRateGovernor.RATE_NORMAL, governor.getTargetRate(), 0f);
+    }
+
+    @Test
+    public void update_reportsOnlyChanges() {
+        assertTrue(governor.update(Expression.SAD, false, 0));
+        assertFalse(governor.update(Expression.SLEEPY, false, 0));
+        assertTrue(governor.update(Expression.HAPPY, false, 0));
+    }
+
+    @Test
+    public void idleFace_dropsToTheSlowRateAfter30s() {
+        governor.setDisplayRate(120f);
+        governor.update(Expression.EXCITED, false, 29 * SECOND);
+        assertEquals(120f, governor.getTargetRate(), 0f);
+
+        assertTrue(governor.update(Expression.EXCITED, false, 30 * SECOND));
+        assertEquals(FrameRateGovernor.RATE_SLOW, governor.getTargetRate(), 0f);
+    }
+
+    @Test
+    public void newExpression_restoresTheFullRate() {
+        governor.setDisplayRate(120f);
+        governor.update(Expression.ANGRY, false, 60 * SECOND);
+        assertEquals(FrameRateGovernor.RATE_SLOW, governor.getTargetRate(), 0f);
+
+        // A new expression resets the idle time
+        assertTrue(governor.update(Expression.LAUGHING, false, 0));
+        assertEquals(120f, governor.getTargetRate(), 0f);
+    }
+
+    @Test
+    public void transition_runsAtLeastAtTheNormalRate() {
+        governor.update(Expression.SLEEPY, false, 60 * SECOND);
+        assertEquals(FrameRateGovernor.RATE_SLOW, governor.getTargetRate(), 0f);
+
+        assertTrue(governor.update(Expression.SLEEPY, true, 60 * SECOND));
+        assertEquals(FrameRateGovernor.RATE_NORMAL, governor.getTargetRate(), 0f);
+
+        governor.setDisplayRate(90f);
+        governor.update(Expression.EXCITED, true, 60 * SECOND);
+        assertEquals(90f, governor.getTargetRate(), 0f);
+    }
+
+    @Test
+    public void slowRate_skipsEveryOtherVsyncAt60Hz() {
+        governor.update(Expression.NEUTRAL, false, 0);
+        long vsync = SECOND / 60;
+        int rendered = 0;
+        for (int i = 1; i <= 60; i++) {
+            if (governor.shouldRender(i * vsync)) rendered++;
+        }
+        assertEquals(30, rendered);
+    }
+
+    @Test
+    public void measuredRate_countsRenderedFrames() {
+        long vsync = SECOND / 60;
+        for (int i = 1; i <= 130; i++) {
+            governor.shouldRender(i * vsync);
+        }
+        assertEquals(60f, governor.getMeasuredRate(), 1f);
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.buddyrobot;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class HeadStreamTest {
+
+    private static final long TICK = 20_000_000L;  // 50 Hz
+
+    private final RobotLink link = new RobotLink(null);
+    private final HeadStream stream = new HeadStream(link);
+    private long now = 1_000_000_000L;
+
+    @After
+    public void tearDown() {
+        stream.stop();
+        link.disconnect();
+    }
+
+    @Test
+    public void position_glidesToTheTargetNoFasterThanTheSlewLimit() {
+        stream.setTarget(1f, -1f);
+        float maxStep = HeadStream.MAX_SPEED_DEGREES_PER_S * TICK / 1e9f;
+
+        float pan = 0f;
+        for (int i = 0; i < 100; i++) {
+            tick();
+            assertTrue(stream.getPan() >= pan);
+            assertTrue(stream.getPan() - pan <= maxStep + 1e-3f);
+            pan = stream.getPan();
+        }
+        assertEquals(HeadStream.MAX_PAN_DEGREES, stream.getPan(), 0f);
+        assertEquals(-HeadStream.MAX_TILT_DEGREES, stream.getTilt(), 0f);
+    }
+
+    @Test
+    public void targets_areClampedToThePad() {
+        stream.setTarget(3f, Float.NaN);
+        assertEquals(1f, stream.getTargetX(), 0f);
+        assertEquals(0f, stream.getTargetY(), 0f);
+    }
+
+    @Test
+    public void settledHead_sendsNothingMore() throws IOException {
+        connect(new InMemoryTransport(), 0);
+        stream.setTarget(0.5f, 0.5f);
+        for (int i = 0; i < 100; i++) {
+            tick();
+        }
+        long sent = stream.getSentCount();
+        long unchanged = stream.getUnchangedCount();
+        assertTrue(sent > 1);
+
+        for (int i = 0; i < 50; i++) {
+            assertFalse(tick());
+        }
+        assertEquals(sent, stream.getSentCount());
+        assertEquals(unchanged + 50, stream.getUnchangedCount());
+    }
+
+    @Test
+    public void targets_reachTheRobotAsAbsolutePositions() throws IOException {
+        InMemoryTransport transport = new InMemoryTransport();
+        connect(transport, 0);
+        stream.setSmoothingMillis(0);
+        stream.setTarget(0f, 0.5f);
+
+        assertTrue(tick());
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+        readFrame(transport.robotInput(), decoder);
+        assertEquals(FrameCodec.OP_HEAD_TARGET, decoder.opcode);
+        assertEquals(0, pan(decoder));
+        assertEquals(5, tilt(decoder));     // 240 deg/s for 20 ms, rounded
+    }
+
+    @Test
+    public void textLink_getsNoTargets() throws IOException {
+        InMemoryTransport transport = new InMemoryTransport();
+        link.setBinaryProtocolEnabled(false);
+        link.setFlushDeadlineMillis(0);
+        link.connect(transport);
+        stream.setTarget(1f, 1f);
+
+        // Text firmware knows no HEAD:POS, and has no acks to pace the stream by
+        for (int i = 0; i < 50; i++) {
+            assertFalse(tick());
+        }
+        assertEquals(0, stream.getSentCount());
+        assertEquals(0, transport.getWriteCount());
+    }
+
+    @Test
+    public void unackedTarget_holdsTheStreamAndTheFreshestGoesNext() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport();
+        connect(transport, RobotLink.DEFAULT_ACK_WINDOW);
+        InputStream robot = transport.robotInput();
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+
+        stream.setSmoothingMillis(0);
+        stream.setTarget(1f, 0f);
+        assertTrue(tick());
+        readFrame(robot, decoder);
+        assertEquals(FrameCodec.OP_HEAD_TARGET, decoder.opcode);
+        assertEquals(5, pan(decoder));
+
+        // No ack yet: the head keeps moving, but nothing is sent
+        for (int i = 0; i < 5; i++) {
+            assertFalse(tick());
+        }
+        assertEquals(5, stream.getHeldCount());
+
+        ack(transport, decoder.seq);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (link.getWindow().getInFlight() > 0) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+        assertTrue(tick());
+        readFrame(robot, decoder);
+        // Where the head is now, not the positions it passed while held
+        assertEquals(Math.round(stream.getPan()), pan(decoder));
+        assertTrue(pan(decoder) > 30);
+        assertEquals(2, stream.getSentCount());
+    }
+
+    @Test
+    public void newConnection_getsThePositionAgain() throws IOException {
+        connect(new InMemoryTransport(), 0);
+        stream.setTarget(-0.2f, 0f);
+        for (int i = 0; i < 50; i++) {
+            tick();
+        }
+        assertFalse(tick());
+
+        InMemoryTransport second = new InMemoryTransport();
+        connect(second, 0);
+        assertTrue(tick());
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+        readFrame(second.robotInput(), decoder);
+        assertEquals(-18, pan(decoder));
+        assertEquals(0, tilt(decoder));
+    }
+
+    @Test
+    public void ticker_streamsOnItsOwn() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport();
+        connect(transport, 0);
+        stream.setTarget(0f, 1f);
+        stream.start();
+        assertTrue(stream.isRunning());
+
+        InputStream robot = transport.robotInput();
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+        do {
+            readFrame(robot, decoder);
+        } while (tilt(decoder) != HeadStream.MAX_TILT_DEGREES);
+        stream.stop();
+        assertFalse(stream.isRunning());
+    }
+
+    @Test
+    public void ticks_doNotAllocate() throws IOException {
+        assumeTrue(AllocationProbe.isSupported());
+        connect(new InMemoryTransport(), 0);
+        long allocated = -1;
+        // First pass warms up; see DrawLoopAllocationTest for why later passes get retries
+        for (int pass = 0; pass < 4 && allocated != 0; pass++) {
+            long before = AllocationProbe.allocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                stream.setTarget((i % 200) / 100f - 1f, (i % 70) / 35f - 1f);
+                tick();
+            }
+            allocated = pass == 0 ? -1 : AllocationProbe.allocatedBytes() - before;
+        }
+        assertEquals(0L, allocated);
+    }
+
+    private boolean tick() {
+        now += TICK;
+        return stream.tick(now);
+    }
+
+    // Binary frames, with an ack window of so many frames; 0 for firmware that doesn't ack
+    private void connect(InMemoryTransport transport, int ackWindow) throws IOException {
+        transport.robotOutput().write((FrameCodec.HELLO_REPLY + "\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        link.setAckWindow(ackWindow);
+        link.setFlushDeadlineMillis(0);
+        link.connect(transport);
+        assertTrue(link.isBinaryProtocol());
+        readLine(transport.robotInput());   // the hello
+    }
+
+    private static int pan(FrameCodec.Decoder decoder) {
+        return (short) ((decoder.payload[0] & 0xFF) << 8 | (decoder.payload[1] & 0xFF));
+    }
+
+    private static int tilt(FrameCodec.Decoder decoder) {
+        return (short) ((decoder.payload[2] & 0xFF) << 8 | (decoder.payload[3] & 0xFF));
+    }
+
+    private static void ack(InMemoryTransport transport, int seq) throws IOException {
+        byte[] ack = {(byte) FrameCodec.SYNC, (byte) FrameCodec.OP_ACK, (byte) seq, 0, 0};
+        ack[4] = (byte) FrameCodec.crc8(ack, 1, FrameCodec.HEADER_BYTES);
+        transport.robotOutput().write(ack);
+    }
+
+    private static void readFrame(InputStream in, FrameCodec.Decoder decoder) throws IOException {
+        while (true) {
+            int b = in.read();
+            if (b < 0) throw new IOException("Link closed");
+            if (decoder.feed((byte) b)) return;
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            if (b < 0) throw new IOException("Link closed");
+            line.append((char) b);
+        }
+        return line.toString();
+    }
+}
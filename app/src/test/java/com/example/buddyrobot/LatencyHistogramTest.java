@@ -0,0 +1,87 @@
+package com.example.buddyrobot;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets_coverEveryValueWithinSixPercent() {
+        for (long micros = 0; micros < 5_000_000L; micros += 1 + micros / 97) {
+            int bucket = LatencyHistogram.bucket(micros);
+            long upper = LatencyHistogram.upperEdgeMicros(bucket);
+            assertTrue(micros + " above its bucket", micros < upper);
+            if (bucket > 0) {
+                assertTrue(micros + " below its bucket",
+                        micros >= LatencyHistogram.upperEdgeMicros(bucket - 1));
+            }
+            assertTrue(micros + " bucket too wide", upper - micros <= Math.max(1, micros / 16 + 1));
+        }
+    }
+
+    @Test
+    public void percentiles_matchSortedSamples() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(3);
+        long[] samples = new long[10_000];
+        for (int i = 0; i < samples.length; i++) {
+            // Log-normal-ish: mostly a few ms, with a long tail
+            samples[i] = (long) (Math.exp(random.nextGaussian() + 1.0) * 1_000_000L);
+            histogram.record(samples[i]);
+        }
+        java.util.Arrays.sort(samples);
+
+        for (float p : new float[]{0.5f, 0.95f, 0.99f}) {
+            float exact = samples[(int) Math.ceil(p * samples.length) - 1] / 1e6f;
+            assertEquals("p" + (int) (p * 100), exact, histogram.getPercentileMs(p), exact * 0.07f);
+        }
+        assertEquals(samples[samples.length - 1] / 1e6f, histogram.getMaxMs(), 1e-3f);
+        assertEquals(samples.length, histogram.getCount());
+    }
+
+    @Test
+    public void emptyAndReset_reportZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0f, histogram.getPercentileMs(0.99f), 0f);
+        histogram.record(5_000_000L);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0f, histogram.getMeanMs(), 0f);
+        assertEquals(0f, histogram.getPercentileMs(0.5f), 0f);
+    }
+
+    @Test
+    public void concurrentRecording_losesNoSamples() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int threads = 4;
+        final int perThread = 50_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final long value = (t + 1) * 1_000_000L;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(value);
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread, histogram.getCount());
+        assertEquals(threads, histogram.getMaxMs(), 1e-3f);
+        assertEquals(2.5f, histogram.getMeanMs(), 1e-3f);
+    }
+}
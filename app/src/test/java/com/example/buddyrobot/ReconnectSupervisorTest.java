@@ -0,0 +1,476 @@
+package com.example.buddyrobot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ReconnectSupervisorTest {
+
+    private final StandIn robot = new StandIn();
+    private final RobotConnector connector = new RobotConnector();
+    private ReconnectSupervisor supervisor;
+    private final RobotLink link = new RobotLink(new RobotLink.Listener() {
+        @Override
+        public void onLinkFailing(RobotTransport transport) {
+            supervisor.onLinkFailing(transport);
+        }
+
+        @Override
+        public void onLinkLost(RobotTransport transport, IOException cause) {
+            supervisor.onLinkLost(transport, cause);
+        }
+    });
+
+    @Before
+    public void setUp() throws Exception {
+        supervisor = new ReconnectSupervisor(link, connector, null);
+        supervisor.setBackoff(20, 100);
+        supervisor.setConnectTimeoutMillis(1000);
+        link.setBinaryProtocolEnabled(false);
+        link.setFlushDeadlineMillis(0);
+        robot.listen(0);
+        link.connect(new TcpTransport("127.0.0.1", robot.port, 1000));
+        robot.awaitConnection();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        supervisor.shutdown();
+        link.disconnect();
+        connector.shutdown();
+        robot.close();
+    }
+
+    @Test
+    public void lostLink_comesBackAndReplaysExpressionAndHead() throws Exception {
+        // One at a time, so the queue has nothing to coalesce
+        for (String command : new String[] {"<EXPR:HAPPY>", "<HEAD:LEFT>", "<HEAD:LEFT>",
+                "<HEAD:UP>"}) {
+            send(command);
+            assertLines(command);
+        }
+
+        robot.dropConnection();
+        awaitOutage();
+        robot.awaitConnection();
+
+        // Text firmware only knows single steps
+        assertLines("<EXPR:HAPPY>", "<HEAD:CENTER>", "<HEAD:LEFT>", "<HEAD:LEFT>", "<HEAD:UP>");
+        awaitReconnected();
+        send("<PING>");
+        assertLines("<PING>");
+    }
+
+    @Test
+    public void replay_usesTheExpressionSource() throws Exception {
+        supervisor.setExpressionSource(() -> Expression.COOL);
+        send("<EXPR:SAD>");
+        assertLines("<EXPR:SAD>");
+
+        robot.dropConnection();
+        awaitOutage();
+        robot.awaitConnection();
+
+        assertLines("<EXPR:COOL>", "<HEAD:CENTER>");
+    }
+
+    @Test
+    public void dropPolicy_refusesCommandsDuringTheOutage() throws Exception {
+        supervisor.setOutagePolicy(OutagePolicy.DROP);
+        robot.goAway();
+        awaitOutage();
+
+        assertFalse(supervisor.send("<BEEP>", System.nanoTime()));
+        robot.listen(robot.port);
+        robot.awaitConnection();
+        assertLines("<HEAD:CENTER>");
+        awaitReconnected();
+        assertTrue(supervisor.getDroppedCount() >= 1);
+    }
+
+    @Test
+    public void keepLatestPolicy_sendsOnlyTheNewestAfterTheReplay() throws Exception {
+        supervisor.setOutagePolicy(OutagePolicy.KEEP_LATEST);
+        robot.goAway();
+        awaitOutage();
+
+        assertTrue(supervisor.send("<BEEP:1>", System.nanoTime()));
+        assertTrue(supervisor.send("<BEEP:2>", System.nanoTime()));
+        robot.listen(robot.port);
+        robot.awaitConnection();
+
+        assertLines("<HEAD:CENTER>", "<BEEP:2>");
+    }
+
+    @Test
+    public void queuePolicy_sendsEveryCommandInOrderAfterTheReplay() throws Exception {
+        supervisor.setOutagePolicy(OutagePolicy.QUEUE);
+        robot.goAway();
+        awaitOutage();
+
+        assertTrue(supervisor.send("<BEEP:1>", System.nanoTime()));
+        assertTrue(supervisor.send("<BEEP:2>", System.nanoTime()));
+        assertTrue(supervisor.send("<BEEP:3>", System.nanoTime()));
+        robot.listen(robot.port);
+        robot.awaitConnection();
+
+        assertLines("<HEAD:CENTER>", "<BEEP:1>", "<BEEP:2>", "<BEEP:3>");
+    }
+
+    @Test
+    public void stop_endsTheOutageWithoutReconnecting() throws Exception {
+        robot.goAway();
+        awaitOutage();
+
+        supervisor.stop();
+        assertFalse(supervisor.isReconnecting());
+        assertFalse(supervisor.send("<BEEP>", System.nanoTime()));
+    }
+
+    @Test
+    public void backoff_doublesWithJitterUpToTheCap() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long first = ReconnectSupervisor.backoffMillis(0, 250, 8000, random);
+            assertTrue(String.valueOf(first), first >= 125 && first <= 250);
+            long third = ReconnectSupervisor.backoffMillis(2, 250, 8000, random);
+            assertTrue(String.valueOf(third), third >= 500 && third <= 1000);
+            long late = ReconnectSupervisor.backoffMillis(40, 250, 8000, random);
+            assertTrue(String.valueOf(late), late >= 4000 && late <= 8000);
+        }
+    }
+
+    @Test
+    public void sendWhileTheLinkGoesDown_followsTheOutagePolicy() throws Exception {
+        RobotTransport transport = link.getTransport();
+        supervisor.onLinkFailing(transport);
+        link.disconnect();
+        send("<EXPR:HAPPY>");   // down, and the loss not yet reported
+        supervisor.onLinkLost(transport, new IOException("dropped"));
+
+        robot.awaitConnection();
+        assertLines("<HEAD:CENTER>", "<EXPR:HAPPY>");
+        awaitReconnected();
+    }
+
+    @Test
+    public void inMemoryLink_reconnectsOverFreshPipes() throws Exception {
+        final BlockingQueue<RobotTransport> reconnected = new LinkedBlockingQueue<>();
+        supervisor.shutdown();
+        supervisor = new ReconnectSupervisor(link, connector, new Listener() {
+            @Override
+            public void onReconnected(RobotTransport transport, int attempts) {
+                reconnected.add(transport);
+            }
+        });
+        supervisor.setBackoff(20, 100);
+        InMemoryTransport first = new InMemoryTransport();
+        link.connect(first);
+
+        first.close();
+        send("<PING>");
+        RobotTransport second = reconnected.poll(5, TimeUnit.SECONDS);
+        assertNotNull("not reconnected", second);
+        assertNotSame(first, second);
+
+        InputStream robotSide = ((InMemoryTransport) second).robotInput();
+        StringBuilder line = new StringBuilder();
+        for (int b = robotSide.read(); b != '\n'; b = robotSide.read()) {
+            line.append((char) b);
+        }
+        assertEquals("<HEAD:CENTER>", line.toString());
+    }
+
+    @Test
+    public void binaryLink_replaysTheLastHeadTarget() throws Exception {
+        final BlockingQueue<RobotTransport> reconnected = new LinkedBlockingQueue<>();
+        supervisor.shutdown();
+        supervisor = new ReconnectSupervisor(link, connector, new Listener() {
+            @Override
+            public void onReconnected(RobotTransport transport, int attempts) {
+                reconnected.add(transport);
+            }
+        });
+        supervisor.setBackoff(20, 100);
+        link.setBinaryProtocolEnabled(true);
+        link.setAckWindow(0);
+        AnsweringTransport first = new AnsweringTransport();
+        link.connect(first);
+        assertTrue(link.isBinaryProtocol());
+        send("<HEAD:POS:30:-10>");
+        send("<HEAD:LEFT>");
+
+        first.close();
+        RobotTransport second = reconnected.poll(5, TimeUnit.SECONDS);
+        assertNotNull("not reconnected", second);
+        InputStream robotSide = ((AnsweringTransport) second).pipes.robotInput();
+        while (robotSide.read() != '\n') {
+            // the hello
+        }
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+        readFrame(robotSide, decoder);
+        assertEquals(FrameCodec.OP_HEAD_TARGET, decoder.opcode);
+        assertEquals(30, (short) ((decoder.payload[0] & 0xFF) << 8 | (decoder.payload[1] & 0xFF)));
+        assertEquals(-10, (short) ((decoder.payload[2] & 0xFF) << 8 | (decoder.payload[3] & 0xFF)));
+        readFrame(robotSide, decoder);
+        assertEquals(FrameCodec.OP_HEAD_MOVE, decoder.opcode);
+    }
+
+    @Test
+    public void runningHeadStream_keepsTheHeadOutOfTheReplay() throws Exception {
+        HeadStream stream = new HeadStream(link, supervisor.getState());
+        supervisor.setHeadStream(stream);
+        stream.start();
+        try {
+            for (String command : new String[] {"<EXPR:HAPPY>", "<HEAD:LEFT>"}) {
+                send(command);
+                assertLines(command);
+            }
+
+            robot.dropConnection();
+            awaitOutage();
+            robot.awaitConnection();
+            awaitReconnected();
+            send("<PING>");
+            assertLines("<EXPR:HAPPY>", "<PING>");
+        } finally {
+            stream.stop();
+        }
+    }
+
+    @Test
+    public void failingReconnect_givesUpAndTellsTheListener() throws Exception {
+        final BlockingQueue<RuntimeException> gaveUp = new LinkedBlockingQueue<>();
+        supervisor.shutdown();
+        supervisor = new ReconnectSupervisor(link, connector, new Listener() {
+            @Override
+            public void onGaveUp(RuntimeException cause) {
+                gaveUp.add(cause);
+            }
+        });
+        supervisor.setBackoff(20, 100);
+        connector.shutdown();   // connect() now throws
+
+        supervisor.onLinkLost(new InMemoryTransport(), new IOException("lost"));
+        assertNotNull("did not give up", gaveUp.poll(5, TimeUnit.SECONDS));
+        assertFalse(supervisor.isReconnecting());
+    }
+
+    @Test
+    public void robotState_tracksExpressionAndHead() {
+        RobotState state = new RobotState();
+        state.onCommand("<EXPR:LOVE>");
+        state.onCommand("HEAD:RIGHT:3");
+        state.onCommand("<HEAD:DOWN>");
+        state.onCommand("<EXPR:NOPE>");
+        state.onCommand("<HEAD:SPIN>");
+        assertEquals(Expression.LOVE, state.getExpression());
+        assertEquals(3, state.getHeadX());
+        assertEquals(-1, state.getHeadY());
+
+        state.onCommand("<HEAD:CENTER>");
+        assertEquals(0, state.getHeadX());
+        assertEquals(0, state.getHeadY());
+    }
+
+    @Test
+    public void robotState_tracksHeadTargets() {
+        RobotState state = new RobotState();
+        state.onCommand("<HEAD:LEFT:2>");
+        state.onCommand("<HEAD:POS:30:-10>");
+        assertTrue(state.isHeadTargeted());
+        assertEquals(30, state.getTargetPan());
+        assertEquals(-10, state.getTargetTilt());
+        assertEquals(0, state.getHeadX());
+
+        state.onCommand("<HEAD:RIGHT>");    // counted from the target
+        assertEquals(1, state.getHeadX());
+        state.onCommand("<HEAD:POS:x:1>");
+        assertEquals(30, state.getTargetPan());
+
+        state.onCommand("<HEAD:CENTER>");
+        assertFalse(state.isHeadTargeted());
+        assertEquals(0, state.getHeadX());
+    }
+
+    private static void readFrame(InputStream in, FrameCodec.Decoder decoder) throws IOException {
+        while (true) {
+            int b = in.read();
+            if (b < 0) throw new IOException("Link closed");
+            if (decoder.feed((byte) b)) return;
+        }
+    }
+
+    private void send(String command) {
+        assertTrue(supervisor.send(command, System.nanoTime()));
+    }
+
+    // A write only fails once the dropped connection is noticed; keep nudging until then
+    private void awaitOutage() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!supervisor.isReconnecting()) {
+            assertTrue("link loss not detected", System.nanoTime() < deadline);
+            link.send("<PING>", System.nanoTime());
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitReconnected() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (supervisor.isReconnecting()) {
+            assertTrue("not reconnected", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private void assertLines(String... expected) throws InterruptedException {
+        for (String line : expected) {
+            assertEquals(line, robot.lines.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    // In-memory pipes whose robot answers the hello, so each connection gets binary frames
+    private static final class AnsweringTransport implements RobotTransport {
+        final InMemoryTransport pipes = new InMemoryTransport();
+
+        @Override
+        public void open() throws IOException {
+            pipes.open();
+            pipes.robotOutput().write((FrameCodec.HELLO_REPLY + "\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return pipes.getInputStream();
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return pipes.getOutputStream();
+        }
+
+        @Override
+        public void close() {
+            pipes.close();
+        }
+
+        @Override
+        public String getName() {
+            return "answering";
+        }
+
+        @Override
+        public RobotTransport reopen() {
+            return new AnsweringTransport();
+        }
+    }
+
+    // Ignores whatever the test doesn't override
+    private static class Listener implements ReconnectSupervisor.Listener {
+        @Override
+        public void onReconnecting(int attempt, long delayMs, IOException cause) {
+        }
+
+        @Override
+        public void onReconnected(RobotTransport transport, int attempts) {
+        }
+
+        @Override
+        public void onGaveUp(RuntimeException cause) {
+        }
+    }
+
+    // The robot on localhost: accepts connections and collects the lines it receives
+    private static final class StandIn {
+        final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Socket> accepted = new LinkedBlockingQueue<>();
+        private volatile ServerSocket server;
+        private volatile Socket current;
+        int port;
+
+        void listen(int onPort) throws IOException {
+            ServerSocket s = new ServerSocket();
+            s.setReuseAddress(true);
+            s.bind(new InetSocketAddress("127.0.0.1", onPort));
+            port = s.getLocalPort();
+            server = s;
+            Thread acceptor = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            Socket socket = s.accept();
+                            current = socket;
+                            startReader(socket);
+                            accepted.add(socket);
+                        }
+                    } catch (IOException e) {
+                        // server closed
+                    }
+                }
+            }, "stand-in-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        void awaitConnection() throws InterruptedException {
+            assertNotNull("no connection", accepted.poll(5, TimeUnit.SECONDS));
+        }
+
+        /** The link drops; the robot is still there to reconnect to. */
+        void dropConnection() throws IOException {
+            current.close();
+        }
+
+        /** The link drops and the robot stops listening, e.g. it is rebooting. */
+        void goAway() throws IOException {
+            server.close();
+            dropConnection();
+        }
+
+        void close() throws IOException {
+            server.close();
+            Socket socket = current;
+            if (socket != null) socket.close();
+        }
+
+        private void startReader(final Socket socket) {
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    StringBuilder line = new StringBuilder();
+                    try {
+                        InputStream in = socket.getInputStream();
+                        for (int b = in.read(); b >= 0; b = in.read()) {
+                            if (b == '\n') {
+                                lines.add(line.toString());
+                                line.setLength(0);
+                            } else {
+                                line.append((char) b);
+                            }
+                        }
+                    } catch (IOException e) {
+                        // connection dropped
+                    }
+                }
+            }, "stand-in-read");
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+}
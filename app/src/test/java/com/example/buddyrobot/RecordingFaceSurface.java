@@ -0,0 +1,139 @@
+package com.example.buddyrobot;
+
+/**
+ * FaceSurface that draws nothing and counts what it was asked to draw, with a rough
+ * relative cost per operation so expressions can be compared without a GPU.
+ */
+final class RecordingFaceSurface implements FaceSurface {
+
+    // Relative costs: a filled circle is 1. Path-based shapes and text are the expensive ones
+    // on the software and GL pipelines (path tessellation, glyph lookup).
+    static final float COST_STATE = 0.1f;
+    static final float COST_SAVE = 0.2f;
+    static final float COST_OVAL = 1f;
+    static final float COST_CIRCLE = 1f;
+    static final float COST_ARC = 1.5f;
+    static final float COST_LINE = 0.5f;
+    static final float COST_ROUND_RECT = 1.2f;
+    static final float COST_PATH = 3f;
+    static final float COST_TEXT = 4f;
+
+    int drawOps;
+    int ovals, circles, arcs, lines, roundRects, paths, texts, shapes;
+    int stateChanges;
+    int saves, restores;
+    int depth, maxDepth;
+    float cost;
+
+    void reset() {
+        drawOps = 0;
+        ovals = circles = arcs = lines = roundRects = paths = texts = shapes = 0;
+        stateChanges = 0;
+        saves = restores = 0;
+        depth = maxDepth = 0;
+        cost = 0f;
+    }
+
+    @Override
+    public void save() {
+        saves++;
+        depth++;
+        maxDepth = Math.max(maxDepth, depth);
+        cost += COST_SAVE;
+    }
+
+    @Override
+    public void restore() {
+        restores++;
+        depth--;
+        if (depth < 0) throw new IllegalStateException("restore() without save()");
+        cost += COST_SAVE;
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        state();
+    }
+
+    @Override
+    public void rotate(float degrees, float px, float py) {
+        state();
+    }
+
+    @Override
+    public void scale(float sx, float sy, float px, float py) {
+        state();
+    }
+
+    @Override
+    public void setFill(int color) {
+        state();
+    }
+
+    @Override
+    public void setStroke(int color, float width) {
+        state();
+    }
+
+    @Override
+    public void drawOval(float left, float top, float right, float bottom) {
+        ovals++;
+        draw(COST_OVAL);
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius) {
+        circles++;
+        draw(COST_CIRCLE);
+    }
+
+    @Override
+    public void drawArc(float left, float top, float right, float bottom,
+                        float startAngle, float sweepAngle) {
+        arcs++;
+        draw(COST_ARC);
+    }
+
+    @Override
+    public void drawLine(float x0, float y0, float x1, float y1) {
+        lines++;
+        draw(COST_LINE);
+    }
+
+    @Override
+    public void drawRoundRect(float left, float top, float right, float bottom, float radius) {
+        roundRects++;
+        draw(COST_ROUND_RECT);
+    }
+
+    @Override
+    public void drawQuad(float x0, float y0, float cx, float cy, float x1, float y1) {
+        paths++;
+        draw(COST_PATH);
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, float textSize) {
+        texts++;
+        draw(COST_TEXT);
+    }
+
+    @Override
+    public void drawShape(int shape, float x, float y, float size, float degrees) {
+        shapes++;
+        paths++;
+        // Placement is a save / concat / restore around the path on a Canvas
+        cost += 2 * COST_SAVE + COST_STATE;
+        draw(COST_PATH);
+    }
+
+    private void state() {
+        stateChanges++;
+        cost += COST_STATE;
+    }
+
+    private void draw(float opCost) {
+        drawOps++;
+        cost += opCost;
+    }
+}
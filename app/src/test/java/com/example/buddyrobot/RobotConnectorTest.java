@@ -0,0 +1,264 @@
+package com.example.buddyrobot;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RobotConnectorTest {
+
+    private final RobotConnector connector = new RobotConnector();
+
+    @After
+    public void tearDown() {
+        connector.shutdown();
+    }
+
+    @Test
+    public void connect_completesWithTheOpenTransport() throws Exception {
+        InMemoryTransport robot = new InMemoryTransport();
+        RobotConnector.Connection connection =
+                connector.connect(robot, 2000, false, null).get(5, TimeUnit.SECONDS);
+
+        assertSame(robot, connection.transport);
+        assertFalse(connection.binary);
+    }
+
+    @Test
+    public void connect_givesUpAtTheDeadline() throws Exception {
+        HangingTransport hanging = new HangingTransport();
+        long start = System.nanoTime();
+        Future<RobotConnector.Connection> result = connector.connect(hanging, 100, true, null);
+
+        assertFailed(result);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+        assertTrue("took " + elapsedMs + " ms", elapsedMs < 2000);
+        assertEquals(0, hanging.closed.getCount());
+    }
+
+    @Test
+    public void deadlineBeforeTheSocketExists_stillAbortsTheOpen() throws Exception {
+        SlowSocketTransport slow = new SlowSocketTransport();
+        Future<RobotConnector.Connection> result = connector.connect(slow, 100, true, null);
+
+        // The deadline closes the transport while open() is still creating its socket
+        assertTrue(slow.closed.await(5, TimeUnit.SECONDS));
+        slow.socketCreated.countDown();
+
+        assertFailed(result);
+        assertTrue(slow.aborted);
+    }
+
+    @Test
+    public void probe_keepsTheCandidateThatAnswers() throws Exception {
+        InMemoryTransport silent = new InMemoryTransport();
+        InMemoryTransport robot = answering();
+        HangingTransport hanging = new HangingTransport();
+
+        RobotConnector.Connection connection = connector.probe(
+                Arrays.<RobotTransport>asList(silent, hanging, robot), 5000, true, null)
+                .get(5, TimeUnit.SECONDS);
+
+        assertSame(robot, connection.transport);
+        assertTrue(connection.binary);
+        // The answer wins without waiting for the deadline; the others are dropped
+        assertTrue(connection.elapsedNanos < 2_000_000_000L);
+        assertTrue(hanging.closed.await(1, TimeUnit.SECONDS));
+        assertClosed(silent);
+    }
+
+    @Test
+    public void probe_fallsBackToASilentRobotAtTheDeadline() throws Exception {
+        InMemoryTransport silent = new InMemoryTransport();
+        HangingTransport hanging = new HangingTransport();
+
+        RobotConnector.Connection connection = connector.probe(
+                Arrays.<RobotTransport>asList(hanging, silent), 500, true, null)
+                .get(5, TimeUnit.SECONDS);
+
+        assertSame(silent, connection.transport);
+        assertFalse(connection.binary);
+        assertEquals(0, hanging.closed.getCount());
+    }
+
+    @Test
+    public void probe_failsWhenNoCandidateOpens() throws Exception {
+        int port;
+        try (ServerSocket server = new ServerSocket(0)) {
+            port = server.getLocalPort();
+        }
+        final CountDownLatch failed = new CountDownLatch(1);
+        Future<RobotConnector.Connection> result = connector.probe(Arrays.<RobotTransport>asList(
+                new TcpTransport("127.0.0.1", port, 1000), new HangingTransport()), 200, true,
+                new RobotConnector.Callback() {
+                    @Override
+                    public void onConnected(RobotConnector.Connection connection) {
+                        fail("connected");
+                    }
+
+                    @Override
+                    public void onFailed(IOException cause) {
+                        failed.countDown();
+                    }
+                });
+
+        assertFailed(result);
+        assertEquals(0, failed.getCount());
+    }
+
+    @Test
+    public void cancel_closesEveryCandidate() throws Exception {
+        HangingTransport first = new HangingTransport();
+        HangingTransport second = new HangingTransport();
+        Future<RobotConnector.Connection> result = connector.probe(
+                Arrays.<RobotTransport>asList(first, second), 10_000, true, null);
+
+        assertTrue(result.cancel(false));
+        assertTrue(first.closed.await(1, TimeUnit.SECONDS));
+        assertTrue(second.closed.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void probeOverTcp_connectsToTheLocalStandIn() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            TcpTransport transport = new TcpTransport("127.0.0.1", server.getLocalPort(), 1000);
+            RobotConnector.Connection connection = connector.connect(transport, 2000, false, null)
+                    .get(5, TimeUnit.SECONDS);
+            assertSame(transport, connection.transport);
+            transport.close();
+        }
+    }
+
+    // A robot whose firmware answers the hello; the reply is waiting before the probe starts
+    private static InMemoryTransport answering() throws IOException {
+        InMemoryTransport robot = new InMemoryTransport();
+        OutputStream reply = robot.robotOutput();
+        reply.write((FrameCodec.HELLO_REPLY + "\n").getBytes(StandardCharsets.US_ASCII));
+        return robot;
+    }
+
+    private static void assertClosed(InMemoryTransport transport) {
+        try {
+            transport.robotOutput().write('x');
+            fail("still open");
+        } catch (IOException expected) {
+            // closed
+        }
+    }
+
+    private static void assertFailed(Future<RobotConnector.Connection> result) throws Exception {
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("connected");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IOException);
+        }
+    }
+
+    // Like RfcommTransport: creating the socket blocks, and until then close() has nothing to
+    // close, so open() checks whether close() came first. Without that check the connect
+    // would wait for a close() that has already happened
+    private static final class SlowSocketTransport implements RobotTransport {
+        final CountDownLatch socketCreated = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        private volatile CountDownLatch socket;     // counted down when the socket is closed
+        private volatile boolean closing;
+        volatile boolean aborted;
+
+        @Override
+        public void open() throws IOException {
+            try {
+                socketCreated.await();
+                CountDownLatch s = new CountDownLatch(1);
+                socket = s;
+                if (closing) {
+                    aborted = true;
+                    throw new IOException("Closed while opening");
+                }
+                s.await();  // connecting, until the socket is closed
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Connection aborted");
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void close() {
+            closing = true;
+            CountDownLatch s = socket;
+            if (s != null) s.countDown();
+            closed.countDown();
+        }
+
+        @Override
+        public String getName() {
+            return "slow socket";
+        }
+
+        @Override
+        public RobotTransport reopen() {
+            return new SlowSocketTransport();
+        }
+    }
+
+    // A device that is out of range: open() blocks until close()
+    private static final class HangingTransport implements RobotTransport {
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void open() throws IOException {
+            try {
+                closed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Connection aborted");
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        @Override
+        public String getName() {
+            return "hanging";
+        }
+
+        @Override
+        public RobotTransport reopen() {
+            return new HangingTransport();
+        }
+    }
+}
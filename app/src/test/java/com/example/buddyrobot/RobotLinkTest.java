@@ -0,0 +1,251 @@
+package com.example.buddyrobot;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RobotLinkTest {
+
+    private final CountDownLatch lost = new CountDownLatch(1);
+    private final RobotLink link = new RobotLink(new RobotLink.Listener() {
+        @Override
+        public void onLinkFailing(RobotTransport transport) {
+        }
+
+        @Override
+        public void onLinkLost(RobotTransport transport, IOException cause) {
+            lost.countDown();
+        }
+    });
+
+    @After
+    public void tearDown() {
+        link.disconnect();
+    }
+
+    @Test
+    public void commands_reachTheRobotAsTextLines() throws IOException {
+        InMemoryTransport transport = new InMemoryTransport();
+        link.setBinaryProtocolEnabled(false);
+        link.connect(transport);
+
+        assertTrue(link.send("<EXPR:HAPPY>", System.nanoTime()));
+        assertTrue(link.send("<PING>", System.nanoTime()));
+
+        InputStream robot = transport.robotInput();
+        assertEquals("<EXPR:HAPPY>", readLine(robot));
+        assertEquals("<PING>", readLine(robot));
+    }
+
+    @Test
+    public void robotThatAnswersTheHello_getsBinaryFrames() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport();
+        // The stand-in answers the hello before the link starts polling for it
+        transport.open();
+        OutputStream reply = transport.robotOutput();
+        reply.write((FrameCodec.HELLO_REPLY + "\n").getBytes(StandardCharsets.US_ASCII));
+        link.connect(transport);
+
+        assertTrue(link.isBinaryProtocol());
+        InputStream robot = transport.robotInput();
+        assertEquals(FrameCodec.HELLO, readLine(robot));
+        link.send("<HEAD:CENTER>", System.nanoTime());
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+        while (!decoder.feed((byte) robot.read())) {
+            // until a whole frame
+        }
+        assertEquals(FrameCodec.OP_HEAD_CENTER, decoder.opcode);
+    }
+
+    @Test
+    public void commandTooLongForAFrame_isRefusedAndTheLinkKeepsWriting() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport();
+        transport.open();
+        OutputStream reply = transport.robotOutput();
+        reply.write((FrameCodec.HELLO_REPLY + "\n").getBytes(StandardCharsets.US_ASCII));
+        link.connect(transport);
+        InputStream robot = transport.robotInput();
+        assertEquals(FrameCodec.HELLO, readLine(robot));
+
+        StringBuilder say = new StringBuilder("<SAY:");
+        while (say.length() < FrameCodec.MAX_PAYLOAD + 3) say.append('a');
+        say.append('>');
+        assertTrue(say.length() <= RobotLink.MAX_COMMAND_BYTES);
+        try {
+            link.send(say.toString(), System.nanoTime());
+            fail("a " + say.length() + "-byte command was queued");
+        } catch (IllegalArgumentException expected) {
+            // refused here rather than on the writer thread
+        }
+
+        assertTrue(link.send("<EXPR:HAPPY>", System.nanoTime()));
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+        while (!decoder.feed((byte) robot.read())) {
+            // until a whole frame
+        }
+        assertEquals(FrameCodec.OP_EXPRESSION, decoder.opcode);
+        assertTrue(link.isConnected());
+    }
+
+    @Test
+    public void silentRobot_staysOnText() throws IOException {
+        InMemoryTransport transport = new InMemoryTransport();
+        link.connect(transport);
+
+        assertTrue(link.isConnected());
+        assertFalse(link.isBinaryProtocol());
+    }
+
+    @Test
+    public void failedWrite_disconnectsAndTellsTheListener() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport();
+        link.setBinaryProtocolEnabled(false);
+        link.connect(transport);
+        transport.robotInput().close();     // the robot side goes away
+
+        link.send("<PING>", System.nanoTime());
+        assertTrue(lost.await(5, TimeUnit.SECONDS));
+        assertFalse(link.isConnected());
+        assertFalse(link.send("<PING>", System.nanoTime()));
+    }
+
+    @Test
+    public void writerThatThrows_disconnectsAndTellsTheListener() throws Exception {
+        link.setBinaryProtocolEnabled(false);
+        link.connect(new BrokenTransport());
+
+        link.send("<PING>", System.nanoTime());
+        assertTrue(lost.await(5, TimeUnit.SECONDS));
+        assertFalse(link.isConnected());
+    }
+
+    @Test
+    public void robotReplies_areReadAsAcksAndTelemetry() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport();
+        link.setBinaryProtocolEnabled(false);
+        link.connect(transport);
+        link.send("<HEAD:LEFT>", System.nanoTime());
+        assertEquals("<HEAD:LEFT>", readLine(transport.robotInput()));
+
+        transport.robotOutput().write("<HEAD:LEFT>\n<POS:-10:0>\n"
+                .getBytes(StandardCharsets.US_ASCII));
+        RobotTelemetry.Snapshot snapshot = new RobotTelemetry.Snapshot();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!link.getTelemetry().read(snapshot).hasHeadPosition()) {
+            assertTrue("no telemetry", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+        assertEquals(-10, snapshot.getHeadPan());
+        assertEquals(1, snapshot.getAckCount());
+        assertEquals(1, link.getLatency().getHistogram(CommandLatency.Stage.ROUND_TRIP).getCount());
+    }
+
+    @Test
+    public void robotHangingUp_isNoticedWithoutSending() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport();
+        link.setBinaryProtocolEnabled(false);
+        link.connect(transport);
+        transport.robotOutput().close();
+
+        assertTrue(lost.await(5, TimeUnit.SECONDS));
+        assertFalse(link.isConnected());
+    }
+
+    @Test
+    public void reconnect_leavesTheOldTransportClosed() throws IOException {
+        InMemoryTransport first = new InMemoryTransport();
+        InMemoryTransport second = new InMemoryTransport();
+        link.setBinaryProtocolEnabled(false);
+        link.connect(first);
+        link.connect(second);
+
+        assertEquals(-1, first.robotInput().read());
+        link.send("<PING>", System.nanoTime());
+        assertEquals("<PING>", readLine(second.robotInput()));
+        assertEquals(1, lost.getCount());
+    }
+
+    @Test
+    public void tcpTransport_carriesCommandsToALocalStandIn() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            link.setBinaryProtocolEnabled(false);
+            link.connect(new TcpTransport("127.0.0.1", server.getLocalPort(), 1000));
+            try (Socket robot = server.accept()) {
+                link.send("<EXPR:COOL>", System.nanoTime());
+                assertEquals("<EXPR:COOL>", readLine(robot.getInputStream()));
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void tcpTransport_failsWhenNobodyListens() throws IOException {
+        int port;
+        try (ServerSocket server = new ServerSocket(0)) {
+            port = server.getLocalPort();
+        }
+        try {
+            link.connect(new TcpTransport("127.0.0.1", port, 1000));
+        } finally {
+            assertFalse(link.isConnected());
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            assertTrue("stream ended", b >= 0);
+            line.append((char) b);
+        }
+        return line.toString();
+    }
+
+    // Writes fail with an unchecked exception, as an encoding bug in the writer would
+    private static final class BrokenTransport implements RobotTransport {
+        private final InMemoryTransport pipes = new InMemoryTransport();
+
+        @Override
+        public void open() throws IOException {
+            pipes.open();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return pipes.getInputStream();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return new OutputStream() {
+                @Override
+                public void write(int b) {
+                    throw new IllegalStateException("broken");
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            pipes.close();
+        }
+
+        @Override
+        public String getName() {
+            return "broken";
+        }
+
+        @Override
+        public RobotTransport reopen() {
+            return new BrokenTransport();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.buddyrobot;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SendWindowTest {
+
+    private static final long TIMEOUT = 100_000_000L;   // 100 ms
+
+    private final CommandLatency latency = new CommandLatency();
+    private final SendWindow window = new SendWindow(4, TIMEOUT, latency);
+    private final CommandQueue.Entry entry = new CommandQueue.Entry(RobotLink.MAX_COMMAND_BYTES);
+    private final byte[] out = new byte[FrameCodec.MAX_FRAME];
+
+    private final CountDownLatch lost = new CountDownLatch(1);
+    private final RobotLink link = new RobotLink(new RobotLink.Listener() {
+        @Override
+        public void onLinkFailing(RobotTransport transport) {
+        }
+
+        @Override
+        public void onLinkLost(RobotTransport transport, IOException cause) {
+            lost.countDown();
+        }
+    });
+    private SimulatedRobot robot;
+
+    @After
+    public void tearDown() {
+        link.disconnect();
+        if (robot != null) robot.stop();
+    }
+
+    @Test
+    public void frames_getContiguousWireSeqsUntilTheWindowIsFull() {
+        for (int i = 0; i < 4; i++) {
+            add("<BEEP:" + i + ">");
+            assertEquals(i, out[2]);
+        }
+        assertEquals(0, window.room());
+        try {
+            add("<BEEP:4>");
+            fail("added past the window");
+        } catch (IllegalStateException expected) {
+            // full
+        }
+    }
+
+    @Test
+    public void ack_isCumulativeAndFreesRoom() {
+        add("<BEEP:0>");
+        add("<BEEP:1>");
+        add("<BEEP:2>");
+        window.onWritten(System.nanoTime());
+
+        assertTrue(window.onAck(1, System.nanoTime()));
+        assertEquals(1, window.getInFlight());
+        assertEquals(3, window.room());
+        assertEquals(2, latency.getHistogram(CommandLatency.Stage.ACK).getCount());
+
+        // The robot repeats its last ack after refusing a frame: nothing new is acked
+        assertFalse(window.onAck(1, System.nanoTime()));
+        assertEquals(1, window.getStaleAckCount());
+        assertEquals(1, window.getInFlight());
+    }
+
+    @Test
+    public void overdueAck_resendsEverythingInFlight() throws IOException {
+        add("<BEEP:0>");
+        add("<HEAD:LEFT>");
+        long sent = System.nanoTime();
+        window.onWritten(sent);
+
+        assertEquals(0, window.takeOverdue(sent + TIMEOUT - 1));
+        assertEquals(1, window.nanosUntilOverdue(sent + TIMEOUT - 1));
+        int bytes = window.takeOverdue(sent + TIMEOUT);
+
+        FrameCodec.Decoder decoder = new FrameCodec.Decoder();
+        int frames = 0;
+        for (int i = 0; i < bytes; i++) {
+            if (decoder.feed(window.getResendBuffer()[i])) {
+                assertEquals(frames++, decoder.seq);
+            }
+        }
+        assertEquals(2, frames);
+        assertEquals(FrameCodec.OP_HEAD_MOVE, decoder.opcode);
+        assertEquals(2, window.getRetransmitCount());
+        // The timer restarts with the resend
+        assertEquals(TIMEOUT, window.nanosUntilOverdue(sent + TIMEOUT));
+    }
+
+    @Test
+    public void unsentFrames_haveNoTimer() throws IOException {
+        add("<BEEP:0>");
+        assertEquals(Long.MAX_VALUE, window.nanosUntilOverdue(System.nanoTime()));
+        assertEquals(0, window.takeOverdue(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void robotThatNeverAcks_failsAfterTheLastRetransmit() throws IOException {
+        add("<BEEP:0>");
+        long now = System.nanoTime();
+        window.onWritten(now);
+        for (int i = 0; i < SendWindow.MAX_RETRANSMITS; i++) {
+            now += TIMEOUT;
+            assertTrue(window.takeOverdue(now) > 0);
+        }
+        try {
+            window.takeOverdue(now + TIMEOUT);
+            fail("kept retransmitting");
+        } catch (IOException expected) {
+            // the robot is gone
+        }
+    }
+
+    @Test
+    public void wireSeqs_wrapAround() {
+        for (int i = 0; i < 300; i++) {
+            add("<BEEP>");
+            assertEquals(i & 0xFF, out[2] & 0xFF);
+            assertTrue(window.onAck(i & 0xFF, System.nanoTime()));
+        }
+        assertEquals(0, window.getInFlight());
+    }
+
+    @Test
+    public void batcher_waitsForRoomAndTakesNoMoreThanFits() throws Exception {
+        CommandQueue queue = new CommandQueue(16, RobotLink.MAX_COMMAND_BYTES,
+                CommandQueue.OverflowPolicy.DROP_OLDEST);
+        final SendWindow small = new SendWindow(2, TIMEOUT, latency);
+        CommandBatcher batcher = new CommandBatcher(queue, latency, RobotLink.MAX_COMMAND_BYTES,
+                true, 0, small);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        for (int i = 0; i < 3; i++) {
+            queue.offer("<BEEP:" + i + ">", latency.begin(System.nanoTime()));
+        }
+
+        assertTrue(batcher.writeBatch(written));
+        assertEquals(2, batcher.getCommandCount());
+        assertEquals(1, queue.getDepth());
+
+        // The third command goes once the robot acks the first
+        Thread acker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                small.onAck(0, System.nanoTime());
+            }
+        });
+        acker.start();
+        assertTrue(batcher.writeBatch(written));
+        acker.join();
+        assertEquals(3, batcher.getCommandCount());
+        assertEquals(1, small.getStallCount());
+    }
+
+    // ========== AGAINST A ROBOT WITH A SMALL BUFFER ==========
+
+    @Test
+    public void windowWithinTheRobotsBuffer_losesNothing() throws Exception {
+        connect(4, 4, 0);
+        sendPaced(100);
+
+        awaitExecuted(100);
+        assertEquals(0, robot.getOverflowCount());
+        assertEquals(0, link.getWindow().getRetransmitCount());
+        assertEquals(100, latency(CommandLatency.Stage.ACK));
+    }
+
+    @Test
+    public void withoutAWindow_theRobotsBufferOverflows() throws Exception {
+        connect(0, 4, 0);
+        sendPaced(100);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (robot.getReceivedCount() < 100
+                || robot.getExecutedCount() + robot.getOverflowCount() < 100) {
+            assertTrue("frames missing", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+        assertTrue(robot.getOverflowCount() > 0);
+        // Every frame that found room in the buffer was carried out; the rest are lost
+        assertEquals(100 - robot.getOverflowCount(), robot.getExecutedCount());
+    }
+
+    @Test
+    public void windowLargerThanTheBuffer_recoversByRetransmitting() throws Exception {
+        connect(16, 4, 20);
+        sendPaced(100);
+
+        awaitExecuted(100);
+        assertTrue(robot.getOverflowCount() > 0);
+        assertTrue(link.getWindow().getRetransmitCount() > 0);
+        assertEquals(1, lost.getCount());
+    }
+
+    @Test
+    public void robotThatStopsAcking_losesTheLink() throws Exception {
+        link.setAckTimeoutMillis(10);
+        InMemoryTransport transport = new InMemoryTransport();
+        transport.open();
+        transport.robotOutput().write((FrameCodec.HELLO_REPLY + "\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        link.connect(transport);
+        assertTrue(link.isBinaryProtocol());
+
+        link.send("<BEEP>", System.nanoTime());
+        assertTrue(lost.await(5, TimeUnit.SECONDS));
+        assertEquals(SendWindow.MAX_RETRANSMITS, link.getWindow().getRetransmitCount());
+    }
+
+    private void add(String command) {
+        entry.length = CommandCodec.encode(command, entry.bytes, 0);
+        entry.seq = latency.begin(System.nanoTime());
+        latency.onEnqueued(entry.seq, System.nanoTime());
+        latency.onWriteStarted(entry.seq, System.nanoTime());
+        latency.onWriteCompleted(entry.seq, System.nanoTime());
+        window.add(entry, out, 0);
+    }
+
+    private void connect(int window, int robotBuffer, long ackTimeoutMs) throws IOException {
+        InMemoryTransport transport = new InMemoryTransport();
+        robot = new SimulatedRobot(transport, robotBuffer, 200_000L, window > 0);
+        robot.start();
+        link.setAckWindow(window);
+        if (ackTimeoutMs > 0) link.setAckTimeoutMillis(ackTimeoutMs);
+        link.setFlushDeadlineMillis(0);
+        link.connect(transport);
+        assertTrue(link.isBinaryProtocol());
+    }
+
+    // Distinct commands, so none coalesce; never more than the queue holds
+    private void sendPaced(int commands) throws InterruptedException {
+        for (int i = 0; i < commands; i++) {
+            while (link.getQueue().getDepth() >= RobotLink.QUEUE_CAPACITY) {
+                Thread.sleep(1);
+            }
+            assertTrue(link.send("<BEEP:" + i + ">", System.nanoTime()));
+        }
+    }
+
+    private void awaitExecuted(int commands) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (robot.getExecutedCount() < commands) {
+            assertTrue("executed " + robot.getExecutedCount(), System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+        Thread.sleep(20);
+        assertEquals(commands, robot.getExecutedCount());
+    }
+
+    private long latency(CommandLatency.Stage stage) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (link.getWindow().getInFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        return link.getLatency().getHistogram(stage).getCount();
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.buddyrobot;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class TelemetryReaderTest {
+
+    private final CommandLatency latency = new CommandLatency();
+    private final RobotTelemetry telemetry = new RobotTelemetry();
+    private final RobotTelemetry.Snapshot snapshot = new RobotTelemetry.Snapshot();
+
+    @Test
+    public void textLines_publishPositionAndBattery() throws IOException {
+        TelemetryReader reader = new TelemetryReader(latency, telemetry, false);
+        readAll(reader, text("BUDDY v2 ready\n<POS:-15:7>\r\n<BAT:3712:64>\n"), 64);
+
+        telemetry.read(snapshot);
+        assertTrue(snapshot.hasHeadPosition());
+        assertEquals(-15, snapshot.getHeadPan());
+        assertEquals(7, snapshot.getHeadTilt());
+        assertTrue(snapshot.hasBattery());
+        assertEquals(3712, snapshot.getBatteryMillivolts());
+        assertEquals(64, snapshot.getBatteryPercent());
+        assertEquals(0, snapshot.getAckCount());
+        assertEquals(2, reader.getMessageCount());
+    }
+
+    @Test
+    public void echoedCommands_areAcksInOrder() throws IOException {
+        sent();
+        sent();
+        TelemetryReader reader = new TelemetryReader(latency, telemetry, false);
+        readAll(reader, text("<EXPR:HAPPY>\n<HEAD:LEFT>\n"), 64);
+
+        assertEquals(2, telemetry.read(snapshot).getAckCount());
+        assertEquals(2, latency.getHistogram(CommandLatency.Stage.ACK).getCount());
+        assertEquals(-1, latency.onAckInOrder(System.nanoTime()));
+    }
+
+    @Test
+    public void malformedLines_areIgnored() throws IOException {
+        TelemetryReader reader = new TelemetryReader(latency, telemetry, false);
+        readAll(reader, text("<POS:1>\n<POS:1:2:3>\n<POS:a:2>\n<BAT:-:4>\n<>\nPOS:1:2\n"), 64);
+
+        assertFalse(telemetry.read(snapshot).hasHeadPosition());
+        assertFalse(snapshot.hasBattery());
+        assertEquals(0, reader.getMessageCount());
+    }
+
+    @Test
+    public void messagesSplitAcrossReads_andTheRingWrap_areParsed() throws IOException {
+        TelemetryReader reader = new TelemetryReader(latency, telemetry, false, null, 128);
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            lines.append("<POS:").append(i).append(':').append(-i).append(">\n");
+        }
+        // 3 bytes a read: every line straddles reads, and the 128-byte ring wraps many times
+        readAll(reader, text(lines.toString()), 3);
+
+        telemetry.read(snapshot);
+        assertEquals(99, snapshot.getHeadPan());
+        assertEquals(-99, snapshot.getHeadTilt());
+        assertEquals(100, reader.getMessageCount());
+    }
+
+    @Test
+    public void overlongLine_isDroppedAndParsingResumes() throws IOException {
+        TelemetryReader reader = new TelemetryReader(latency, telemetry, false, null, 128);
+        StringBuilder noise = new StringBuilder("<");
+        for (int i = 0; i < 300; i++) {
+            noise.append('x');
+        }
+        readAll(reader, text(noise + ">\n<BAT:4000:90>\n"), 64);
+
+        assertTrue(reader.getOverflowCount() > 0);
+        assertEquals(90, telemetry.read(snapshot).getBatteryPercent());
+    }
+
+    @Test
+    public void frames_publishTelemetryAndAckBySeq() throws IOException {
+        int seq = sent();
+        TelemetryReader reader = new TelemetryReader(latency, telemetry, true);
+        ByteArrayOutputStream in = new ByteArrayOutputStream();
+        in.write(0x42);     // noise before the first SYNC
+        frame(in, FrameCodec.OP_HEAD_POSITION, 0, 0xFF, 0xF6, 0x00, 0x1E);    // -10, 30
+        frame(in, FrameCodec.OP_BATTERY, 0, 0x0E, 0x74, 55);                 // 3700 mV, 55 %
+        frame(in, FrameCodec.OP_ACK, seq);
+        frame(in, 0x9F, 0, 1, 2, 3);                                        // unknown opcode
+        readAll(reader, in.toByteArray(), 5);
+
+        telemetry.read(snapshot);
+        assertEquals(-10, snapshot.getHeadPan());
+        assertEquals(30, snapshot.getHeadTilt());
+        assertEquals(3700, snapshot.getBatteryMillivolts());
+        assertEquals(55, snapshot.getBatteryPercent());
+        assertEquals(1, snapshot.getAckCount());
+        assertEquals(1, latency.getHistogram(CommandLatency.Stage.ACK).getCount());
+        assertEquals(3, reader.getMessageCount());
+    }
+
+    @Test
+    public void corruptFrame_isSkippedAndTheNextOneParsed() throws IOException {
+        TelemetryReader reader = new TelemetryReader(latency, telemetry, true);
+        ByteArrayOutputStream in = new ByteArrayOutputStream();
+        frame(in, FrameCodec.OP_BATTERY, 0, 0x0F, 0xA0, 99);
+        byte[] bad = in.toByteArray();
+        bad[bad.length - 1] ^= 0x01;
+        in.reset();
+        in.write(bad, 0, bad.length);
+        frame(in, FrameCodec.OP_BATTERY, 0, 0x0E, 0x10, 20);
+        readAll(reader, in.toByteArray(), 64);
+
+        assertEquals(1, reader.getCorruptedCount());
+        assertEquals(20, telemetry.read(snapshot).getBatteryPercent());
+    }
+
+    @Test
+    public void parsing_doesNotAllocatePerMessage() throws IOException {
+        assumeTrue(AllocationProbe.isSupported());
+        TelemetryReader textReader = new TelemetryReader(latency, telemetry, false);
+        InputStream lines = new Repeating(text("<POS:12:-3>\n<BAT:3650:50>\n<PING>\n"));
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frame(frames, FrameCodec.OP_HEAD_POSITION, 0, 0, 12, 0xFF, 0xFD);
+        frame(frames, FrameCodec.OP_ACK, 7);
+        TelemetryReader frameReader = new TelemetryReader(latency, telemetry, true);
+        InputStream binary = new Repeating(frames.toByteArray());
+
+        long allocated = -1;
+        // First pass warms up; see DrawLoopAllocationTest for why later passes get retries
+        for (int pass = 0; pass < 4 && allocated != 0; pass++) {
+            long before = AllocationProbe.allocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                textReader.readFrom(lines);
+                frameReader.readFrom(binary);
+            }
+            allocated = AllocationProbe.allocatedBytes() - before;
+        }
+        assertEquals(0, allocated);
+        assertTrue(textReader.getMessageCount() > 0);
+        assertTrue(frameReader.getMessageCount() > 0);
+    }
+
+    @Test
+    public void snapshot_neverMixesTwoUpdates() throws Exception {
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread publisher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 1; !done.get(); i++) {
+                    telemetry.onHeadPosition(i, -i, i);
+                }
+            }
+        });
+        publisher.start();
+        try {
+            for (int i = 0; i < 200_000; i++) {
+                telemetry.read(snapshot);
+                assertEquals(snapshot.getHeadPan(), -snapshot.getHeadTilt());
+                assertEquals(snapshot.getHeadPan(), snapshot.getHeadNanos());
+                assertEquals(0, snapshot.getVersion() & 1);
+            }
+        } finally {
+            done.set(true);
+            publisher.join();
+        }
+    }
+
+    // A command the link has written, waiting for its ack
+    private int sent() {
+        long now = System.nanoTime();
+        int seq = latency.begin(now);
+        latency.onEnqueued(seq, now);
+        latency.onWriteStarted(seq, now);
+        latency.onWriteCompleted(seq, now);
+        return seq;
+    }
+
+    private static void frame(ByteArrayOutputStream out, int opcode, int seq, int... payload) {
+        byte[] frame = new byte[FrameCodec.HEADER_BYTES + payload.length + 1];
+        frame[0] = (byte) FrameCodec.SYNC;
+        frame[1] = (byte) opcode;
+        frame[2] = (byte) seq;
+        frame[3] = (byte) payload.length;
+        for (int i = 0; i < payload.length; i++) {
+            frame[FrameCodec.HEADER_BYTES + i] = (byte) payload[i];
+        }
+        frame[frame.length - 1] = (byte) FrameCodec.crc8(frame, 1, frame.length - 1);
+        out.write(frame, 0, frame.length);
+    }
+
+    private static byte[] text(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Feeds bytes to the reader at most chunk at a time, as a slow radio would
+    private static void readAll(TelemetryReader reader, byte[] bytes, final int chunk)
+            throws IOException {
+        InputStream in = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        };
+        while (reader.readFrom(in)) {
+            // until the end of the stream
+        }
+    }
+
+    // The same bytes over and over, without allocating
+    private static final class Repeating extends InputStream {
+        private final byte[] bytes;
+        private int at = 0;
+
+        Repeating(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read() {
+            int b = bytes[at] & 0xFF;
+            at = (at + 1) % bytes.length;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int n = Math.min(len, bytes.length - at);
+            System.arraycopy(bytes, at, b, off, n);
+            at = (at + n) % bytes.length;
+            return n;
+        }
+    }
+}
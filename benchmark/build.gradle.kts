@@ -0,0 +1,59 @@
+// JMH benchmarks for the pure-Java hot paths of the app, run on the desktop JVM:
+//   ./gradlew :benchmark:jmh
+// Results land in benchmark/build/results/jmh/results.json; compare against baseline/results.json
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// The app module is an Android build, so the benchmarked classes are compiled here straight
+// from its sources. Only classes without android.* imports can be listed.
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/buddyrobot/CommandBatcher.java",
+                "com/example/buddyrobot/CommandCoalescer.java",
+                "com/example/buddyrobot/CommandCodec.java",
+                "com/example/buddyrobot/CommandLatency.java",
+                "com/example/buddyrobot/CommandQueue.java",
+                "com/example/buddyrobot/Easing.java",
+                "com/example/buddyrobot/Expression.java",
+                "com/example/buddyrobot/FaceAnimator.java",
+                "com/example/buddyrobot/FaceParams.java",
+                "com/example/buddyrobot/FacePoses.java",
+                "com/example/buddyrobot/FaceRenderer.java",
+                "com/example/buddyrobot/FaceState.java",
+                "com/example/buddyrobot/FaceSurface.java",
+                "com/example/buddyrobot/FastMath.java",
+                "com/example/buddyrobot/FrameCodec.java",
+                "com/example/buddyrobot/HeadStream.java",
+                "com/example/buddyrobot/InMemoryTransport.java",
+                "com/example/buddyrobot/LatencyHistogram.java",
+                "com/example/buddyrobot/RobotLink.java",
+                "com/example/buddyrobot/RobotTelemetry.java",
+                "com/example/buddyrobot/RobotTransport.java",
+                "com/example/buddyrobot/SendWindow.java",
+                "com/example/buddyrobot/SimulatedRobot.java",
+                "com/example/buddyrobot/TcpTransport.java",
+                "com/example/buddyrobot/TelemetryReader.java"
+            )
+        }
+    }
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    timeUnit.set("ns")
+    benchmarkMode.set(listOf("avgt"))
+    resultFormat.set("JSON")
+}
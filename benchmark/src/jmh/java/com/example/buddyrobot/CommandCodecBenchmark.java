@@ -0,0 +1,56 @@
+package com.example.buddyrobot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The BluetoothManager send path up to the socket stream: previous getBytes() version
+ * against CommandCodec into a reused buffer.
+ */
+@State(Scope.Thread)
+public class CommandCodecBenchmark {
+
+    private final String command = Expression.LAUGHING.getCommand();
+    private final byte[] buffer = new byte[64];
+    private OutputStream stream;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        stream = new OutputStream() {
+            @Override
+            public void write(int b) {
+                blackhole.consume(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                blackhole.consume(b);
+                blackhole.consume(len);
+            }
+        };
+    }
+
+    @Benchmark
+    public void getBytes() throws IOException {
+        stream.write(command.getBytes());
+        stream.write('\n');
+    }
+
+    @Benchmark
+    public void codec() throws IOException {
+        int length = CommandCodec.encode(command, buffer, 0);
+        stream.write(buffer, 0, length);
+        stream.write('\n');
+    }
+
+    @Benchmark
+    public int encodeOnly() {
+        return CommandCodec.encode(command, buffer, 0);
+    }
+}
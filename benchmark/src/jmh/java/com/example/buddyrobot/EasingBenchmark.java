@@ -0,0 +1,57 @@
+package com.example.buddyrobot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Easing curves and trigonometry used by every animated frame, against their java.lang.Math forms.
+ */
+@State(Scope.Thread)
+public class EasingBenchmark {
+
+    private float t;
+    private float angle;
+
+    @Setup
+    public void setUp() {
+        t = 0.37f;
+        angle = 11.3f;
+    }
+
+    @Benchmark
+    public float easeInOutQuad() {
+        return Easing.easeInOutQuad(t);
+    }
+
+    @Benchmark
+    public float easeOutElastic() {
+        return Easing.easeOutElastic(t);
+    }
+
+    @Benchmark
+    public double easeOutElasticClosedForm() {
+        return Easing.elastic(t);
+    }
+
+    @Benchmark
+    public float easeOutBounce() {
+        return Easing.easeOutBounce(t);
+    }
+
+    @Benchmark
+    public float cubicBezierStandard() {
+        return Easing.STANDARD.at(t);
+    }
+
+    @Benchmark
+    public float fastSin() {
+        return FastMath.sin(angle);
+    }
+
+    @Benchmark
+    public float mathSin() {
+        return (float) Math.sin(angle);
+    }
+}
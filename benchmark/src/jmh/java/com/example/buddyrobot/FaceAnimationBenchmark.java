@@ -0,0 +1,62 @@
+package com.example.buddyrobot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Per-frame state updates and pose evaluation, for each expression.
+ */
+@State(Scope.Thread)
+public class FaceAnimationBenchmark {
+
+    private static final long FRAME_NANOS = 16_666_667L;
+
+    @Param({"NEUTRAL", "HAPPY", "SAD", "SURPRISE", "ANGRY", "LOVE", "SLEEPY",
+            "EXCITED", "CONFUSED", "COOL", "SHY", "THINKING", "LAUGHING"})
+    public String expression;
+
+    private final FaceState state = new FaceState();
+    private final FaceParams pose = new FaceParams();
+    private final FaceRenderer renderer = new FaceRenderer();
+    private final FaceSurface surface = new NullFaceSurface();
+    private FaceAnimator animator;
+    private long frameTime;
+
+    @Setup
+    public void setUp() {
+        animator = new FaceAnimator(state, new Random(42), 0L);
+        animator.setExpressionImmediate(Expression.parse(expression));
+        renderer.setSize(1080, 720);
+        frameTime = 0L;
+    }
+
+    /** Idle behaviour, micro-expressions, blinks and transitions for one frame. */
+    @Benchmark
+    public FaceState advanceState() {
+        frameTime += FRAME_NANOS;
+        animator.advance(frameTime);
+        return state;
+    }
+
+    /** Parameter vector of the expression at the current point of the cycle. */
+    @Benchmark
+    public FaceParams evaluatePose() {
+        FacePoses.evaluate(state.expression, state.animProgress, state.jitter,
+                1080f, 720f, FaceRenderer.EYE_SIZE, pose);
+        return pose;
+    }
+
+    /** A whole frame: advance, evaluate and issue every draw call to a surface that ignores them. */
+    @Benchmark
+    public FaceState renderFrame() {
+        frameTime += FRAME_NANOS;
+        animator.advance(frameTime);
+        renderer.render(surface, state);
+        return state;
+    }
+}
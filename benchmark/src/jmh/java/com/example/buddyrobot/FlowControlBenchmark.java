@@ -0,0 +1,101 @@
+package com.example.buddyrobot;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+
+/**
+ * A burst of commands to a robot whose serial buffer holds 8 frames and whose servos take
+ * 50 us per command (SimulatedRobot over InMemoryTransport), with the ack window off, within
+ * the buffer and larger than it. The score is the time until every command has been executed
+ * or lost; executed / commands in the counters is delivery, overflowed is loss at the robot.
+ */
+@State(Scope.Thread)
+public class FlowControlBenchmark {
+
+    static final int BURST = 64;
+    static final int ROBOT_BUFFER_FRAMES = 8;
+    static final long SERVICE_NANOS = 50_000L;
+
+    /** Frames awaiting acks at once; 0 sends without flow control. */
+    @Param({"0", "8", "32"})
+    public int ackWindow;
+
+    private final RobotLink link = new RobotLink(null);
+    private final String[] commands = new String[BURST];
+    private SimulatedRobot robot;
+
+    /** Per-iteration totals reported next to the timing. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Delivery {
+        public long commands;
+        public long executed;
+        public long overflowed;
+        public long retransmitted;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            commands = 0;
+            executed = 0;
+            overflowed = 0;
+            retransmitted = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        for (int i = 0; i < BURST; i++) {
+            commands[i] = "<BEEP:" + i + ">";    // distinct, so none coalesce
+        }
+        InMemoryTransport transport = new InMemoryTransport();
+        robot = new SimulatedRobot(transport, ROBOT_BUFFER_FRAMES, SERVICE_NANOS, ackWindow > 0);
+        robot.start();
+        link.setAckWindow(ackWindow);
+        link.setAckTimeoutMillis(5);
+        link.setFlushDeadlineMillis(0);
+        link.connect(transport);
+        if (!link.isBinaryProtocol()) throw new IllegalStateException("Hello not answered");
+    }
+
+    @TearDown
+    public void tearDown() {
+        link.disconnect();
+        robot.stop();
+    }
+
+    @Benchmark
+    public long burst(Delivery delivery) throws IOException {
+        long executed = robot.getExecutedCount();
+        long overflowed = robot.getOverflowCount();
+        SendWindow window = link.getWindow();
+        long retransmitted = window != null ? window.getRetransmitCount() : 0;
+
+        for (String command : commands) {
+            // A well-behaved caller: never more than the queue holds, so none drop there
+            while (link.getQueue().getDepth() >= RobotLink.QUEUE_CAPACITY) {
+                Thread.yield();
+            }
+            link.send(command, System.nanoTime());
+        }
+        // Without a window a frame may be lost; with one, everything is executed eventually
+        while (robot.getExecutedCount() - executed
+                + (window == null ? robot.getOverflowCount() - overflowed : 0) < BURST) {
+            if (!link.isConnected()) throw new IOException("Link lost");
+            Thread.yield();
+        }
+
+        delivery.commands += BURST;
+        delivery.executed += robot.getExecutedCount() - executed;
+        delivery.overflowed += robot.getOverflowCount() - overflowed;
+        if (window != null) delivery.retransmitted += window.getRetransmitCount() - retransmitted;
+        return robot.getExecutedCount();
+    }
+}
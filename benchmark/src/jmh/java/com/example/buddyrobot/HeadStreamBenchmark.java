@@ -0,0 +1,87 @@
+package com.example.buddyrobot;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+
+/**
+ * One head stream tick while the target circles the pad, against SimulatedRobot (8-frame
+ * buffer, 50 us servos) with the ack window off and on. The score is the cost of a tick on
+ * the streaming thread; sent / ticks in the counters is how many ticks queued a target, and
+ * held is ticks skipped while the previous target awaited its ack.
+ */
+@State(Scope.Thread)
+public class HeadStreamBenchmark {
+
+    static final int ROBOT_BUFFER_FRAMES = 8;
+    static final long SERVICE_NANOS = 50_000L;
+    static final long TICK_NANOS = 20_000_000L;     // 50 Hz
+    static final int TICKS_PER_TURN = 250;          // 5 s round the pad at 50 Hz
+
+    /** Frames awaiting acks at once; 0 sends without flow control. */
+    @Param({"0", "8"})
+    public int ackWindow;
+
+    private final RobotLink link = new RobotLink(null);
+    private final HeadStream stream = new HeadStream(link);
+    private SimulatedRobot robot;
+    private long clock;
+    private int step;
+
+    /** Per-iteration totals reported next to the timing. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Ticks {
+        public long ticks;
+        public long sent;
+        public long held;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            ticks = 0;
+            sent = 0;
+            held = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        InMemoryTransport transport = new InMemoryTransport();
+        robot = new SimulatedRobot(transport, ROBOT_BUFFER_FRAMES, SERVICE_NANOS, ackWindow > 0);
+        robot.start();
+        link.setAckWindow(ackWindow);
+        link.setFlushDeadlineMillis(0);
+        link.connect(transport);
+        if (!link.isBinaryProtocol()) throw new IllegalStateException("Hello not answered");
+        clock = System.nanoTime();
+    }
+
+    @TearDown
+    public void tearDown() {
+        link.disconnect();
+        robot.stop();
+    }
+
+    @Benchmark
+    public float tick(Ticks ticks) {
+        float angle = FastMath.TWO_PI * (step++ % TICKS_PER_TURN) / TICKS_PER_TURN;
+        stream.setTarget(FastMath.cos(angle), FastMath.sin(angle));
+        long sent = stream.getSentCount();
+        long held = stream.getHeldCount();
+        // The stream's own clock runs at 50 Hz, however fast the ticks are called
+        clock += TICK_NANOS;
+        stream.tick(clock);
+
+        ticks.ticks++;
+        ticks.sent += stream.getSentCount() - sent;
+        ticks.held += stream.getHeldCount() - held;
+        return stream.getPan();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.buddyrobot;
+
+/**
+ * Accepts and discards every draw call, so a benchmark measures only the renderer.
+ */
+final class NullFaceSurface implements FaceSurface {
+
+    @Override
+    public void save() {
+    }
+
+    @Override
+    public void restore() {
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+    }
+
+    @Override
+    public void rotate(float degrees, float px, float py) {
+    }
+
+    @Override
+    public void scale(float sx, float sy, float px, float py) {
+    }
+
+    @Override
+    public void setFill(int color) {
+    }
+
+    @Override
+    public void setStroke(int color, float width) {
+    }
+
+    @Override
+    public void drawOval(float left, float top, float right, float bottom) {
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius) {
+    }
+
+    @Override
+    public void drawArc(float left, float top, float right, float bottom,
+                        float startAngle, float sweepAngle) {
+    }
+
+    @Override
+    public void drawLine(float x0, float y0, float x1, float y1) {
+    }
+
+    @Override
+    public void drawRoundRect(float left, float top, float right, float bottom, float radius) {
+    }
+
+    @Override
+    public void drawQuad(float x0, float y0, float cx, float cy, float x1, float y1) {
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, float textSize) {
+    }
+
+    @Override
+    public void drawShape(int shape, float x, float y, float size, float degrees) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.buddyrobot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * The whole command path, sendData() to the bytes arriving at a robot stand-in, over an
+ * in-process pipe or TCP loopback. The benchmark thread plays the robot and reads every line
+ * back, so the score is latency per round (queue, writer thread, batching, transport).
+ * The flush deadline is 0, so bursts are batched without lingering.
+ */
+@State(Scope.Thread)
+public class RobotLinkBenchmark {
+
+    @Param({"memory", "tcp"})
+    public String transport;
+
+    private final RobotLink link = new RobotLink(null);
+    private ServerSocket server;
+    private Socket robotSocket;
+    private InputStream robot;
+
+    @Setup
+    public void setUp() throws IOException {
+        link.setBinaryProtocolEnabled(false);
+        link.setFlushDeadlineMillis(0);
+        if (transport.equals("tcp")) {
+            server = new ServerSocket(0);
+            link.connect(new TcpTransport("127.0.0.1", server.getLocalPort(), 1000));
+            robotSocket = server.accept();
+            robot = new BufferedInputStream(robotSocket.getInputStream());
+        } else {
+            InMemoryTransport memory = new InMemoryTransport();
+            link.connect(memory);
+            robot = memory.robotInput();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        link.disconnect();
+        if (robotSocket != null) robotSocket.close();
+        if (server != null) server.close();
+    }
+
+    @Benchmark
+    public int oneCommand() throws IOException {
+        link.send("<PING>", System.nanoTime());
+        return skipLines(1);
+    }
+
+    @Benchmark
+    public int burstOf8() throws IOException {
+        for (int i = 0; i < 8; i++) {
+            link.send("<PING>", System.nanoTime());
+        }
+        return skipLines(8);
+    }
+
+    private int skipLines(int lines) throws IOException {
+        int bytes = 0;
+        while (lines > 0) {
+            int b = robot.read();
+            if (b < 0) throw new IOException("Link closed");
+            if (b == '\n') lines--;
+            bytes++;
+        }
+        return bytes;
+    }
+}
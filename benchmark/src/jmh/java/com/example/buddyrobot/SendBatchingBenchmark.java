@@ -0,0 +1,102 @@
+package com.example.buddyrobot;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.OutputStream;
+
+/**
+ * The Bluetooth writer thread draining bursts of queued commands: the previous payload-then-
+ * newline writes against CommandBatcher. Every write() is counted as a packet, so
+ * writes / commands in the results is packets per command (2 before, 1 / burst after).
+ * The flush deadline is 0, so only the packing is measured, not the linger.
+ */
+@State(Scope.Thread)
+public class SendBatchingBenchmark {
+
+    /** Commands queued at once: one tap on an idle link, or a backlog behind a slow link. */
+    @Param({"1", "8"})
+    public int burst;
+
+    private final CommandQueue queue = new CommandQueue(32, 64,
+            CommandQueue.OverflowPolicy.DROP_OLDEST);
+    private final CommandQueue.Entry entry = new CommandQueue.Entry(64);
+    private final String[] commands = {
+            Expression.HAPPY.getCommand(), "<HEAD:LEFT>", "<BEEP:2>", Expression.SAD.getCommand()
+    };
+    private CommandBatcher textBatcher;
+    private CommandBatcher binaryBatcher;
+
+    /** Per-iteration totals reported next to the timing. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Packets extends OutputStream {
+        public long writes;
+        public long commands;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            writes = 0;
+            commands = 0;
+            bytes = 0;
+        }
+
+        @Override
+        public void write(int b) {
+            writes++;
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writes++;
+            bytes += len;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        CommandLatency latency = new CommandLatency();
+        textBatcher = new CommandBatcher(queue, latency, 64, false, 0);
+        binaryBatcher = new CommandBatcher(queue, latency, 64, true, 0);
+    }
+
+    @Benchmark
+    public void twoWrites(Packets packets) throws Exception {
+        fill(packets);
+        while (queue.getDepth() > 0) {
+            queue.take(entry);
+            packets.write(entry.bytes, 0, entry.length);
+            packets.write('\n');
+        }
+    }
+
+    @Benchmark
+    public void batchedText(Packets packets) throws Exception {
+        fill(packets);
+        while (queue.getDepth() > 0) {
+            textBatcher.writeBatch(packets);
+        }
+    }
+
+    @Benchmark
+    public void batchedFrames(Packets packets) throws Exception {
+        fill(packets);
+        while (queue.getDepth() > 0) {
+            binaryBatcher.writeBatch(packets);
+        }
+    }
+
+    private void fill(Packets packets) {
+        for (int i = 0; i < burst; i++) {
+            queue.offer(commands[i % commands.length], i);
+        }
+        packets.commands += burst;
+    }
+}
@@ -21,4 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "BuddyRobot"
 include(":app")
+include(":benchmark")
  
\ No newline at end of file